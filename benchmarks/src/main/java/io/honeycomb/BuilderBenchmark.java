@@ -0,0 +1,68 @@
+package io.honeycomb;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures Builder.newEvent() with staticFields inherited fields and dynFields dynamic fields.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class BuilderBenchmark {
+    @Param({"0", "10", "40"})
+    public int staticFields;
+
+    @Param({"0", "4"})
+    public int dynFields;
+
+    private LibHoney libhoney;
+    private Builder builder;
+
+    @Setup
+    public void setUp() {
+        this.libhoney = new LibHoney.Builder()
+                .writeKey("benchmark")
+                .dataSet("benchmark")
+                .transport(new NoopTransport())
+                .build();
+        for (int i = 0; i < this.staticFields; i++) {
+            this.libhoney.addField("static" + i, i % 2 == 0 ? (Object) ("value" + i) : (Object) i);
+        }
+        for (int i = 0; i < this.dynFields; i++) {
+            long value = i;
+            this.libhoney.addDynField("dyn" + i, () -> value);
+        }
+        this.builder = this.libhoney.newBuilder();
+    }
+
+    @TearDown
+    public void tearDown() {
+        this.libhoney.close();
+    }
+
+    @Benchmark
+    public Event newEvent() {
+        return this.builder.newEvent();
+    }
+
+    @Benchmark
+    public Event newBuilderAndEvent() {
+        return this.libhoney.newBuilder().newEvent();
+    }
+}
@@ -0,0 +1,102 @@
+package io.honeycomb;
+
+import com.sun.net.httpserver.HttpServer;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures sending events end to end against an in-process stub of the Honeycomb API, for each combination of
+ * batching and transport.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@Threads(4)
+public class EndToEndBenchmark {
+    @Param({"false", "true"})
+    public boolean batching;
+
+    @Param({"false", "true"})
+    public boolean asyncTransport;
+
+    private HttpServer server;
+    private ExecutorService serverExecutor;
+    private LibHoney libhoney;
+
+    @Setup
+    public void setUp() throws IOException {
+        this.server = HttpServer.create(new InetSocketAddress("127.0.0.1", 0), 1024);
+        this.server.createContext("/1/events/", exchange -> {
+            drain(exchange.getRequestBody());
+            exchange.sendResponseHeaders(202, -1);
+            exchange.close();
+        });
+        this.server.createContext("/1/batch/", exchange -> {
+            drain(exchange.getRequestBody());
+            byte[] response = "[]".getBytes();
+            exchange.sendResponseHeaders(200, response.length);
+            try (OutputStream out = exchange.getResponseBody()) {
+                out.write(response);
+            }
+        });
+        this.serverExecutor = Executors.newFixedThreadPool(16);
+        this.server.setExecutor(this.serverExecutor);
+        this.server.start();
+
+        this.libhoney = new LibHoney.Builder()
+                .writeKey("benchmark")
+                .dataSet("benchmark")
+                .apiHost("http://127.0.0.1:" + this.server.getAddress().getPort())
+                .blockOnSend(true)
+                .batching(this.batching)
+                .asyncTransport(this.asyncTransport)
+                .maxConcurrentBranches(this.asyncTransport ? 64 : 10)
+                .build();
+        this.libhoney.addField("service", "api");
+        this.libhoney.addField("method", "GET");
+        this.libhoney.addField("status_code", 200);
+        this.libhoney.addField("duration_ms", 153.12);
+    }
+
+    @TearDown
+    public void tearDown() {
+        this.libhoney.close();
+        this.server.stop(0);
+        this.serverExecutor.shutdownNow();
+    }
+
+    private static void drain(InputStream in) throws IOException {
+        byte[] buffer = new byte[8192];
+        while (in.read(buffer) >= 0) {
+            // discard
+        }
+        in.close();
+    }
+
+    @Benchmark
+    public void send() throws HoneyException {
+        this.libhoney.send();
+    }
+}
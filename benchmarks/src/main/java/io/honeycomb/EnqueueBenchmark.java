@@ -0,0 +1,91 @@
+package io.honeycomb;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures the cost to the calling thread of enqueuing an Event on the request queue while 1 to 64 threads send at
+ * once.  Sends do not block, and the queue is emptied before each short iteration and is large enough not to fill
+ * during it, so what is timed is the enqueue path rather than how fast senders drain the queue.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 200, timeUnit = TimeUnit.MILLISECONDS)
+@Measurement(iterations = 10, time = 200, timeUnit = TimeUnit.MILLISECONDS)
+@Fork(1)
+public class EnqueueBenchmark {
+    private static final int REQUEST_QUEUE_LENGTH = 1 << 22;
+
+    @Param({"false", "true"})
+    public boolean lockFreeRequestQueue;
+
+    private LibHoney libhoney;
+    private Transmission transmission;
+    private Event event;
+
+    @Setup
+    public void setUp() {
+        this.libhoney = new LibHoney.Builder()
+                .writeKey("benchmark")
+                .dataSet("benchmark")
+                .blockOnSend(false)
+                .requestQueueLength(REQUEST_QUEUE_LENGTH)
+                .responseQueueLength(0)
+                .lockFreeRequestQueue(this.lockFreeRequestQueue)
+                .transport(new NoopTransport())
+                .build();
+        this.libhoney.addField("method", "get");
+        this.libhoney.addField("status", 200);
+        this.transmission = this.libhoney.getTransmission();
+        this.event = this.libhoney.newEvent();
+    }
+
+    @Setup(Level.Iteration)
+    public void emptyQueue() {
+        this.transmission.getRequestQueue().clear();
+    }
+
+    @TearDown
+    public void tearDown() {
+        this.libhoney.close();
+    }
+
+    @Benchmark
+    @Threads(1)
+    public void enqueue01() {
+        this.transmission.enqueueRequest(this.event);
+    }
+
+    @Benchmark
+    @Threads(4)
+    public void enqueue04() {
+        this.transmission.enqueueRequest(this.event);
+    }
+
+    @Benchmark
+    @Threads(16)
+    public void enqueue16() {
+        this.transmission.enqueueRequest(this.event);
+    }
+
+    @Benchmark
+    @Threads(64)
+    public void enqueue64() {
+        this.transmission.enqueueRequest(this.event);
+    }
+}
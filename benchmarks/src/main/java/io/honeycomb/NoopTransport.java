@@ -0,0 +1,27 @@
+package io.honeycomb;
+
+import org.apache.http.HttpResponse;
+import org.apache.http.HttpVersion;
+import org.apache.http.client.methods.HttpUriRequest;
+import org.apache.http.concurrent.FutureCallback;
+import org.apache.http.entity.ContentType;
+import org.apache.http.entity.StringEntity;
+import org.apache.http.message.BasicHttpResponse;
+
+/**
+ * Completes every request immediately with an empty 202 response, so benchmarks measure the client alone.
+ */
+public class NoopTransport implements Transport {
+    private static final StringEntity EMPTY = new StringEntity("", ContentType.APPLICATION_JSON);
+
+    @Override
+    public void execute(HttpUriRequest request, FutureCallback<HttpResponse> callback) {
+        BasicHttpResponse response = new BasicHttpResponse(HttpVersion.HTTP_1_1, 202, "Accepted");
+        response.setEntity(EMPTY);
+        callback.completed(response);
+    }
+
+    @Override
+    public void close() {
+    }
+}
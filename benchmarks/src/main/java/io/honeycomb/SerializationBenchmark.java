@@ -0,0 +1,71 @@
+package io.honeycomb;
+
+import org.json.JSONObject;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures encoding a typical request-log field map, comparing the streaming JsonWriter with org.json.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class SerializationBenchmark {
+    private Map<String, Object> fields;
+    private JsonWriter writer;
+
+    @Setup
+    public void setUp() {
+        this.fields = new HashMap<>();
+        this.fields.put("service", "api");
+        this.fields.put("hostname", "appserver15");
+        this.fields.put("method", "GET");
+        this.fields.put("endpoint", "/1/users/:id/settings");
+        this.fields.put("status_code", 200);
+        this.fields.put("duration_ms", 153.12);
+        this.fields.put("request_bytes", 512L);
+        this.fields.put("response_bytes", 27381L);
+        this.fields.put("cache_hit", true);
+        this.fields.put("user_agent", "Mozilla/5.0 (X11; Linux x86_64) AppleWebKit/537.36");
+        this.fields.put("trace.trace_id", "4bf92f3577b34da6a3ce929d0e0e4736");
+        this.fields.put("trace.span_id", "00f067aa0ba902b7");
+        this.fields.put("db.queries", 4);
+        this.fields.put("db.duration_ms", 12.5);
+        this.fields.put("tags", Arrays.asList("beta", "eu-west-1"));
+        Map<String, Object> build = new HashMap<>();
+        build.put("version", "1.4.2");
+        build.put("commit", "a5028f1");
+        this.fields.put("build", build);
+
+        this.writer = new JsonWriter(1024);
+    }
+
+    @Benchmark
+    public int jsonWriter() {
+        this.writer.reset();
+        this.writer.writeObject(this.fields);
+        return this.writer.size();
+    }
+
+    @Benchmark
+    public int orgJson() {
+        return new JSONObject(this.fields).toString().getBytes(StandardCharsets.UTF_8).length;
+    }
+}
@@ -0,0 +1,324 @@
+package io.honeycomb;
+
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+import org.apache.http.HttpEntityEnclosingRequest;
+import org.apache.http.HttpHost;
+import org.apache.http.HttpRequestInterceptor;
+import org.apache.http.HttpResponse;
+import org.apache.http.client.methods.HttpUriRequest;
+import org.apache.http.concurrent.FutureCallback;
+import org.apache.http.conn.ssl.BrowserCompatHostnameVerifier;
+import org.apache.http.conn.ssl.X509HostnameVerifier;
+import org.apache.http.impl.DefaultConnectionReuseStrategy;
+import org.apache.http.impl.nio.DefaultHttpClientIODispatch;
+import org.apache.http.impl.nio.pool.BasicNIOConnFactory;
+import org.apache.http.impl.nio.pool.BasicNIOConnPool;
+import org.apache.http.impl.nio.reactor.DefaultConnectingIOReactor;
+import org.apache.http.impl.nio.reactor.IOReactorConfig;
+import org.apache.http.message.BasicHttpEntityEnclosingRequest;
+import org.apache.http.nio.protocol.BasicAsyncRequestProducer;
+import org.apache.http.nio.protocol.BasicAsyncResponseConsumer;
+import org.apache.http.nio.protocol.HttpAsyncRequestExecutor;
+import org.apache.http.nio.protocol.HttpAsyncRequester;
+import org.apache.http.nio.reactor.ConnectingIOReactor;
+import org.apache.http.nio.reactor.IOEventDispatch;
+import org.apache.http.nio.reactor.IOReactorException;
+import org.apache.http.nio.reactor.IOSession;
+import org.apache.http.nio.reactor.ssl.SSLSetupHandler;
+import org.apache.http.params.BasicHttpParams;
+import org.apache.http.params.HttpConnectionParams;
+import org.apache.http.params.HttpParams;
+import org.apache.http.protocol.BasicHttpContext;
+import org.apache.http.protocol.ImmutableHttpProcessor;
+import org.apache.http.protocol.RequestConnControl;
+import org.apache.http.protocol.RequestContent;
+import org.apache.http.protocol.RequestTargetHost;
+
+import javax.net.ssl.SSLContext;
+import javax.net.ssl.SSLEngine;
+import javax.net.ssl.SSLException;
+import javax.net.ssl.SSLSession;
+import java.io.IOException;
+import java.net.URI;
+import java.security.NoSuchAlgorithmException;
+import java.security.cert.X509Certificate;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Executes requests without blocking on the socket, using a non-blocking I/O reactor and connection pool.
+ *
+ * A small number of I/O threads drive every connection.  The number of requests in flight is bounded by a window;
+ * execute blocks the calling thread only while that window is full.  Callbacks run on a separate pool of callback
+ * threads, so that a callback which blocks or does file I/O never stalls the I/O threads.
+ */
+public class AsyncHttpTransport implements Transport {
+    /**
+     * The I/O reactor runs on its own thread and dispatches events to ioThreads worker threads.
+     * The in-flight window holds one permit per request that has been executed but whose callback has not yet
+     * returned, which also bounds the number of completions waiting for a callback thread.
+     */
+    private final ConnectingIOReactor ioReactor;
+    private final BasicNIOConnPool connectionPool;
+    private final HttpAsyncRequester requester;
+    private final Thread reactorThread;
+    private final ExecutorService callbackExecutor;
+    private final Semaphore inFlight;
+    private final int maxInFlight;
+    private final int closeTimeout;
+
+    // Logging
+    private final Log log = LogFactory.getLog(AsyncHttpTransport.class);
+
+    /**
+     * Constructs an AsyncHttpTransport and starts its I/O reactor.
+     *
+     * @param ioThreads number of I/O dispatch threads, and of callback threads
+     * @param maxInFlight maximum number of requests in flight at once
+     * @param maxConnections maximum number of pooled connections
+     * @param connectTimeout number of ms to wait while establishing a connection
+     * @param socketTimeout number of ms to wait for data on an open connection
+     * @param closeTimeout number of seconds close waits for requests in flight to complete
+     * @throws IOReactorException if the I/O reactor cannot be started
+     */
+    public AsyncHttpTransport(int ioThreads, int maxInFlight, int maxConnections, int connectTimeout,
+                              int socketTimeout, int closeTimeout) throws IOReactorException {
+        this(ioThreads, maxInFlight, maxConnections, connectTimeout, socketTimeout, closeTimeout,
+                getDefaultSSLContext());
+    }
+
+    /**
+     * Constructs an AsyncHttpTransport that makes TLS connections with the specified SSLContext and starts its
+     * I/O reactor.
+     *
+     * @param ioThreads number of I/O dispatch threads, and of callback threads
+     * @param maxInFlight maximum number of requests in flight at once
+     * @param maxConnections maximum number of pooled connections
+     * @param connectTimeout number of ms to wait while establishing a connection
+     * @param socketTimeout number of ms to wait for data on an open connection
+     * @param closeTimeout number of seconds close waits for requests in flight to complete
+     * @param sslContext SSLContext for TLS connections, or null if TLS is unavailable
+     * @throws IOReactorException if the I/O reactor cannot be started
+     */
+    AsyncHttpTransport(int ioThreads, int maxInFlight, int maxConnections, int connectTimeout,
+                       int socketTimeout, int closeTimeout, SSLContext sslContext) throws IOReactorException {
+        this.maxInFlight = maxInFlight;
+        this.closeTimeout = closeTimeout;
+        this.inFlight = new Semaphore(maxInFlight);
+
+        HttpParams params = new BasicHttpParams();
+        HttpConnectionParams.setConnectionTimeout(params, connectTimeout);
+        HttpConnectionParams.setSoTimeout(params, socketTimeout);
+
+        IOReactorConfig config = new IOReactorConfig();
+        config.setIoThreadCount(ioThreads);
+        config.setConnectTimeout(connectTimeout);
+        config.setSoTimeout(socketTimeout);
+        config.setTcpNoDelay(true);
+        this.ioReactor = new DefaultConnectingIOReactor(config, r -> {
+            Thread thread = new Thread(r, "libhoney-io-dispatch");
+            thread.setDaemon(true);
+            return thread;
+        });
+
+        this.connectionPool = new BasicNIOConnPool(this.ioReactor, createConnectionFactory(sslContext, params), params);
+        this.connectionPool.setMaxTotal(maxConnections);
+        this.connectionPool.setDefaultMaxPerRoute(maxConnections);
+
+        this.requester = new HttpAsyncRequester(
+                new ImmutableHttpProcessor(new HttpRequestInterceptor[] {
+                        new RequestContent(), new RequestTargetHost(), new RequestConnControl()}),
+                new DefaultConnectionReuseStrategy(),
+                params);
+
+        IOEventDispatch dispatch = new DefaultHttpClientIODispatch(new HttpAsyncRequestExecutor(), params);
+        this.reactorThread = new Thread(() -> {
+            try {
+                this.ioReactor.execute(dispatch);
+            } catch (IOException e) {
+                log.error(e);
+            }
+        }, "libhoney-io-reactor");
+        this.reactorThread.setDaemon(true);
+        this.reactorThread.start();
+
+        this.callbackExecutor = Executors.newFixedThreadPool(ioThreads, r -> {
+            Thread thread = new Thread(r, "libhoney-io-callback");
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    /**
+     * Returns the default SSLContext, or null if TLS is unavailable.
+     *
+     * @return the default SSLContext, or null
+     */
+    private static SSLContext getDefaultSSLContext() {
+        try {
+            return SSLContext.getDefault();
+        } catch (NoSuchAlgorithmException e) {
+            return null;
+        }
+    }
+
+    /**
+     * Returns a connection factory supporting plain connections and, if an SSLContext is given, TLS connections
+     * whose certificate is verified against the host name.
+     *
+     * @param sslContext SSLContext for TLS connections, or null
+     * @param params connection parameters
+     * @return a connection factory supporting plain and TLS connections
+     */
+    private static BasicNIOConnFactory createConnectionFactory(SSLContext sslContext, HttpParams params) {
+        if (sslContext == null) {
+            return new BasicNIOConnFactory(params);
+        }
+        return new BasicNIOConnFactory(sslContext, new HostnameVerifyingSetupHandler(), params);
+    }
+
+    /**
+     * Verifies that the certificate presented by the server matches the host being connected to, as the blocking
+     * client does, once the TLS handshake completes.
+     */
+    private static final class HostnameVerifyingSetupHandler implements SSLSetupHandler {
+        private final X509HostnameVerifier verifier = new BrowserCompatHostnameVerifier();
+
+        @Override
+        public void initalize(SSLEngine sslEngine) {
+            // The engine is created with the peer host and port, so SNI needs no further set up
+        }
+
+        @Override
+        public void verify(IOSession ioSession, SSLSession sslSession) throws SSLException {
+            // The connection pool attaches the route being connected to the session
+            HttpHost route = (HttpHost) ioSession.getAttribute(IOSession.ATTACHMENT_KEY);
+            this.verifier.verify(route.getHostName(), (X509Certificate) sslSession.getPeerCertificates()[0]);
+        }
+    }
+
+    /**
+     * Starts executing the request on the I/O reactor, waiting only if the in-flight window is full.  A request
+     * that cannot be started, including one made after close, fails the callback rather than throwing.
+     *
+     * @param request the request to be executed
+     * @param callback callback notified when the request completes or fails
+     */
+    @Override
+    public void execute(HttpUriRequest request, FutureCallback<HttpResponse> callback) {
+        try {
+            this.inFlight.acquire();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            callback.failed(e);
+            return;
+        }
+
+        URI uri = request.getURI();
+        HttpHost target = new HttpHost(uri.getHost(), uri.getPort() >= 0 ? uri.getPort()
+                : ("https".equalsIgnoreCase(uri.getScheme()) ? 443 : 80), uri.getScheme());
+
+        // Send the request line in origin form; the pool already knows the target host
+        String path = uri.getRawPath() == null || uri.getRawPath().isEmpty() ? "/" : uri.getRawPath();
+        if (uri.getRawQuery() != null) {
+            path += "?" + uri.getRawQuery();
+        }
+        BasicHttpEntityEnclosingRequest outgoing = new BasicHttpEntityEnclosingRequest(request.getMethod(), path);
+        outgoing.setHeaders(request.getAllHeaders());
+        if (request instanceof HttpEntityEnclosingRequest) {
+            outgoing.setEntity(((HttpEntityEnclosingRequest) request).getEntity());
+        }
+
+        try {
+            this.requester.execute(
+                    new BasicAsyncRequestProducer(target, outgoing),
+                    new BasicAsyncResponseConsumer(),
+                    this.connectionPool,
+                    new BasicHttpContext(),
+                    new FutureCallback<HttpResponse>() {
+                        @Override
+                        public void completed(HttpResponse response) {
+                            complete(() -> callback.completed(response));
+                        }
+
+                        @Override
+                        public void failed(Exception e) {
+                            complete(() -> callback.failed(e));
+                        }
+
+                        @Override
+                        public void cancelled() {
+                            complete(callback::cancelled);
+                        }
+                    });
+        } catch (RuntimeException e) {
+            // The request never reached the pool, so none of the callbacks above will run
+            this.inFlight.release();
+            callback.failed(e);
+        }
+    }
+
+    /**
+     * Runs a callback on a callback thread, or on the calling I/O thread once the callback threads have been shut
+     * down, then releases the request's place in the in-flight window.
+     *
+     * @param completion the callback to run
+     */
+    private void complete(Runnable completion) {
+        Runnable task = () -> {
+            try {
+                completion.run();
+            } finally {
+                this.inFlight.release();
+            }
+        };
+        try {
+            this.callbackExecutor.execute(task);
+        } catch (RejectedExecutionException e) {
+            task.run();
+        }
+    }
+
+    /**
+     * Returns the number of requests currently in flight.
+     * @return the number of requests currently in flight
+     */
+    public int getInFlight() {
+        return this.maxInFlight - this.inFlight.availablePermits();
+    }
+
+    /**
+     * Returns the maximum number of requests in flight at once.
+     * @return the maximum number of requests in flight at once
+     */
+    public int getMaxInFlight() {
+        return this.maxInFlight;
+    }
+
+    /**
+     * Waits up to closeTimeout seconds for requests in flight to complete, then shuts down the I/O reactor and the
+     * callback threads.
+     */
+    @Override
+    public void close() {
+        try {
+            if (this.inFlight.tryAcquire(this.maxInFlight, this.closeTimeout, TimeUnit.SECONDS)) {
+                this.inFlight.release(this.maxInFlight);
+            } else {
+                log.debug("closing with " + this.getInFlight() + " requests in flight");
+            }
+            this.connectionPool.shutdown(this.closeTimeout * 1000L);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            log.error(e);
+        } catch (IOException e) {
+            log.error(e);
+        } finally {
+            this.callbackExecutor.shutdown();
+        }
+    }
+}
@@ -0,0 +1,145 @@
+package io.honeycomb;
+
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+import org.apache.http.HttpResponse;
+import org.apache.http.client.HttpClient;
+import org.apache.http.client.methods.HttpUriRequest;
+import org.apache.http.concurrent.FutureCallback;
+import org.apache.http.impl.client.DefaultHttpClient;
+import org.apache.http.impl.conn.PoolingClientConnectionManager;
+import org.apache.http.params.BasicHttpParams;
+import org.apache.http.params.HttpConnectionParams;
+import org.apache.http.params.HttpParams;
+import org.apache.http.util.EntityUtils;
+
+import java.io.IOException;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Executes requests on the calling thread with a single pooled HTTP client.
+ */
+public class BlockingHttpTransport implements Transport {
+    /**
+     * A single pooled HTTP client is shared by all threads so connections are kept alive and reused.
+     * The evictor periodically closes expired and idle pooled connections.
+     */
+    private final PoolingClientConnectionManager connectionManager;
+    private final HttpClient httpClient;
+    private final ScheduledExecutorService connectionEvictor;
+    private final int idleConnectionTimeout;
+
+    // Logging
+    private final Log log = LogFactory.getLog(BlockingHttpTransport.class);
+
+    /**
+     * Constructs a BlockingHttpTransport that closes connections left idle for DEFAULT_IDLE_CONNECTION_TIMEOUT ms.
+     *
+     * @param maxConnections maximum number of pooled connections
+     * @param maxConnectionsPerRoute maximum number of pooled connections to a single host
+     * @param connectTimeout number of ms to wait while establishing a connection
+     * @param socketTimeout number of ms to wait for data on an open connection
+     */
+    public BlockingHttpTransport(int maxConnections, int maxConnectionsPerRoute, int connectTimeout,
+                                 int socketTimeout) {
+        this(maxConnections, maxConnectionsPerRoute, connectTimeout, socketTimeout,
+                Constants.DEFAULT_IDLE_CONNECTION_TIMEOUT);
+    }
+
+    /**
+     * Constructs a BlockingHttpTransport.
+     *
+     * @param maxConnections maximum number of pooled connections
+     * @param maxConnectionsPerRoute maximum number of pooled connections to a single host
+     * @param connectTimeout number of ms to wait while establishing a connection
+     * @param socketTimeout number of ms to wait for data on an open connection
+     * @param idleConnectionTimeout number of ms a pooled connection may stay idle before it is closed, which should
+     *                              be shorter than the idle timeout of any load balancer in front of honeycomb.io
+     */
+    public BlockingHttpTransport(int maxConnections, int maxConnectionsPerRoute, int connectTimeout,
+                                 int socketTimeout, int idleConnectionTimeout) {
+        if (idleConnectionTimeout < 1) {
+            throw new IllegalArgumentException("idle connection timeout must be at least 1 ms");
+        }
+        this.idleConnectionTimeout = idleConnectionTimeout;
+        this.connectionManager = new PoolingClientConnectionManager();
+        this.connectionManager.setMaxTotal(maxConnections);
+        this.connectionManager.setDefaultMaxPerRoute(maxConnectionsPerRoute);
+
+        HttpParams params = new BasicHttpParams();
+        HttpConnectionParams.setConnectionTimeout(params, connectTimeout);
+        HttpConnectionParams.setSoTimeout(params, socketTimeout);
+        this.httpClient = new DefaultHttpClient(this.connectionManager, params);
+
+        this.connectionEvictor = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread thread = new Thread(r, "libhoney-connection-evictor");
+            thread.setDaemon(true);
+            return thread;
+        });
+        this.connectionEvictor.scheduleWithFixedDelay(() -> {
+            this.connectionManager.closeExpiredConnections();
+            this.connectionManager.closeIdleConnections(idleConnectionTimeout, TimeUnit.MILLISECONDS);
+        }, idleConnectionTimeout, idleConnectionTimeout, TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * Executes the request on the calling thread, completes the callback, then releases the connection
+     * back to the pool.  A request that cannot be executed, including one made after the pool has been shut down,
+     * fails the callback rather than throwing.
+     *
+     * @param request the request to be executed
+     * @param callback callback notified when the request completes or fails
+     */
+    @Override
+    public void execute(HttpUriRequest request, FutureCallback<HttpResponse> callback) {
+        HttpResponse response;
+        try {
+            response = this.httpClient.execute(request);
+        } catch (IOException | RuntimeException e) {
+            callback.failed(e);
+            return;
+        }
+
+        try {
+            callback.completed(response);
+        } finally {
+            EntityUtils.consumeQuietly(response.getEntity());
+        }
+    }
+
+    /**
+     * Returns the pool of connections shared by every request.
+     * @return the pool of connections shared by every request
+     */
+    PoolingClientConnectionManager getConnectionManager() {
+        return this.connectionManager;
+    }
+
+    /**
+     * Returns the number of ms a pooled connection may stay idle before it is closed.
+     * @return the number of ms a pooled connection may stay idle before it is closed
+     */
+    int getIdleConnectionTimeout() {
+        return this.idleConnectionTimeout;
+    }
+
+    /**
+     * Returns the HTTP client shared by every request.
+     * @return the HTTP client shared by every request
+     */
+    HttpClient getHttpClient() {
+        return this.httpClient;
+    }
+
+    /**
+     * Stops the evictor and closes all pooled connections.
+     */
+    @Override
+    public void close() {
+        this.connectionEvictor.shutdownNow();
+        this.connectionManager.shutdown();
+        log.debug("closed connection pool");
+    }
+}
@@ -5,6 +5,7 @@ import org.apache.commons.logging.LogFactory;
 import org.json.JSONException;
 import org.json.JSONObject;
 
+import java.util.Collections;
 import java.util.HashMap;
 import java.util.Map;
 import java.util.Objects;
@@ -15,25 +16,31 @@ import java.util.concurrent.Callable;
  */
 public final class Builder {
     /**
-     * Builder contains all the fields and dynamic fields.
+     * Builder contains all the fields and dynamic fields.  Fields added to this Builder are kept apart from the
+     * frozen layer of fields inherited from LibHoney or another Builder, so inheriting them copies nothing; the
+     * mappings are copy-on-write, and dynamic fields are shared with their source until either is modified.
      * Write key, data set, and sample rate are necessary to create a Event.
      * Default values are inherited from LibHoney.
      */
     private LibHoney libhoney;
-    private HashMap<String, Object> fields;
-    private HashMap<String, Callable> dynFields;
+    private FieldLayer inherited;
+    private final CopyOnWriteFields<Object> fields;
+    private final CopyOnWriteFields<Callable> dynFields;
+    private volatile FieldLayer fieldLayer;
 
     // Metadata
     private String dataSet;
     private int sampleRate;
+    private Priority priority = Priority.NORMAL;
+    private Sampler sampler;
     private String writeKey;
 
     // Logging
     private final Log log = LogFactory.getLog(Builder.class);
 
     protected Builder() {
-        this.fields = new HashMap();
-        this.dynFields = new HashMap();
+        this.fields = new CopyOnWriteFields<>();
+        this.dynFields = new CopyOnWriteFields<>();
     }
 
     public Builder(LibHoney libhoney) {
@@ -47,11 +54,14 @@ public final class Builder {
      * @param other the Builder whose mappings are to be stored in this map
      */
     public Builder(Builder other) {
-        this.fields = new HashMap(other.getFields());
-        this.dynFields = new HashMap(other.getDynFields());
+        this.inherited = other.getFieldLayer();
+        this.fields = new CopyOnWriteFields<>();
+        this.dynFields = new CopyOnWriteFields<>(other.dynFields);
         this.writeKey = other.getWriteKey();
         this.dataSet = other.getDataSet();
         this.sampleRate = other.getSampleRate();
+        this.priority = other.getPriority();
+        this.sampler = other.getSampler();
         this.libhoney = other.getLibHoney();
     }
 
@@ -98,8 +108,8 @@ public final class Builder {
      * @param other the Builder whose mappings are to be added to this map
      */
     public void addFromBuilder(Builder other) {
-        this.fields.putAll(other.fields);
-        this.dynFields.putAll(other.dynFields);
+        this.fields.putAll(other.getFields());
+        this.dynFields.putAll(other.dynFields.snapshot());
     }
 
     /**
@@ -121,8 +131,8 @@ public final class Builder {
 
         Builder other = (Builder) obj;
 
-        return this.fields.equals(other.getFields())
-                && this.dynFields.equals(other.getDynFields())
+        return this.getFields().equals(other.getFields())
+                && this.getDynFields().equals(other.getDynFields())
                 && this.writeKey.equals(other.writeKey)
                 && this.dataSet.equals(other.dataSet)
                 && this.sampleRate == other.sampleRate;
@@ -137,19 +147,43 @@ public final class Builder {
     }
 
     /**
-     * Returns dynamic fields for this Builder.
+     * Returns an unmodifiable snapshot of the dynamic fields for this Builder.
      * @return dynamic fields for this Builder
      */
     public Map<String, Callable> getDynFields() {
-        return this.dynFields;
+        return this.dynFields.snapshot();
     }
 
     /**
-     * Returns fields for this Builder.
+     * Returns an unmodifiable snapshot of the fields for this Builder, including inherited fields.
      * @return fields for this Builder
      */
     public Map<String, Object> getFields() {
-        return this.fields;
+        Map<String, Object> own = this.fields.snapshot();
+        if (this.inherited == null || this.inherited.isEmpty()) {
+            return own;
+        }
+        HashMap<String, Object> merged = new HashMap<>(own);
+        this.inherited.putAbsentInto(merged);
+        return Collections.unmodifiableMap(merged);
+    }
+
+    /**
+     * Returns this Builder's fields as a frozen layer on top of the fields it inherited.  The layer is reused
+     * until this Builder's fields change, so Events created in between share it.
+     * @return this Builder's fields as a frozen layer
+     */
+    FieldLayer getFieldLayer() {
+        Map<String, Object> own = this.fields.snapshot();
+        if (own.isEmpty()) {
+            return this.inherited;
+        }
+        FieldLayer layer = this.fieldLayer;
+        if (layer == null || layer.getFields() != own || layer.getParent() != this.inherited) {
+            layer = new FieldLayer(own, this.inherited);
+            this.fieldLayer = layer;
+        }
+        return layer;
     }
 
     /**
@@ -160,6 +194,14 @@ public final class Builder {
         return this.libhoney;
     }
 
+    /**
+     * Returns the priority in the request queue of Events created by this Builder.
+     * @return the priority in the request queue of Events created by this Builder
+     */
+    public Priority getPriority() {
+        return this.priority;
+    }
+
     /**
      * Returns the sample rate for this Builder.
      * @return the sample rate for this Builder
@@ -168,6 +210,14 @@ public final class Builder {
         return this.sampleRate;
     }
 
+    /**
+     * Returns the sampler that decides which events are sent, and at what sample rate.
+     * @return the sampler that decides which events are sent, and at what sample rate
+     */
+    public Sampler getSampler() {
+        return this.sampler;
+    }
+
     /**
      * Returns the write key for this Builder.
      * @return the write key for this Builder
@@ -182,7 +232,7 @@ public final class Builder {
      */
     @Override
     public int hashCode() {
-        return Objects.hash(this.fields, this.dynFields, this.writeKey, this.dataSet, this.sampleRate);
+        return Objects.hash(this.getFields(), this.getDynFields(), this.writeKey, this.dataSet, this.sampleRate);
     }
 
     /**
@@ -190,7 +240,7 @@ public final class Builder {
      * @return true if this Builder contains no fields
      */
     public boolean isEmpty() {
-        return this.fields.isEmpty();
+        return this.fields.snapshot().isEmpty() && (this.inherited == null || this.inherited.isEmpty());
     }
 
     /**
@@ -199,20 +249,43 @@ public final class Builder {
      */
     protected void linkLibHoney(LibHoney libhoney) {
         this.libhoney = libhoney;
-        this.fields.putAll(libhoney.getFields());
-        this.dynFields.putAll(libhoney.getDynFields());
+        this.inherited = libhoney.getFieldLayer();
+        this.dynFields.putAll(libhoney.getDynFieldStore());
         this.writeKey = libhoney.getWriteKey();
         this.dataSet = libhoney.getDataSet();
         this.sampleRate = libhoney.getSampleRate();
+        this.sampler = libhoney.getSampler();
     }
 
     /**
-     * Creates a Event from this Builder's fields.
+     * Creates a Event from this Builder's fields.  If the sampler can decide up front that the Event will be
+     * dropped, a DroppedEvent is returned instead, without executing dynamic fields.  If eventPoolSize is set, an
+     * Event recycled after its request completed may be reused, so Events must not be used after they are sent.
      *
      * @return a Event from this Builder's fields
      */
     public Event newEvent() {
-        return new Event(this.libhoney, this);
+        int sampleRate = this.sampler == null ? -1 : this.sampler.sampleBeforeBuild(this);
+        if (sampleRate == 0) {
+            return new DroppedEvent(this.libhoney, this);
+        }
+        EventPool pool = this.libhoney.getTransmission().getEventPool();
+        Event event = pool != null ? pool.acquire(this.libhoney, this) : new Event(this.libhoney, this);
+        if (sampleRate > 0) {
+            event.setSampled(sampleRate);
+        }
+        return event;
+    }
+
+    /**
+     * Compiles an EventTemplate from a snapshot of this Builder, with a slot for each of the specified field names
+     * and each dynamic field.  Every other field is fixed and serialized once, when the template is compiled.
+     *
+     * @param slotNames names of the fields whose values are set on each Event
+     * @return an EventTemplate compiled from this Builder
+     */
+    public EventTemplate newTemplate(String... slotNames) {
+        return new EventTemplate(this, slotNames);
     }
 
     /**
@@ -243,6 +316,14 @@ public final class Builder {
         this.dataSet = dataSet;
     }
 
+    /**
+     * Sets the priority in the request queue of Events created by this Builder
+     * @param priority priority
+     */
+    public void setPriority(Priority priority) {
+        this.priority = priority;
+    }
+
     /**
      * Sets the sample rate
      * @param sampleRate sample rate
@@ -251,6 +332,14 @@ public final class Builder {
         this.sampleRate = sampleRate;
     }
 
+    /**
+     * Sets the sampler that decides which events are sent, and at what sample rate
+     * @param sampler sampler
+     */
+    public void setSampler(Sampler sampler) {
+        this.sampler = sampler;
+    }
+
     /**
      * Sets the write key
      * @param writeKey write key
@@ -266,8 +355,8 @@ public final class Builder {
     public JSONObject toJson() {
         JSONObject json = new JSONObject();
         try {
-            json.put("fields", this.fields);
-            json.put("dynFields", this.dynFields);
+            json.put("fields", this.getFields());
+            json.put("dynFields", this.getDynFields());
             json.put("writeKey", this.writeKey);
             json.put("dataSet", this.dataSet);
             json.put("sampleRate", this.sampleRate);
@@ -0,0 +1,85 @@
+package io.honeycomb;
+
+import java.time.Clock;
+import java.time.Instant;
+import java.time.ZoneId;
+import java.time.ZoneOffset;
+
+/**
+ * A coarse Clock that reads the system time once per tick on a background thread, so that reading it is a single
+ * volatile read.  Event timestamps from a CachedClock may lag the system time by up to one resolution.
+ *
+ * Pass a CachedClock to LibHoney.Builder.clock() and close it once LibHoney is closed.
+ */
+public final class CachedClock extends Clock implements AutoCloseable {
+    /**
+     * The latest reading of the system time, shared with every zone view of this clock.
+     */
+    private static final class Tick {
+        private volatile long millis = System.currentTimeMillis();
+    }
+
+    private final Tick tick;
+    private final Thread ticker;
+    private final ZoneId zone;
+
+    /**
+     * Constructs a CachedClock in UTC and starts its background thread.
+     *
+     * @param resolution number of ms between readings of the system time
+     */
+    public CachedClock(int resolution) {
+        if (resolution < 1) {
+            throw new IllegalArgumentException("resolution must be at least 1 ms");
+        }
+        Tick tick = new Tick();
+        this.tick = tick;
+        this.zone = ZoneOffset.UTC;
+        this.ticker = new Thread(() -> {
+            try {
+                while (!Thread.currentThread().isInterrupted()) {
+                    Thread.sleep(resolution);
+                    tick.millis = System.currentTimeMillis();
+                }
+            } catch (InterruptedException e) {
+                // Closed
+            }
+        }, "libhoney-clock");
+        this.ticker.setDaemon(true);
+        this.ticker.start();
+    }
+
+    private CachedClock(CachedClock clock, ZoneId zone) {
+        this.tick = clock.tick;
+        this.ticker = clock.ticker;
+        this.zone = zone;
+    }
+
+    @Override
+    public long millis() {
+        return this.tick.millis;
+    }
+
+    @Override
+    public Instant instant() {
+        return Instant.ofEpochMilli(this.tick.millis);
+    }
+
+    @Override
+    public ZoneId getZone() {
+        return this.zone;
+    }
+
+    @Override
+    public Clock withZone(ZoneId zone) {
+        return zone.equals(this.zone) ? this : new CachedClock(this, zone);
+    }
+
+    /**
+     * Stops the background thread.  The clock keeps returning the last time it read.
+     */
+    @Override
+    public void close() {
+        this.ticker.interrupt();
+    }
+}
@@ -0,0 +1,114 @@
+package io.honeycomb;
+
+/**
+ * Limits the number of requests in flight to honeycomb.io, adapting the limit to how the server responds.
+ *
+ * The limit follows additive-increase/multiplicative-decrease: each request completed normally raises it by
+ * 1/limit, so it grows by about one per round trip, while a throttled or failed request halves it.  A request whose
+ * latency is well above the lowest recently observed latency is taken as an early sign of congestion and trims the
+ * limit more gently.  Only requests started after the last decrease can decrease it again, so a burst of failures
+ * from requests already in flight counts once.
+ */
+final class ConcurrencyLimiter {
+    private static final double BACKOFF_RATIO = 0.5;
+    private static final double SLOW_RATIO = 0.9;
+    private static final double LATENCY_TOLERANCE = 2.0;
+    private static final long MIN_SLOW_LATENCY = 5000000; // ns; faster requests are never taken as congestion
+    private static final int BASELINE_DRIFT = 256; // baseline latency rises by 1/BASELINE_DRIFT of the difference
+
+    /**
+     * All state is guarded by this limiter's monitor; senders wait on it while the limit is reached.  The limit is
+     * also volatile so that it can be read as a metric without locking.
+     */
+    private final int maxLimit;
+    private volatile double limit;
+    private int inFlight;
+    private long lastDecrease;
+    private long baselineLatency = Long.MAX_VALUE;
+
+    /**
+     * Constructs a ConcurrencyLimiter, starting at the maximum limit.
+     *
+     * @param maxLimit maximum number of requests in flight at once
+     */
+    ConcurrencyLimiter(int maxLimit) {
+        this.maxLimit = Math.max(1, maxLimit);
+        this.limit = this.maxLimit;
+        this.lastDecrease = System.nanoTime();
+    }
+
+    /**
+     * Waits until a request may be started, then counts it as in flight.  If the calling thread is interrupted
+     * the request is started without waiting, so closing is not held up.
+     *
+     * @return the start time of the request in ns, to be passed to release
+     */
+    synchronized long acquire() {
+        try {
+            while (this.inFlight >= (int) this.limit) {
+                this.wait();
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        this.inFlight++;
+        return System.nanoTime();
+    }
+
+    /**
+     * Counts a request as completed and adjusts the limit based on its outcome.
+     *
+     * @param start start time of the request in ns, as returned by acquire
+     * @param overloaded true if the request was throttled, failed with a server error, or could not be sent
+     */
+    synchronized void release(long start, boolean overloaded) {
+        this.inFlight--;
+        long latency = System.nanoTime() - start;
+        if (overloaded) {
+            this.decrease(start, BACKOFF_RATIO);
+        } else if (this.isSlow(latency)) {
+            this.decrease(start, SLOW_RATIO);
+        } else {
+            this.limit = Math.min(this.maxLimit, this.limit + 1 / this.limit);
+        }
+        if (!overloaded) {
+            this.updateBaseline(latency);
+        }
+        this.notifyAll();
+    }
+
+    private boolean isSlow(long latency) {
+        return latency > MIN_SLOW_LATENCY && latency > this.baselineLatency * LATENCY_TOLERANCE;
+    }
+
+    private void decrease(long start, double ratio) {
+        if (start - this.lastDecrease >= 0) {
+            this.limit = Math.max(1, this.limit * ratio);
+            this.lastDecrease = System.nanoTime();
+        }
+    }
+
+    private void updateBaseline(long latency) {
+        if (latency < this.baselineLatency) {
+            this.baselineLatency = latency;
+        } else {
+            this.baselineLatency += (latency - this.baselineLatency) / BASELINE_DRIFT;
+        }
+    }
+
+    /**
+     * Returns the current maximum number of requests in flight at once.
+     * @return the current maximum number of requests in flight at once
+     */
+    int getLimit() {
+        return (int) this.limit;
+    }
+
+    /**
+     * Returns the number of requests in flight.
+     * @return the number of requests in flight
+     */
+    synchronized int getInFlight() {
+        return this.inFlight;
+    }
+}
@@ -1,19 +1,48 @@
 package io.honeycomb;
 
+import java.time.Clock;
+
 abstract class Constants {
 
     public static final String LIBHONEY_VERSION = "0.0.1";
 
+    public static final boolean DEFAULT_ADAPTIVE_CONCURRENCY = false;
     public static final String DEFAULT_API_HOST = "https://api.honeycomb.io";
+    public static final boolean DEFAULT_ASYNC_TRANSPORT = false;
+    public static final boolean DEFAULT_BATCHING = false;
+    public static final int DEFAULT_BATCH_TIMEOUT = 100; // ms
     public static final boolean DEFAULT_BLOCK_ON_RESPONSE = false;
     public static final boolean DEFAULT_BLOCK_ON_SEND = false;
+    public static final Clock DEFAULT_CLOCK = Clock.systemUTC();
     public static final int DEFAULT_CLOSE_TIMEOUT = 10; // seconds
+    public static final int DEFAULT_COMPRESSION_LEVEL = 0; // 0 disables compression
+    public static final int DEFAULT_COMPRESSION_MIN_SIZE = 1024; // bytes
+    public static final int DEFAULT_CONNECT_TIMEOUT = 10000; // ms
     public static final String DEFAULT_DATA_SET = "";
+    public static final int DEFAULT_EVENT_POOL_SIZE = 0; // 0 disables recycling of Events
+    public static final int DEFAULT_IDLE_CONNECTION_TIMEOUT = 30000; // ms
+    public static final int DEFAULT_IO_THREADS = 2;
+    public static final boolean DEFAULT_LANE_ROUTING = false;
+    public static final boolean DEFAULT_LOCK_FREE_REQUEST_QUEUE = false;
+    public static final int DEFAULT_MAX_BATCH_BYTES = 5000000;
+    public static final int DEFAULT_MAX_BATCH_SIZE = 50;
     public static final int DEFAULT_MAX_CONCURRENT_BRANCHES = 10;
+    public static final int DEFAULT_MAX_CONNECTIONS = 0; // 0 sizes the pool from maxConcurrentBranches
+    public static final int DEFAULT_MAX_RETRIES = 0;
+    public static final boolean DEFAULT_PRIORITIZATION = false;
     public static final int DEFAULT_REQUEST_QUEUE_LENGTH = 1000;
     public static final int DEFAULT_RESPONSE_QUEUE_LENGTH = 1000;
+    public static final int DEFAULT_RETRY_BASE_DELAY = 100; // ms
+    public static final double DEFAULT_RETRY_BUDGET = 0.1; // retries earned per request
+    public static final int DEFAULT_RETRY_MAX_DELAY = 10000; // ms
     public static final int DEFAULT_SAMPLE_RATE = 1;
+    public static final Sampler DEFAULT_SAMPLER = new RandomSampler();
+    public static final int DEFAULT_SOCKET_TIMEOUT = 30000; // ms
+    public static final long DEFAULT_SPOOL_MAX_BYTES = 100L * 1024 * 1024;
+    public static final int DEFAULT_SPOOL_REPLAY_RATE = 1000; // events per second
+    public static final int DEFAULT_SPOOL_SEGMENT_BYTES = 8 * 1024 * 1024;
     public static final String DEFAULT_USER_AGENT = "libhoney-java/" + Constants.LIBHONEY_VERSION;
+    public static final boolean DEFAULT_VIRTUAL_THREADS = false;
     public static final String DEFAULT_WRITE_KEY = "";
 
     private Constants() {
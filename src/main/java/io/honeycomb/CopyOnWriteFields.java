@@ -0,0 +1,79 @@
+package io.honeycomb;
+
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Holds field mappings as an immutable snapshot that is replaced, never modified, when a mapping is added.
+ *
+ * Readers take the current snapshot without locking and always see a consistent set of mappings, while writers
+ * copy the snapshot under a lock.  A snapshot can be shared with another CopyOnWriteFields without copying,
+ * so deriving a Builder from LibHoney or from another Builder costs nothing until one of them is modified.
+ *
+ * @param <V> type of the mapped values
+ */
+final class CopyOnWriteFields<V> {
+    private volatile Map<String, V> snapshot;
+
+    /**
+     * Constructs an empty CopyOnWriteFields.
+     */
+    CopyOnWriteFields() {
+        this.snapshot = Collections.emptyMap();
+    }
+
+    /**
+     * Constructs a CopyOnWriteFields sharing the current snapshot of another.
+     * @param other the CopyOnWriteFields whose mappings are shared
+     */
+    CopyOnWriteFields(CopyOnWriteFields<V> other) {
+        this.snapshot = other.snapshot;
+    }
+
+    /**
+     * Returns an unmodifiable snapshot of the current mappings.
+     * @return an unmodifiable snapshot of the current mappings
+     */
+    Map<String, V> snapshot() {
+        return this.snapshot;
+    }
+
+    /**
+     * Associates the specified value with the specified key.
+     *
+     * @param key key with which the specified value is to be associated
+     * @param value value to be associated with the specified key
+     */
+    synchronized void put(String key, V value) {
+        HashMap<String, V> copy = new HashMap<>(this.snapshot);
+        copy.put(key, value);
+        this.snapshot = Collections.unmodifiableMap(copy);
+    }
+
+    /**
+     * Copies all of the mappings from the specified map.
+     * @param fields mappings to be added
+     */
+    synchronized void putAll(Map<String, ? extends V> fields) {
+        if (fields.isEmpty()) {
+            return;
+        }
+        HashMap<String, V> copy = new HashMap<>(this.snapshot);
+        copy.putAll(fields);
+        this.snapshot = Collections.unmodifiableMap(copy);
+    }
+
+    /**
+     * Copies all of the mappings of another CopyOnWriteFields, sharing its snapshot if this one is empty.
+     * @param other the CopyOnWriteFields whose mappings are to be added
+     */
+    synchronized void putAll(CopyOnWriteFields<V> other) {
+        Map<String, V> fields = other.snapshot;
+        if (this.snapshot.isEmpty()) {
+            this.snapshot = fields;
+        } else {
+            this.putAll(fields);
+        }
+    }
+}
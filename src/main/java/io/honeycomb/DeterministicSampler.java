@@ -0,0 +1,97 @@
+package io.honeycomb;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+
+/**
+ * Keeps one in every sampleRate Events based on a hash of the value of a field, such as a trace or request ID, so
+ * that every Event with the same value is either kept or dropped together.
+ *
+ * The value is hashed with SHA-1 and kept if the first four bytes of the hash are at most 2^32 / sampleRate, the
+ * same decision made by the Honeycomb Beelines.  Events without the field are sampled at random.  If the Builder
+ * creating an Event already has the field, and no dynamic field of the same name that would replace it, the
+ * decision is made from its value before the Event is created.
+ */
+public final class DeterministicSampler implements Sampler {
+    private static final ThreadLocal<MessageDigest> SHA1 = ThreadLocal.withInitial(() -> {
+        try {
+            return MessageDigest.getInstance("SHA-1");
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    });
+
+    private final String field;
+    private final int sampleRate;
+    private final long upperBound;
+    private final RandomSource random;
+
+    /**
+     * Constructs a DeterministicSampler sampling Events without the field using RandomSource.THREAD_LOCAL.
+     *
+     * @param field name of the field whose value is hashed
+     * @param sampleRate one in this many Events is kept
+     */
+    public DeterministicSampler(String field, int sampleRate) {
+        this(field, sampleRate, RandomSource.THREAD_LOCAL);
+    }
+
+    /**
+     * Constructs a DeterministicSampler.
+     *
+     * @param field name of the field whose value is hashed
+     * @param sampleRate one in this many Events is kept
+     * @param random source of the random numbers used to sample Events without the field
+     */
+    public DeterministicSampler(String field, int sampleRate, RandomSource random) {
+        if (sampleRate < 1) {
+            throw new IllegalArgumentException("sample rate must be at least 1");
+        }
+        this.field = field;
+        this.sampleRate = sampleRate;
+        this.upperBound = 0xffffffffL / sampleRate;
+        this.random = random;
+    }
+
+    @Override
+    public int sample(Event event) {
+        if (this.sampleRate == 1) {
+            return 1;
+        }
+        Object value = event.getField(this.field);
+        if (value == null) {
+            return this.random.nextInt(this.sampleRate) == 0 ? this.sampleRate : 0;
+        }
+        return this.shouldKeep(value.toString()) ? this.sampleRate : 0;
+    }
+
+    @Override
+    public int sampleBeforeBuild(Builder builder) {
+        if (this.sampleRate == 1) {
+            return 1;
+        }
+        FieldLayer fields = builder.getFieldLayer();
+        if (fields == null || builder.getDynFields().containsKey(this.field)) {
+            return -1;
+        }
+        Object value = fields.get(this.field);
+        if (value == null) {
+            return -1;
+        }
+        return this.shouldKeep(value.toString()) ? this.sampleRate : 0;
+    }
+
+    /**
+     * Returns true if Events with the specified value are kept.
+     *
+     * @param value the value of the field
+     * @return true if Events with the value are kept
+     */
+    boolean shouldKeep(String value) {
+        byte[] hash = SHA1.get().digest(value.getBytes(StandardCharsets.UTF_8));
+        long prefix = ((hash[0] & 0xffL) << 24) | ((hash[1] & 0xffL) << 16) | ((hash[2] & 0xffL) << 8)
+                | (hash[3] & 0xffL);
+        return prefix <= this.upperBound;
+    }
+}
@@ -0,0 +1,76 @@
+package io.honeycomb;
+
+import java.util.Map;
+
+/**
+ * An Event that was sampled out before it was created.  It holds no fields and ignores any that are added, and
+ * sending it only delivers a dropped response.
+ */
+final class DroppedEvent extends Event {
+    /**
+     * Constructs a DroppedEvent with the metadata of a Builder.
+     *
+     * @param libhoney LibHoney
+     * @param builder builder from which this Event was to be created
+     */
+    DroppedEvent(LibHoney libhoney, Builder builder) {
+        super(libhoney.getTransmission(), builder, libhoney.getClock().millis());
+    }
+
+    @Override
+    public void add(Map<String, Object> fields) {
+    }
+
+    @Override
+    public void addField(String key, Object value) {
+    }
+
+    @Override
+    public void addField(String key, int value) {
+    }
+
+    @Override
+    public void addField(String key, long value) {
+    }
+
+    @Override
+    public void addField(String key, float value) {
+    }
+
+    @Override
+    public void addField(String key, double value) {
+    }
+
+    @Override
+    public void addField(String key, boolean value) {
+    }
+
+    @Override
+    public void addField(FieldKey key, Object value) {
+    }
+
+    @Override
+    public void addField(FieldKey key, int value) {
+    }
+
+    @Override
+    public void addField(FieldKey key, long value) {
+    }
+
+    @Override
+    public void addField(FieldKey key, float value) {
+    }
+
+    @Override
+    public void addField(FieldKey key, double value) {
+    }
+
+    @Override
+    public void addField(FieldKey key, boolean value) {
+    }
+
+    @Override
+    public boolean shouldSendEvent() {
+        return false;
+    }
+}
@@ -0,0 +1,102 @@
+package io.honeycomb;
+
+import java.time.Clock;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Samples each key at a rate that depends on how frequent it is, keeping rare keys such as errors while sampling
+ * frequent keys harder, so that the average sample rate approaches a goal.
+ *
+ * Each key is allotted a share of the events to keep in proportion to the logarithm of its count, and any share a
+ * rare key leaves unused is passed on to more frequent keys.  Keys seen once per window are always kept.
+ */
+public final class DynamicSampler extends WindowedSampler {
+    private final int goalSampleRate;
+
+    /**
+     * Constructs a DynamicSampler drawing from RandomSource.THREAD_LOCAL.
+     *
+     * @param goalSampleRate average sample rate to aim for
+     * @param windowMillis length of the window in ms from which rates are computed
+     * @param keyFields names of the fields whose values make up the key of an Event
+     */
+    public DynamicSampler(int goalSampleRate, long windowMillis, String... keyFields) {
+        this(goalSampleRate, windowMillis, RandomSource.THREAD_LOCAL, keyFields);
+    }
+
+    /**
+     * Constructs a DynamicSampler.
+     *
+     * @param goalSampleRate average sample rate to aim for
+     * @param windowMillis length of the window in ms from which rates are computed
+     * @param random source of the random numbers used to make sampling decisions
+     * @param keyFields names of the fields whose values make up the key of an Event
+     */
+    public DynamicSampler(int goalSampleRate, long windowMillis, RandomSource random, String... keyFields) {
+        this(goalSampleRate, windowMillis, random, Constants.DEFAULT_CLOCK, keyFields);
+    }
+
+    /**
+     * Constructs a DynamicSampler whose windows are timed by the specified clock, such as the one passed to
+     * LibHoney.Builder.clock().
+     *
+     * @param goalSampleRate average sample rate to aim for
+     * @param windowMillis length of the window in ms from which rates are computed
+     * @param random source of the random numbers used to make sampling decisions
+     * @param clock clock that times the windows
+     * @param keyFields names of the fields whose values make up the key of an Event
+     */
+    public DynamicSampler(int goalSampleRate, long windowMillis, RandomSource random, Clock clock, String... keyFields) {
+        super(windowMillis, random, clock, keyFields);
+        if (goalSampleRate < 1) {
+            throw new IllegalArgumentException("goal sample rate must be at least 1");
+        }
+        this.goalSampleRate = goalSampleRate;
+    }
+
+    @Override
+    Map<String, Integer> computeRates(Map<String, Long> counts, long windowMillis) {
+        long total = 0;
+        double logSum = 0;
+        for (long count : counts.values()) {
+            total += count;
+            logSum += Math.log10(count);
+        }
+
+        Map<String, Integer> rates = new HashMap<>();
+        if (logSum == 0) {
+            // Every key was seen once, so every key is kept
+            for (String key : counts.keySet()) {
+                rates.put(key, 1);
+            }
+            return rates;
+        }
+        double goalRatio = total / (double) this.goalSampleRate / logSum;
+        List<Map.Entry<String, Long>> entries = new ArrayList<>(counts.entrySet());
+        entries.sort(Map.Entry.comparingByValue());
+
+        double extra = 0;
+        int remaining = entries.size();
+        for (Map.Entry<String, Long> entry : entries) {
+            long count = entry.getValue();
+            double goal = Math.max(1, Math.log10(count) * goalRatio);
+            double share = extra / remaining;
+            goal += share;
+            extra -= share;
+            remaining--;
+
+            if (count <= goal) {
+                rates.put(entry.getKey(), 1);
+                extra += goal - count;
+            } else {
+                int rate = (int) Math.ceil(count / goal);
+                rates.put(entry.getKey(), rate);
+                extra += goal - count / (double) rate;
+            }
+        }
+        return rates;
+    }
+}
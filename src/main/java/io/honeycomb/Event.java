@@ -5,11 +5,11 @@ import org.apache.commons.logging.LogFactory;
 import org.json.JSONException;
 import org.json.JSONObject;
 
-import java.time.ZonedDateTime;
-import java.time.format.DateTimeFormatter;
+import java.nio.charset.StandardCharsets;
+import java.time.format.DateTimeParseException;
 import java.util.HashMap;
+import java.util.Iterator;
 import java.util.Map;
-import java.util.Random;
 import java.util.concurrent.Callable;
 
 /**
@@ -19,21 +19,34 @@ import java.util.concurrent.Callable;
 public class Event {
     /**
      * Builder contains all the fields and dynamic fields.
+     * Fields added to this Event, including dynamic fields, are kept in a small overlay on top of the frozen
+     * layer of fields inherited from the Builder, which is not copied unless getFields() is called.
+     * Fields added with an int, long, float, double or boolean value, or with a FieldKey, are kept in primitives,
+     * which is only created when the first such field is added and never holds a key that is also in fields.
      * Created at, write key, data set, and sample rate are all necessary to create a Event.
      * Values are typically passed in by Builder.
      */
-    private HashMap<String, Object> fields;
+    private final HashMap<String, Object> fields;
+    private PrimitiveFields primitives;
+    private FieldLayer inherited;
+    private byte[] encodedFields;
     private final Transmission transmission;
+    private Sampler sampler;
+    private int sampledRate;
+    private boolean pooled;
 
-    // Metadata
-    private final String createdAt;
+    // Metadata; createdAt is in ms since the epoch and only formatted when it is written
+    private long createdAt;
     private String dataSet;
     private String metadata;
     private int sampleRate;
+    private Priority priority;
     private String writeKey;
+    private long enqueuedAt;
+    private int retries;
 
     // Logging
-    private final Log log = LogFactory.getLog(Event.class);
+    private static final Log log = LogFactory.getLog(Event.class);
 
     /**
      * Constructs a new Event with a default metadata string inherited from LibHoney.
@@ -53,13 +66,29 @@ public class Event {
      * @param metadata metadata for debugging purposes
      */
     public Event(LibHoney libhoney, Builder builder, String metadata) {
-        this.fields = new HashMap(builder.getFields());
-        this.createdAt = ZonedDateTime.now().format(DateTimeFormatter.ISO_INSTANT);
+        this.fields = new HashMap<>();
+        this.transmission = libhoney.getTransmission();
+        this.init(libhoney, builder, metadata);
+    }
+
+    /**
+     * Initializes this Event from a Builder, executing all dynamic fields and storing them as fields.  Called by
+     * the constructor, and by EventPool when a recycled Event is reused.
+     *
+     * @param libhoney LibHoney
+     * @param builder builder from which this Event is built
+     * @param metadata metadata for debugging purposes
+     */
+    void init(LibHoney libhoney, Builder builder, String metadata) {
+        this.inherited = builder.getFieldLayer();
+        this.createdAt = libhoney.getClock().millis();
         this.writeKey = builder.getWriteKey();
         this.dataSet = builder.getDataSet();
         this.sampleRate = builder.getSampleRate();
+        this.priority = builder.getPriority();
         this.metadata = metadata;
-        this.transmission = libhoney.getTransmission();
+        this.sampler = builder.getSampler();
+        this.sampledRate = 0;
 
         // Execute all dynamic field functions
         for (Object o : builder.getDynFields().entrySet()) {
@@ -72,12 +101,80 @@ public class Event {
         }
     }
 
+    /**
+     * Constructs an Event with the metadata and sampler of a Builder but none of its fields, without executing any
+     * dynamic fields.  Used for Events that have already been sampled out, and for Events created from an
+     * EventTemplate, which holds the fields itself.
+     *
+     * @param transmission Transmission with which this Event is sent
+     * @param builder builder from which this Event is created
+     * @param createdAt time when this Event was created, in ms since the epoch
+     */
+    Event(Transmission transmission, Builder builder, long createdAt) {
+        this.fields = new HashMap<>();
+        this.createdAt = createdAt;
+        this.writeKey = builder.getWriteKey();
+        this.dataSet = builder.getDataSet();
+        this.sampleRate = builder.getSampleRate();
+        this.priority = builder.getPriority();
+        this.metadata = "";
+        this.transmission = transmission;
+        this.sampler = builder.getSampler();
+    }
+
+    /**
+     * Constructs an Event restored from the spool, whose fields are already encoded as a JSON object.
+     *
+     * @param transmission Transmission with which this Event is sent
+     * @param writeKey write key
+     * @param dataSet data set
+     * @param sampleRate sample rate
+     * @param createdAt time when the original Event was created
+     * @param metadata metadata for debugging purposes
+     * @param encodedFields fields encoded as a UTF-8 JSON object
+     */
+    Event(Transmission transmission, String writeKey, String dataSet, int sampleRate, String createdAt,
+          String metadata, byte[] encodedFields) {
+        this.fields = new HashMap<>();
+        this.encodedFields = encodedFields;
+        this.createdAt = parseCreatedAt(createdAt);
+        this.writeKey = writeKey;
+        this.dataSet = dataSet;
+        this.sampleRate = sampleRate;
+        this.priority = Priority.NORMAL;
+        this.metadata = metadata;
+        this.transmission = transmission;
+        this.sampler = null;
+    }
+
+    /**
+     * Clears this Event before it is recycled, keeping the capacity of its field map.
+     */
+    void clear() {
+        this.fields.clear();
+        if (this.primitives != null) {
+            this.primitives.clear();
+        }
+        this.inherited = null;
+        this.encodedFields = null;
+        this.sampler = null;
+        this.sampledRate = 0;
+        this.metadata = null;
+        this.enqueuedAt = 0;
+        this.retries = 0;
+    }
+
     /**
      * Copies all of the field mappings from the specified map to this Builder.
      * @param fields field mappings to be added to this Builder
      */
     public void add(Map<String, Object> fields) {
         this.fields.putAll(fields);
+        if (this.primitives != null && !this.primitives.isEmpty()) {
+            for (String key : fields.keySet()) {
+                this.primitives.remove(key);
+            }
+        }
     }
 
     /**
@@ -88,13 +185,179 @@ public class Event {
      */
     public void addField(String key, Object value) {
         this.fields.put(key, value);
+        if (this.primitives != null) {
+            this.primitives.remove(key);
+        }
+    }
+
+    /**
+     * Associates the specified int value with the specified key in the fields map, without boxing it.
+     *
+     * @param key key with which the specified value is to be associated
+     * @param value value to be associated with the specified key
+     */
+    public void addField(String key, int value) {
+        this.putField(key, null, PrimitiveFields.INT, value, null);
+    }
+
+    /**
+     * Associates the specified long value with the specified key in the fields map, without boxing it.
+     *
+     * @param key key with which the specified value is to be associated
+     * @param value value to be associated with the specified key
+     */
+    public void addField(String key, long value) {
+        this.putField(key, null, PrimitiveFields.LONG, value, null);
+    }
+
+    /**
+     * Associates the specified char value with the specified key in the fields map, as a String of one character
+     * rather than as its code.
+     *
+     * @param key key with which the specified value is to be associated
+     * @param value value to be associated with the specified key
+     */
+    public void addField(String key, char value) {
+        this.addField(key, (Object) String.valueOf(value));
+    }
+
+    /**
+     * Associates the specified float value with the specified key in the fields map, without boxing it or widening
+     * it to a double.
+     *
+     * @param key key with which the specified value is to be associated
+     * @param value value to be associated with the specified key
+     */
+    public void addField(String key, float value) {
+        this.putField(key, null, PrimitiveFields.FLOAT, Float.floatToRawIntBits(value), null);
+    }
+
+    /**
+     * Associates the specified double value with the specified key in the fields map, without boxing it.
+     *
+     * @param key key with which the specified value is to be associated
+     * @param value value to be associated with the specified key
+     */
+    public void addField(String key, double value) {
+        this.putField(key, null, PrimitiveFields.DOUBLE, Double.doubleToRawLongBits(value), null);
+    }
+
+    /**
+     * Associates the specified boolean value with the specified key in the fields map, without boxing it.
+     *
+     * @param key key with which the specified value is to be associated
+     * @param value value to be associated with the specified key
+     */
+    public void addField(String key, boolean value) {
+        this.putField(key, null, PrimitiveFields.BOOLEAN, value ? 1 : 0, null);
+    }
+
+    /**
+     * Associates the specified value with the field name of the specified FieldKey in the fields map, keeping the
+     * FieldKey's encoding so that the key is written as is when this Event is serialized.
+     *
+     * @param key FieldKey with which the specified value is to be associated
+     * @param value value to be associated with the specified key
+     */
+    public void addField(FieldKey key, Object value) {
+        this.putField(key.getName(), key.getEncoded(), PrimitiveFields.OBJECT, 0, value);
+    }
+
+    /**
+     * Associates the specified value with the field name of the specified FieldKey in the fields map, without boxing
+     * it or encoding the key.
+     *
+     * @param key FieldKey with which the specified value is to be associated
+     * @param value value to be associated with the specified key
+     */
+    public void addField(FieldKey key, int value) {
+        this.putField(key.getName(), key.getEncoded(), PrimitiveFields.INT, value, null);
+    }
+
+    /**
+     * Associates the specified value with the field name of the specified FieldKey in the fields map, without boxing
+     * it or encoding the key.
+     *
+     * @param key FieldKey with which the specified value is to be associated
+     * @param value value to be associated with the specified key
+     */
+    public void addField(FieldKey key, long value) {
+        this.putField(key.getName(), key.getEncoded(), PrimitiveFields.LONG, value, null);
+    }
+
+    /**
+     * Associates the specified value with the field name of the specified FieldKey in the fields map, as a String of
+     * one character.
+     *
+     * @param key FieldKey with which the specified value is to be associated
+     * @param value value to be associated with the specified key
+     */
+    public void addField(FieldKey key, char value) {
+        this.addField(key, (Object) String.valueOf(value));
+    }
+
+    /**
+     * Associates the specified value with the field name of the specified FieldKey in the fields map, without boxing
+     * it or encoding the key.
+     *
+     * @param key FieldKey with which the specified value is to be associated
+     * @param value value to be associated with the specified key
+     */
+    public void addField(FieldKey key, float value) {
+        this.putField(key.getName(), key.getEncoded(), PrimitiveFields.FLOAT, Float.floatToRawIntBits(value), null);
+    }
+
+    /**
+     * Associates the specified value with the field name of the specified FieldKey in the fields map, without boxing
+     * it or encoding the key.
+     *
+     * @param key FieldKey with which the specified value is to be associated
+     * @param value value to be associated with the specified key
+     */
+    public void addField(FieldKey key, double value) {
+        this.putField(key.getName(), key.getEncoded(), PrimitiveFields.DOUBLE, Double.doubleToRawLongBits(value),
+                null);
+    }
+
+    /**
+     * Associates the specified value with the field name of the specified FieldKey in the fields map, without boxing
+     * it or encoding the key.
+     *
+     * @param key FieldKey with which the specified value is to be associated
+     * @param value value to be associated with the specified key
+     */
+    public void addField(FieldKey key, boolean value) {
+        this.putField(key.getName(), key.getEncoded(), PrimitiveFields.BOOLEAN, value ? 1 : 0, null);
+    }
+
+    /**
+     * Associates a value with a key in primitives, replacing any value for the key in fields.  Every addField method
+     * except addField(String, Object) ends here, so that TemplateEvent can fill its slots by overriding this method.
+     *
+     * @param key key with which the specified value is to be associated
+     * @param encodedKey the key encoded by a FieldKey, or null
+     * @param type the type of the value, as in PrimitiveFields
+     * @param bits the bits of an unboxed value, or 0
+     * @param value the value if its type is OBJECT, or null
+     */
+    void putField(String key, byte[] encodedKey, byte type, long bits, Object value) {
+        this.primitives().put(key, encodedKey, type, bits, value);
+        this.fields.remove(key);
     }
 
     /**
-     * Returns the time when this Event was created.
+     * Returns the time when this Event was created, as an ISO-8601 timestamp.
      * @return the time when this Event was created
      */
     public String getCreatedAt() {
+        return IsoTimestamp.format(this.createdAt);
+    }
+
+    /**
+     * Returns the time when this Event was created, in ms since the epoch.
+     * @return the time when this Event was created, in ms since the epoch
+     */
+    long getCreatedAtMillis() {
         return this.createdAt;
     }
 
@@ -106,11 +369,50 @@ public class Event {
         return this.dataSet;
     }
 
+    /**
+     * Returns the System.nanoTime() at which this Event was last added to the request queue.
+     * @return the System.nanoTime() at which this Event was last added to the request queue
+     */
+    long getEnqueuedAt() {
+        return this.enqueuedAt;
+    }
+
+    /**
+     * Returns the value of the specified field of this Event, or null if it has no such field.  Unlike getFields(),
+     * this does not copy the fields inherited from the Builder.
+     *
+     * @param key key of the field
+     * @return the value of the field, or null
+     */
+    public Object getField(String key) {
+        if (this.encodedFields != null) {
+            this.decodeFields();
+        }
+        if (this.primitives != null && this.primitives.containsKey(key)) {
+            return this.primitives.get(key);
+        }
+        if (this.inherited == null || this.fields.containsKey(key)) {
+            return this.fields.get(key);
+        }
+        return this.inherited.get(key);
+    }
+
     /**
      * Returns fields for this Event.
      * @return fields for this Event
      */
     public Map<String, Object> getFields() {
+        if (this.encodedFields != null) {
+            this.decodeFields();
+        }
+        if (this.primitives != null && !this.primitives.isEmpty()) {
+            this.primitives.putInto(this.fields);
+            this.primitives.clear();
+        }
+        if (this.inherited != null) {
+            this.inherited.putAbsentInto(this.fields);
+            this.inherited = null;
+        }
         return this.fields;
     }
 
@@ -122,6 +424,39 @@ public class Event {
         return this.metadata;
     }
 
+    /**
+     * Returns the priority of this Event in the request queue.
+     * @return the priority of this Event in the request queue
+     */
+    public Priority getPriority() {
+        return this.priority;
+    }
+
+    /**
+     * Returns true if this Event has at least one field.
+     * @return true if this Event has at least one field
+     */
+    boolean hasFields() {
+        return !this.fields.isEmpty() || (this.primitives != null && !this.primitives.isEmpty())
+                || (this.inherited != null && !this.inherited.isEmpty());
+    }
+
+    /**
+     * Returns true if this Event was created by an EventPool and is recycled once its request has completed.
+     * @return true if this Event is recycled once its request has completed
+     */
+    boolean isPooled() {
+        return this.pooled;
+    }
+
+    /**
+     * Returns the number of times this Event has been retried.
+     * @return the number of times this Event has been retried
+     */
+    int getRetries() {
+        return this.retries;
+    }
+
     /**
      * Returns the sample rate for this Event.
      * @return the sample rate for this Event
@@ -145,7 +480,7 @@ public class Event {
      */
     public void send() throws HoneyException {
         if (this.shouldSendEvent()) {
-            if (this.fields.isEmpty()) {
+            if (!this.hasFields()) {
                 throw new HoneyException("No metrics added to event. Won't send empty event.");
             } else if (this.transmission.getApiHost().equals("")) {
                 throw new HoneyException("No APIHost for Honeycomb. Can't send to the Great Unknown.");
@@ -159,6 +494,23 @@ public class Event {
         } else {
             log.debug("sampled");
             transmission.sendDroppedResponse(this.metadata);
+            transmission.recycle(this);
+        }
+    }
+
+    /**
+     * Writes this Event's fields as a JSON object.
+     * @param writer writer to which the fields are written
+     */
+    void writeFields(JsonWriter writer) {
+        if (this.encodedFields != null) {
+            writer.writeRaw(this.encodedFields);
+        } else if (this.primitives != null && !this.primitives.isEmpty()) {
+            FieldLayer.writeObject(writer, this.fields, this.primitives, this.inherited);
+        } else if (this.inherited == null) {
+            writer.writeObject(this.fields);
+        } else {
+            FieldLayer.writeObject(writer, this.fields, this.inherited);
         }
     }
 
@@ -170,6 +522,14 @@ public class Event {
         this.dataSet = dataSet;
     }
 
+    /**
+     * Sets the System.nanoTime() at which this Event was added to the request queue
+     * @param enqueuedAt nanosecond time at which this Event was added to the request queue
+     */
+    void setEnqueuedAt(long enqueuedAt) {
+        this.enqueuedAt = enqueuedAt;
+    }
+
     /**
      * Sets the metadata string
      * @param metadata metadata string
@@ -178,6 +538,39 @@ public class Event {
         this.metadata = metadata;
     }
 
+    /**
+     * Marks this Event as created by an EventPool
+     */
+    void setPooled() {
+        this.pooled = true;
+    }
+
+    /**
+     * Sets the priority in the request queue
+     * @param priority priority
+     */
+    public void setPriority(Priority priority) {
+        this.priority = priority;
+    }
+
+    /**
+     * Sets the number of times this Event has been retried
+     * @param retries number of times this Event has been retried
+     */
+    void setRetries(int retries) {
+        this.retries = retries;
+    }
+
+    /**
+     * Sets the sample rate chosen by sampling this Event before it was created, so it is not sampled again unless
+     * its sample rate is changed
+     * @param sampleRate sample rate
+     */
+    void setSampled(int sampleRate) {
+        this.sampleRate = sampleRate;
+        this.sampledRate = sampleRate;
+    }
+
     /**
      * Sets the sample rate
      * @param sampleRate sample rate
@@ -195,11 +588,20 @@ public class Event {
     }
 
     /**
-     * Returns true if this Event should be dropped (due to the sample rate).
-     * @return true if this Event should be dropped
+     * Returns true if this Event should be sent, as decided by the Sampler of the Builder that created it.  If the
+     * Event is kept, its sample rate is set to the rate chosen by the Sampler.  An Event that was kept before it
+     * was created is only sampled again if its sample rate has been changed since.
+     * @return true if this Event should be sent
      */
     public boolean shouldSendEvent() {
-        return this.sampleRate == 1 || ((new Random()).nextInt(this.sampleRate) == 0);
+        if (this.sampler == null || (this.sampledRate > 0 && this.sampleRate == this.sampledRate)) {
+            return true;
+        }
+        int rate = this.sampler.sample(this);
+        if (rate > 0) {
+            this.sampleRate = rate;
+        }
+        return rate > 0;
     }
 
     /**
@@ -209,8 +611,8 @@ public class Event {
     public JSONObject toJson() {
         JSONObject json = new JSONObject();
         try {
-            json.put("fields", this.fields);
-            json.put("createdAt", this.createdAt);
+            json.put("fields", this.mergedFields());
+            json.put("createdAt", this.getCreatedAt());
             json.put("writeKey", this.writeKey);
             json.put("dataSet", this.dataSet);
             json.put("sampleRate", this.sampleRate);
@@ -221,6 +623,74 @@ public class Event {
         return json;
     }
 
+    /**
+     * Returns the time in ms of the ISO-8601 creation time of an Event restored from the spool, or the current time
+     * if it cannot be parsed.
+     *
+     * @param createdAt ISO-8601 creation time
+     * @return the creation time in ms since the epoch
+     */
+    private long parseCreatedAt(String createdAt) {
+        try {
+            return IsoTimestamp.parse(createdAt);
+        } catch (DateTimeParseException e) {
+            log.error(e);
+            return System.currentTimeMillis();
+        }
+    }
+
+    /**
+     * Parses the encoded fields of an Event restored from the spool into the fields map.
+     */
+    private void decodeFields() {
+        try {
+            JSONObject json = new JSONObject(new String(this.encodedFields, StandardCharsets.UTF_8));
+            Iterator keys = json.keys();
+            while (keys.hasNext()) {
+                String key = (String) keys.next();
+                if (this.primitives == null || !this.primitives.containsKey(key)) {
+                    this.fields.putIfAbsent(key, json.get(key));
+                }
+            }
+        } catch (JSONException e) {
+            log.error(e);
+        }
+        this.encodedFields = null;
+    }
+
+    /**
+     * Returns a map of this Event's fields merged with the fields it inherited, without changing this Event.
+     * @return a map of this Event's fields merged with the fields it inherited
+     */
+    private Map<String, Object> mergedFields() {
+        if (this.encodedFields != null) {
+            this.decodeFields();
+        }
+        boolean hasPrimitives = this.primitives != null && !this.primitives.isEmpty();
+        if (this.inherited == null && !hasPrimitives) {
+            return this.fields;
+        }
+        HashMap<String, Object> merged = new HashMap<>(this.fields);
+        if (hasPrimitives) {
+            this.primitives.putInto(merged);
+        }
+        if (this.inherited != null) {
+            this.inherited.putAbsentInto(merged);
+        }
+        return merged;
+    }
+
+    /**
+     * Returns the unboxed fields of this Event, creating them when the first one is added.
+     * @return the unboxed fields of this Event
+     */
+    private PrimitiveFields primitives() {
+        if (this.primitives == null) {
+            this.primitives = new PrimitiveFields();
+        }
+        return this.primitives;
+    }
+
     /**
      * Returns a string representation of this Event.
      * @return a string representation of this Event
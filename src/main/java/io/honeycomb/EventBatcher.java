@@ -0,0 +1,248 @@
+package io.honeycomb;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+
+/**
+ * Groups Events by write key and data set into batches for the batch endpoint.
+ * An EventBatcher is confined to the sender thread that owns it, so it does no locking.
+ */
+final class EventBatcher {
+    /**
+     * Pending batches are keyed by write key and data set.
+     * A batch is ready once it reaches maxBatchSize events, maxBatchBytes bytes, or has lingered batchTimeout ms.
+     */
+    private final Map<BatchKey, Batch> pending;
+    private final int maxBatchSize;
+    private final int maxBatchBytes;
+    private final long batchTimeout;
+    private final JsonWriter scratch;
+
+    /**
+     * Constructs an EventBatcher.
+     *
+     * @param maxBatchSize maximum number of events in a batch
+     * @param maxBatchBytes maximum size of a batch body in bytes
+     * @param batchTimeout maximum number of ms an event waits in a batch before it is sent
+     */
+    EventBatcher(int maxBatchSize, int maxBatchBytes, long batchTimeout) {
+        this(maxBatchSize, maxBatchBytes, batchTimeout, null);
+    }
+
+    /**
+     * Constructs an EventBatcher that encodes registered field keys from their cached encodings.
+     *
+     * @param maxBatchSize maximum number of events in a batch
+     * @param maxBatchBytes maximum size of a batch body in bytes
+     * @param batchTimeout maximum number of ms an event waits in a batch before it is sent
+     * @param fieldKeys registered FieldKeys, or null
+     */
+    EventBatcher(int maxBatchSize, int maxBatchBytes, long batchTimeout, FieldKeys fieldKeys) {
+        this.pending = new HashMap<>();
+        this.maxBatchSize = maxBatchSize;
+        this.maxBatchBytes = maxBatchBytes;
+        this.batchTimeout = batchTimeout;
+        this.scratch = new JsonWriter(1024).setFieldKeys(fieldKeys);
+    }
+
+    /**
+     * Adds an Event to the pending batch for its write key and data set, moving any batches that became ready
+     * into the specified list.
+     *
+     * @param event Event to be batched
+     * @param now current time in ms
+     * @param ready list to which ready batches are added
+     */
+    void add(Event event, long now, List<Batch> ready) {
+        this.scratch.reset();
+        encode(event, this.scratch);
+        BatchKey key = new BatchKey(event.getWriteKey(), event.getDataSet());
+        Batch batch = this.pending.get(key);
+
+        if (batch != null && batch.getByteSize() + this.scratch.size() + 1 > this.maxBatchBytes) {
+            this.pending.remove(key);
+            ready.add(batch);
+            batch = null;
+        }
+        if (batch == null) {
+            batch = new Batch(event.getWriteKey(), event.getDataSet(), now + this.batchTimeout);
+            this.pending.put(key, batch);
+        }
+
+        batch.add(event, this.scratch);
+        this.scratch.release();
+        if (batch.size() >= this.maxBatchSize || batch.getByteSize() >= this.maxBatchBytes) {
+            this.pending.remove(key);
+            ready.add(batch);
+        }
+    }
+
+    /**
+     * Moves every pending batch whose linger time has elapsed into the specified list.
+     *
+     * @param now current time in ms
+     * @param ready list to which expired batches are added
+     */
+    void drainExpired(long now, List<Batch> ready) {
+        Iterator<Batch> it = this.pending.values().iterator();
+        while (it.hasNext()) {
+            Batch batch = it.next();
+            if (batch.getDeadline() <= now) {
+                it.remove();
+                ready.add(batch);
+            }
+        }
+    }
+
+    /**
+     * Moves every pending batch into the specified list.
+     *
+     * @param ready list to which all pending batches are added
+     */
+    void drainAll(List<Batch> ready) {
+        ready.addAll(this.pending.values());
+        this.pending.clear();
+    }
+
+    /**
+     * Returns true if no events are waiting in a batch.
+     * @return true if no events are waiting in a batch
+     */
+    boolean isEmpty() {
+        return this.pending.isEmpty();
+    }
+
+    /**
+     * Returns the number of ms until the earliest pending batch expires, or -1 if there are no pending batches.
+     *
+     * @param now current time in ms
+     * @return the number of ms until the earliest pending batch expires, or -1 if there are no pending batches
+     */
+    long millisUntilNextDeadline(long now) {
+        if (this.pending.isEmpty()) {
+            return -1;
+        }
+        long earliest = Long.MAX_VALUE;
+        for (Batch batch : this.pending.values()) {
+            earliest = Math.min(earliest, batch.getDeadline());
+        }
+        return Math.max(0, earliest - now);
+    }
+
+    /**
+     * Writes the batch endpoint representation of an Event.
+     *
+     * @param event Event to be encoded
+     * @param writer writer to which the Event is written
+     */
+    static void encode(Event event, JsonWriter writer) {
+        writer.writeByte('{');
+        writer.writeKey("time").writeTimestamp(event.getCreatedAtMillis()).writeByte(',');
+        writer.writeKey("samplerate").writeLong(event.getSampleRate()).writeByte(',');
+        writer.writeKey("data");
+        event.writeFields(writer);
+        writer.writeByte('}');
+    }
+
+    /**
+     * A group of Events sharing a write key and data set, along with the JSON array body they are written into.
+     */
+    static final class Batch {
+        private final String writeKey;
+        private final String dataSet;
+        private final long deadline;
+        private final List<Event> events;
+        private final JsonWriter body;
+        private boolean finished;
+
+        Batch(String writeKey, String dataSet, long deadline) {
+            this.writeKey = writeKey;
+            this.dataSet = dataSet;
+            this.deadline = deadline;
+            this.events = new ArrayList<>();
+            this.body = new JsonWriter(1024);
+            this.body.writeByte('[');
+        }
+
+        void add(Event event, JsonWriter encoded) {
+            if (!this.events.isEmpty()) {
+                this.body.writeByte(',');
+            }
+            this.events.add(event);
+            this.body.writeRaw(encoded.buffer(), 0, encoded.size());
+        }
+
+        /**
+         * Closes the JSON array and returns the writer holding the body for this batch.  No events may be added
+         * afterwards.
+         *
+         * @return the writer holding the body for this batch
+         */
+        JsonWriter finish() {
+            if (!this.finished) {
+                this.body.writeByte(']');
+                this.finished = true;
+            }
+            return this.body;
+        }
+
+        /**
+         * Returns the size of the body in bytes, including the closing bracket.
+         * @return the size of the body in bytes
+         */
+        int getByteSize() {
+            return this.finished ? this.body.size() : this.body.size() + 1;
+        }
+
+        String getDataSet() {
+            return this.dataSet;
+        }
+
+        long getDeadline() {
+            return this.deadline;
+        }
+
+        List<Event> getEvents() {
+            return this.events;
+        }
+
+        String getWriteKey() {
+            return this.writeKey;
+        }
+
+        int size() {
+            return this.events.size();
+        }
+    }
+
+    /**
+     * Identifies the destination of a batch.
+     */
+    private static final class BatchKey {
+        private final String writeKey;
+        private final String dataSet;
+
+        BatchKey(String writeKey, String dataSet) {
+            this.writeKey = writeKey;
+            this.dataSet = dataSet;
+        }
+
+        @Override
+        public boolean equals(Object obj) {
+            if (!(obj instanceof BatchKey)) {
+                return false;
+            }
+            BatchKey other = (BatchKey) obj;
+            return Objects.equals(this.writeKey, other.writeKey) && Objects.equals(this.dataSet, other.dataSet);
+        }
+
+        @Override
+        public int hashCode() {
+            return Objects.hash(this.writeKey, this.dataSet);
+        }
+    }
+}
@@ -0,0 +1,65 @@
+package io.honeycomb;
+
+/**
+ * Recycles Events created by Builder.newEvent() once their requests have completed, so that Events and their field
+ * maps are reused instead of being promoted to the old generation while they wait on the request queue.
+ *
+ * Events are created by application threads but recycled by the threads that complete their requests, so free
+ * Events are kept on a shared lock-free ring buffer rather than in per-thread pools, which would never hand them
+ * back to the threads that need them.  A recycled Event keeps its field map, which clear() leaves at the capacity it
+ * had grown to.  If the pool is full, recycled Events are left to the garbage collector; if it is empty, a new Event
+ * is created.
+ *
+ * Events are deliberately recycled only once their requests have completed, not as soon as their payloads have been
+ * serialized: until then an Event may still be retried or spooled, both of which read it again.
+ */
+final class EventPool {
+    private final RingBufferQueue<Event> free;
+
+    /**
+     * Constructs an EventPool.
+     *
+     * @param capacity maximum number of free Events kept for reuse
+     */
+    EventPool(int capacity) {
+        this.free = new RingBufferQueue<>(capacity);
+    }
+
+    /**
+     * Returns an Event built from the specified Builder, reusing a free Event if there is one.
+     *
+     * @param libhoney LibHoney
+     * @param builder builder from which the Event is built
+     * @return an Event built from the Builder
+     */
+    Event acquire(LibHoney libhoney, Builder builder) {
+        Event event = this.free.poll();
+        if (event == null) {
+            event = new Event(libhoney, builder);
+            event.setPooled();
+        } else {
+            event.init(libhoney, builder, "");
+        }
+        return event;
+    }
+
+    /**
+     * Clears an Event whose request has completed and keeps it for reuse, if it was created by this pool.
+     *
+     * @param event Event that will not be used again
+     */
+    void release(Event event) {
+        if (event.isPooled()) {
+            event.clear();
+            this.free.offer(event);
+        }
+    }
+
+    /**
+     * Returns the number of free Events in this pool that acquire can reuse.
+     * @return the number of free Events in this pool
+     */
+    int size() {
+        return this.free.size();
+    }
+}
@@ -0,0 +1,163 @@
+package io.honeycomb;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Callable;
+
+/**
+ * A fixed shape of Event compiled from a Builder, for Builders that always produce the same set of fields.
+ *
+ * The template fixes the order of the fields and gives each field that varies between Events a numbered slot: the
+ * field names passed to Builder.newTemplate(), followed by the Builder's dynamic fields.  A slot named after a field
+ * of the Builder starts with the value of that field on every Event.  Every other field of the Builder is static,
+ * and is serialized once into a prefix of the JSON object when the template is compiled.  Events
+ * created from the template keep their slot values in arrays indexed by slot, and are serialized as the prefix
+ * followed by the pre-encoded key and the value of each slot that is set.
+ *
+ * The template is a snapshot: later changes to the Builder, or to the values of its static fields, are not seen.
+ */
+public final class EventTemplate {
+    private final LibHoney libhoney;
+    private final Builder builder;
+    private final Map<String, Object> staticFields;
+    private final byte[] prefix;
+    private final String[] slotNames;
+    private final byte[][] slotKeys;
+    private final Callable[] dynFields;
+    private final Object[] defaults;
+    private final Map<String, Integer> slots;
+
+    /**
+     * Constructs an EventTemplate from a snapshot of a Builder.
+     *
+     * @param builder builder from which the template is compiled
+     * @param slotNames names of the fields whose values are set on each Event
+     */
+    EventTemplate(Builder builder, String... slotNames) {
+        this.builder = new Builder(builder);
+        this.libhoney = this.builder.getLibHoney();
+
+        // Slots for the named fields, then for the dynamic fields that do not already have one
+        Map<String, Callable> dynFields = this.builder.getDynFields();
+        this.slots = new HashMap<>();
+        List<String> names = new ArrayList<>();
+        for (String name : slotNames) {
+            if (this.slots.putIfAbsent(name, names.size()) == null) {
+                names.add(name);
+            }
+        }
+        for (String name : dynFields.keySet()) {
+            if (this.slots.putIfAbsent(name, names.size()) == null) {
+                names.add(name);
+            }
+        }
+        this.slotNames = names.toArray(new String[0]);
+        this.slotKeys = new byte[this.slotNames.length][];
+        this.dynFields = new Callable[this.slotNames.length];
+        this.defaults = new Object[this.slotNames.length];
+
+        // A slot for a field of the Builder starts with the value of that field; every other field is static
+        Map<String, Object> fields = new LinkedHashMap<>();
+        FieldLayer layer = this.builder.getFieldLayer();
+        if (layer != null) {
+            layer.putAbsentInto(fields);
+        }
+        for (int i = 0; i < this.slotNames.length; i++) {
+            this.slotKeys[i] = new FieldKey(this.slotNames[i]).getEncoded();
+            this.dynFields[i] = dynFields.get(this.slotNames[i]);
+            this.defaults[i] = fields.remove(this.slotNames[i]);
+        }
+
+        // Static fields are serialized once, without the closing brace
+        this.staticFields = Collections.unmodifiableMap(fields);
+        JsonWriter writer = new JsonWriter(256);
+        writer.writeObject(this.staticFields);
+        this.prefix = Arrays.copyOf(writer.buffer(), writer.size() - 1);
+    }
+
+    /**
+     * Creates an Event from this template, with its dynamic field slots set by executing the dynamic fields.  If
+     * the sampler can decide up front that the Event will be dropped, the Event ignores any values it is given and
+     * sending it only delivers a dropped response.
+     *
+     * @return an Event from this template
+     */
+    public TemplateEvent newEvent() {
+        Sampler sampler = this.builder.getSampler();
+        int sampleRate = sampler == null ? -1 : sampler.sampleBeforeBuild(this.builder);
+        TemplateEvent event = new TemplateEvent(this, sampleRate == 0);
+        if (sampleRate > 0) {
+            event.setSampled(sampleRate);
+        }
+        if (sampleRate != 0) {
+            event.executeDynFields();
+        }
+        return event;
+    }
+
+    /**
+     * Returns the number of slots.
+     * @return the number of slots
+     */
+    public int getSlotCount() {
+        return this.slotNames.length;
+    }
+
+    /**
+     * Returns the field name of the specified slot.
+     *
+     * @param slot index of the slot
+     * @return the field name of the slot
+     */
+    public String getSlotName(int slot) {
+        return this.slotNames[slot];
+    }
+
+    /**
+     * Returns the fields that are fixed by this template.
+     * @return the fields that are fixed by this template
+     */
+    public Map<String, Object> getStaticFields() {
+        return this.staticFields;
+    }
+
+    /**
+     * Returns the index of the slot for the specified field name, or -1 if the field has no slot.
+     *
+     * @param name the field name
+     * @return the index of the slot for the field, or -1
+     */
+    public int slot(String name) {
+        Integer slot = this.slots.get(name);
+        return slot == null ? -1 : slot;
+    }
+
+    Builder getBuilder() {
+        return this.builder;
+    }
+
+    LibHoney getLibHoney() {
+        return this.libhoney;
+    }
+
+    Object getDefault(int slot) {
+        return this.defaults[slot];
+    }
+
+    Callable getDynField(int slot) {
+        return this.dynFields[slot];
+    }
+
+    byte[] getPrefix() {
+        return this.prefix;
+    }
+
+    byte[] getSlotKey(int slot) {
+        return this.slotKeys[slot];
+    }
+}
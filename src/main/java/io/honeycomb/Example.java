@@ -1,6 +1,7 @@
 package io.honeycomb;
 
 import java.util.HashMap;
+import java.util.Queue;
 import java.util.UUID;
 
 public class Example {
@@ -13,6 +14,12 @@ public class Example {
         LibHoney libhoney = new LibHoney.Builder()
                 .writeKey(WRITE_KEY)
                 .dataSet(DATA_SET)
+                // every response can be passed to a callback as it is received
+                .responseObserver(response -> {
+                    if (!response.getError().isEmpty()) {
+                        System.err.println(response.getMetadata() + ": " + response.getError());
+                    }
+                })
                 .build();
 
         // you can add simple key/value pairs:
@@ -59,11 +66,14 @@ public class Example {
         // results in keys "baseKey", "baseMap1", "baseMap2", "builderKey", and "responseTimeNanos" being sent
         event3.send();
 
-        // All HTTP responses are dropped by default.
-        // If you want to keep responses, create a thread that removes responses as they are received.
+        // HTTP responses are also placed on a response queue, and dropped once it is full.
+        // If you want to keep responses without an observer, create a thread that removes responses as they are
+        // received, or set responseQueueLength(0) if you don't need the queue at all, in which case
+        // getResponseQueue() returns null.
         // (This code is not multi-threaded.)
-        while (libhoney.getResponseQueue().peek() != null) {
-            libhoney.getResponseQueue().remove();
+        Queue responses = libhoney.getResponseQueue();
+        while (responses != null && responses.peek() != null) {
+            responses.remove();
         }
 
         // Shutdown threads gracefully
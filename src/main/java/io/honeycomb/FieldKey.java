@@ -0,0 +1,45 @@
+package io.honeycomb;
+
+/**
+ * A field name registered with LibHoney.fieldKey(), holding the canonical String for the name and its JSON
+ * encoding as a quoted, escaped UTF-8 key.  FieldKeys are meant to be kept in constants at call sites that add the
+ * same fields to every Event, so that the key is never escaped or encoded again when Events are serialized.
+ */
+public final class FieldKey {
+    private final String name;
+    private final byte[] encoded;
+
+    /**
+     * Constructs a FieldKey, encoding its name.
+     * @param name the field name
+     */
+    FieldKey(String name) {
+        this.name = name;
+        this.encoded = new JsonWriter(name.length() + 3).writeKey(name).toByteArray();
+    }
+
+    /**
+     * Returns the field name.
+     * @return the field name
+     */
+    public String getName() {
+        return this.name;
+    }
+
+    /**
+     * Returns the field name encoded as a quoted JSON key followed by a colon.
+     * @return the encoded field name
+     */
+    byte[] getEncoded() {
+        return this.encoded;
+    }
+
+    /**
+     * Returns the field name.
+     * @return the field name
+     */
+    @Override
+    public String toString() {
+        return this.name;
+    }
+}
@@ -0,0 +1,53 @@
+package io.honeycomb;
+
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * The FieldKeys registered with a LibHoney, looked up by JsonWriter.writeKey() so that registered keys are copied
+ * from their cached encoding.  Lookups are lock-free and usually match on the reference of the canonical name held
+ * by the FieldKey.  The number of keys is capped, so that registering field names built at runtime cannot grow the
+ * registry without bound; names registered past the cap still get a FieldKey, but it is not cached.
+ */
+final class FieldKeys {
+    static final int MAX_KEYS = 4096;
+
+    private final ConcurrentHashMap<String, FieldKey> keys = new ConcurrentHashMap<>();
+
+    /**
+     * Returns the FieldKey registered for the specified name, registering it if there is none.
+     *
+     * @param name the field name
+     * @return the FieldKey for the name
+     */
+    FieldKey register(String name) {
+        FieldKey key = this.keys.get(name);
+        if (key != null) {
+            return key;
+        }
+        key = new FieldKey(name);
+        if (this.keys.size() >= MAX_KEYS) {
+            return key;
+        }
+        FieldKey existing = this.keys.putIfAbsent(name, key);
+        return existing != null ? existing : key;
+    }
+
+    /**
+     * Returns the encoding of the specified name as a JSON key followed by a colon, or null if it is not registered.
+     *
+     * @param name the field name
+     * @return the encoded field name, or null
+     */
+    byte[] getEncoded(String name) {
+        FieldKey key = this.keys.get(name);
+        return key == null ? null : key.getEncoded();
+    }
+
+    /**
+     * Returns the number of registered keys.
+     * @return the number of registered keys
+     */
+    int size() {
+        return this.keys.size();
+    }
+}
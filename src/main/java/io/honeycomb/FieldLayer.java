@@ -0,0 +1,149 @@
+package io.honeycomb;
+
+import java.util.Map;
+
+/**
+ * An immutable set of field mappings stacked on the layers it inherits from, so that Builders and Events can
+ * refer to inherited fields instead of copying them.  A mapping in a layer shadows any mapping for the same key
+ * in its parents.  The layers are only flattened when an Event is serialized.
+ */
+final class FieldLayer {
+    private final Map<String, Object> fields;
+    private final FieldLayer parent;
+
+    /**
+     * Constructs a FieldLayer.
+     *
+     * @param fields mappings of this layer, which must never be modified afterwards
+     * @param parent layer inherited by this layer, or null
+     */
+    FieldLayer(Map<String, Object> fields, FieldLayer parent) {
+        this.fields = fields;
+        this.parent = parent;
+    }
+
+    /**
+     * Returns the mappings of this layer alone.
+     * @return the mappings of this layer alone
+     */
+    Map<String, Object> getFields() {
+        return this.fields;
+    }
+
+    /**
+     * Returns the layer inherited by this layer, or null.
+     * @return the layer inherited by this layer, or null
+     */
+    FieldLayer getParent() {
+        return this.parent;
+    }
+
+    /**
+     * Returns the value visible through this layer for the specified key, or null if there is none.  A null value
+     * in a layer shadows its parents, as it does when the layers are written.
+     *
+     * @param key the key
+     * @return the value visible through this layer for the key, or null
+     */
+    Object get(String key) {
+        for (FieldLayer layer = this; layer != null; layer = layer.parent) {
+            if (layer.fields.containsKey(key)) {
+                return layer.fields.get(key);
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Returns true if neither this layer nor any of its parents contain a mapping.
+     * @return true if neither this layer nor any of its parents contain a mapping
+     */
+    boolean isEmpty() {
+        for (FieldLayer layer = this; layer != null; layer = layer.parent) {
+            if (!layer.fields.isEmpty()) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Copies every mapping visible through this layer into the specified map, unless the map already contains
+     * the key, even with a null value.
+     *
+     * @param target the map to which mappings are added
+     */
+    void putAbsentInto(Map<String, Object> target) {
+        for (FieldLayer layer = this; layer != null; layer = layer.parent) {
+            for (Map.Entry<String, Object> entry : layer.fields.entrySet()) {
+                if (!target.containsKey(entry.getKey())) {
+                    target.put(entry.getKey(), entry.getValue());
+                }
+            }
+        }
+    }
+
+    /**
+     * Writes a JSON object with the mappings of the specified overlay followed by every mapping visible through
+     * the specified layers that the overlay does not shadow.
+     *
+     * @param writer writer to which the object is written
+     * @param overlay mappings that shadow every layer
+     * @param layers layers beneath the overlay, or null
+     */
+    static void writeObject(JsonWriter writer, Map<String, Object> overlay, FieldLayer layers) {
+        writeObject(writer, overlay, null, layers);
+    }
+
+    /**
+     * Writes a JSON object with the mappings of the specified overlays followed by every mapping visible through
+     * the specified layers that the overlays do not shadow.  The overlays must not contain the same key.
+     *
+     * @param writer writer to which the object is written
+     * @param overlay mappings that shadow every layer
+     * @param primitives unboxed mappings that shadow every layer, or null
+     * @param layers layers beneath the overlays, or null
+     */
+    static void writeObject(JsonWriter writer, Map<String, Object> overlay, PrimitiveFields primitives,
+                            FieldLayer layers) {
+        writer.writeByte('{');
+        boolean first = true;
+        for (Map.Entry<String, Object> entry : overlay.entrySet()) {
+            first = writeEntry(writer, entry, first);
+        }
+        if (primitives != null) {
+            first = primitives.writeEntries(writer, first);
+        }
+        for (FieldLayer layer = layers; layer != null; layer = layer.parent) {
+            for (Map.Entry<String, Object> entry : layer.fields.entrySet()) {
+                if (!overlay.containsKey(entry.getKey())
+                        && (primitives == null || !primitives.containsKey(entry.getKey()))
+                        && !isShadowed(entry.getKey(), layers, layer)) {
+                    first = writeEntry(writer, entry, first);
+                }
+            }
+        }
+        writer.writeByte('}');
+    }
+
+    private static boolean writeEntry(JsonWriter writer, Map.Entry<String, Object> entry, boolean first) {
+        if (!first) {
+            writer.writeByte(',');
+        }
+        writer.writeKey(String.valueOf(entry.getKey()));
+        writer.writeValue(entry.getValue());
+        return false;
+    }
+
+    /**
+     * Returns true if a layer above the specified layer contains the specified key.
+     */
+    private static boolean isShadowed(String key, FieldLayer top, FieldLayer layer) {
+        for (FieldLayer above = top; above != layer; above = above.parent) {
+            if (above.fields.containsKey(key)) {
+                return true;
+            }
+        }
+        return false;
+    }
+}
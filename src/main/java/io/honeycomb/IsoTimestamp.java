@@ -0,0 +1,122 @@
+package io.honeycomb;
+
+import java.nio.charset.StandardCharsets;
+import java.time.Instant;
+
+/**
+ * Formats epoch times in ms as ISO-8601 UTC timestamps with millisecond precision, such as
+ * 2017-06-05T16:47:21.123Z, without allocating.
+ *
+ * Timestamps are written straight into a byte buffer.  When a String is needed, each thread keeps the last one it
+ * formatted, so Events created within the same ms, as they are with a coarse clock, share a String.  Times outside
+ * the years 0000 to 9999 fall back to Instant.toString().
+ */
+final class IsoTimestamp {
+    static final int LENGTH = 24;
+    private static final long MIN_MILLIS = -62167219200000L; // 0000-01-01T00:00:00.000Z
+    private static final long MAX_MILLIS = 253402300799999L; // 9999-12-31T23:59:59.999Z
+    private static final long MILLIS_PER_DAY = 86400000L;
+
+    private static final ThreadLocal<Cache> CACHE = ThreadLocal.withInitial(Cache::new);
+
+    /**
+     * The last timestamp formatted as a String by a thread.
+     */
+    private static final class Cache {
+        private final byte[] bytes = new byte[LENGTH];
+        private long millis = Long.MIN_VALUE;
+        private String value;
+    }
+
+    private IsoTimestamp() {
+        throw new IllegalAccessError("Utility class");
+    }
+
+    /**
+     * Returns true if the specified time can be written by format(long, byte[], int).
+     *
+     * @param epochMillis time in ms since the epoch
+     * @return true if the time falls within the years 0000 to 9999
+     */
+    static boolean isFormattable(long epochMillis) {
+        return epochMillis >= MIN_MILLIS && epochMillis <= MAX_MILLIS;
+    }
+
+    /**
+     * Returns the ISO-8601 representation of the specified time.
+     *
+     * @param epochMillis time in ms since the epoch
+     * @return the ISO-8601 representation of the time
+     */
+    static String format(long epochMillis) {
+        if (!isFormattable(epochMillis)) {
+            return Instant.ofEpochMilli(epochMillis).toString();
+        }
+        Cache cache = CACHE.get();
+        if (cache.millis != epochMillis) {
+            format(epochMillis, cache.bytes, 0);
+            cache.value = new String(cache.bytes, 0, LENGTH, StandardCharsets.US_ASCII);
+            cache.millis = epochMillis;
+        }
+        return cache.value;
+    }
+
+    /**
+     * Writes the LENGTH bytes of the ISO-8601 representation of the specified time, which must be formattable.
+     *
+     * @param epochMillis time in ms since the epoch
+     * @param out buffer to which the timestamp is written
+     * @param pos index in the buffer at which the timestamp is written
+     * @return the index following the timestamp
+     */
+    static int format(long epochMillis, byte[] out, int pos) {
+        long days = Math.floorDiv(epochMillis, MILLIS_PER_DAY);
+        int millisOfDay = (int) Math.floorMod(epochMillis, MILLIS_PER_DAY);
+
+        // Converts days since the epoch to a proleptic Gregorian date, in 400 year eras starting on March 1st
+        long z = days + 719468;
+        long era = Math.floorDiv(z, 146097);
+        int dayOfEra = (int) (z - era * 146097);
+        int yearOfEra = (dayOfEra - dayOfEra / 1460 + dayOfEra / 36524 - dayOfEra / 146096) / 365;
+        int dayOfYear = dayOfEra - (365 * yearOfEra + yearOfEra / 4 - yearOfEra / 100);
+        int shiftedMonth = (5 * dayOfYear + 2) / 153;
+        int day = dayOfYear - (153 * shiftedMonth + 2) / 5 + 1;
+        int month = shiftedMonth < 10 ? shiftedMonth + 3 : shiftedMonth - 9;
+        int year = (int) (yearOfEra + era * 400) + (month <= 2 ? 1 : 0);
+
+        pos = writeDigits(out, pos, year, 4);
+        out[pos++] = '-';
+        pos = writeDigits(out, pos, month, 2);
+        out[pos++] = '-';
+        pos = writeDigits(out, pos, day, 2);
+        out[pos++] = 'T';
+        pos = writeDigits(out, pos, millisOfDay / 3600000, 2);
+        out[pos++] = ':';
+        pos = writeDigits(out, pos, millisOfDay / 60000 % 60, 2);
+        out[pos++] = ':';
+        pos = writeDigits(out, pos, millisOfDay / 1000 % 60, 2);
+        out[pos++] = '.';
+        pos = writeDigits(out, pos, millisOfDay % 1000, 3);
+        out[pos++] = 'Z';
+        return pos;
+    }
+
+    /**
+     * Returns the epoch time in ms of an ISO-8601 timestamp.
+     *
+     * @param timestamp the ISO-8601 timestamp
+     * @return the time in ms since the epoch
+     * @throws java.time.format.DateTimeParseException if the timestamp cannot be parsed
+     */
+    static long parse(String timestamp) {
+        return Instant.parse(timestamp).toEpochMilli();
+    }
+
+    private static int writeDigits(byte[] out, int pos, int value, int digits) {
+        for (int i = pos + digits - 1; i >= pos; i--) {
+            out[i] = (byte) ('0' + value % 10);
+            value /= 10;
+        }
+        return pos + digits;
+    }
+}
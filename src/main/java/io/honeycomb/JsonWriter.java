@@ -0,0 +1,435 @@
+package io.honeycomb;
+
+import org.json.JSONArray;
+import org.json.JSONObject;
+import org.json.JSONString;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Map;
+
+/**
+ * Writes JSON as UTF-8 straight into a growable byte buffer that can be reset and reused.
+ *
+ * Strings, boxed numbers, Booleans, Maps, Collections and arrays are encoded without building intermediate
+ * objects.  Any other value is written as its quoted toString, as org.json does.
+ */
+final class JsonWriter {
+    private static final byte[] NULL = {'n', 'u', 'l', 'l'};
+    private static final byte[] TRUE = {'t', 'r', 'u', 'e'};
+    private static final byte[] FALSE = {'f', 'a', 'l', 's', 'e'};
+    private static final byte[] MIN_LONG = Long.toString(Long.MIN_VALUE).getBytes();
+    private static final byte[] HEX = {'0', '1', '2', '3', '4', '5', '6', '7', '8', '9', 'a', 'b', 'c', 'd', 'e', 'f'};
+    static final int MAX_RETAINED_CAPACITY = 1 << 20;
+
+    private final int initialCapacity;
+    private byte[] buffer;
+    private int size;
+    private FieldKeys fieldKeys;
+
+    /**
+     * Constructs a JsonWriter with the specified initial buffer capacity.
+     * @param initialCapacity initial buffer capacity in bytes
+     */
+    JsonWriter(int initialCapacity) {
+        this.initialCapacity = initialCapacity;
+        this.buffer = new byte[initialCapacity];
+    }
+
+    /**
+     * Discards everything written so far, keeping the buffer for reuse.
+     */
+    void reset() {
+        this.size = 0;
+    }
+
+    /**
+     * Discards everything written so far after the writer has been used, keeping the buffer for reuse unless it has
+     * grown beyond MAX_RETAINED_CAPACITY bytes, so that a writer kept per thread does not hold on to the buffer of
+     * one outsized Event.
+     */
+    void release() {
+        this.size = 0;
+        if (this.buffer.length > MAX_RETAINED_CAPACITY) {
+            this.buffer = new byte[this.initialCapacity];
+        }
+    }
+
+    /**
+     * Sets the registered FieldKeys whose cached encodings are copied by writeKey.
+     *
+     * @param fieldKeys registered FieldKeys, or null
+     * @return this JsonWriter
+     */
+    JsonWriter setFieldKeys(FieldKeys fieldKeys) {
+        this.fieldKeys = fieldKeys;
+        return this;
+    }
+
+    /**
+     * Returns the number of bytes written.
+     * @return the number of bytes written
+     */
+    int size() {
+        return this.size;
+    }
+
+    /**
+     * Returns the internal buffer.  Only the first size() bytes are valid, and only until the next write or reset.
+     * @return the internal buffer
+     */
+    byte[] buffer() {
+        return this.buffer;
+    }
+
+    /**
+     * Returns a copy of the bytes written.
+     * @return a copy of the bytes written
+     */
+    byte[] toByteArray() {
+        return Arrays.copyOf(this.buffer, this.size);
+    }
+
+    /**
+     * Writes the bytes written so far to the specified stream.
+     *
+     * @param out stream to be written to
+     * @throws IOException if the stream cannot be written to
+     */
+    void writeTo(OutputStream out) throws IOException {
+        out.write(this.buffer, 0, this.size);
+    }
+
+    /**
+     * Writes a JSON object with the mappings of the specified map.
+     *
+     * @param map the map to be written
+     * @return this JsonWriter
+     */
+    JsonWriter writeObject(Map<?, ?> map) {
+        this.writeByte('{');
+        boolean first = true;
+        for (Map.Entry<?, ?> entry : map.entrySet()) {
+            if (!first) {
+                this.writeByte(',');
+            }
+            first = false;
+            this.writeKey(String.valueOf(entry.getKey()));
+            this.writeValue(entry.getValue());
+        }
+        this.writeByte('}');
+        return this;
+    }
+
+    /**
+     * Writes a quoted key followed by a colon, copying its cached encoding if it is a registered FieldKey.
+     *
+     * @param key the key to be written
+     * @return this JsonWriter
+     */
+    JsonWriter writeKey(String key) {
+        byte[] encoded = this.fieldKeys != null && key != null ? this.fieldKeys.getEncoded(key) : null;
+        if (encoded != null) {
+            this.writeRaw(encoded);
+            return this;
+        }
+        this.writeString(key);
+        this.writeByte(':');
+        return this;
+    }
+
+    /**
+     * Writes the JSON representation of the specified value.
+     *
+     * @param value the value to be written
+     * @return this JsonWriter
+     */
+    JsonWriter writeValue(Object value) {
+        if (value == null) {
+            this.writeRaw(NULL);
+        } else if (value instanceof String) {
+            this.writeString((String) value);
+        } else if (value instanceof Integer || value instanceof Long || value instanceof Short
+                || value instanceof Byte) {
+            this.writeLong(((Number) value).longValue());
+        } else if (value instanceof Double) {
+            this.writeDouble((Double) value);
+        } else if (value instanceof Float) {
+            this.writeFloat((Float) value);
+        } else if (value instanceof Boolean) {
+            this.writeBoolean((Boolean) value);
+        } else if (value instanceof Number) {
+            this.writeAscii(value.toString());
+        } else if (value instanceof Map) {
+            this.writeObject((Map<?, ?>) value);
+        } else if (value instanceof Collection) {
+            this.writeArray((Collection<?>) value);
+        } else if (value instanceof Object[]) {
+            this.writeArray(Arrays.asList((Object[]) value));
+        } else if (value instanceof JSONObject || value instanceof JSONArray) {
+            this.writeUtf8(value.toString());
+        } else if (value instanceof JSONString) {
+            this.writeUtf8(((JSONString) value).toJSONString());
+        } else {
+            this.writeString(value.toString());
+        }
+        return this;
+    }
+
+    /**
+     * Writes a JSON array with the elements of the specified collection.
+     *
+     * @param values the collection to be written
+     * @return this JsonWriter
+     */
+    JsonWriter writeArray(Collection<?> values) {
+        this.writeByte('[');
+        boolean first = true;
+        for (Object value : values) {
+            if (!first) {
+                this.writeByte(',');
+            }
+            first = false;
+            this.writeValue(value);
+        }
+        this.writeByte(']');
+        return this;
+    }
+
+    /**
+     * Writes true or false.
+     *
+     * @param value the value to be written
+     * @return this JsonWriter
+     */
+    JsonWriter writeBoolean(boolean value) {
+        this.writeRaw(value ? TRUE : FALSE);
+        return this;
+    }
+
+    /**
+     * Writes a number, or null if the value is not finite.
+     *
+     * @param value the value to be written
+     * @return this JsonWriter
+     */
+    JsonWriter writeDouble(double value) {
+        if (Double.isNaN(value) || Double.isInfinite(value)) {
+            this.writeRaw(NULL);
+        } else if (value == (long) value && Math.abs(value) < 1e15) {
+            this.writeLong((long) value);
+        } else {
+            this.writeAscii(Double.toString(value));
+        }
+        return this;
+    }
+
+    /**
+     * Writes a number with the shortest digits that identify the float, rather than those of the float widened to
+     * a double, or null if the value is not finite.
+     *
+     * @param value the value to be written
+     * @return this JsonWriter
+     */
+    JsonWriter writeFloat(float value) {
+        if (Float.isNaN(value) || Float.isInfinite(value)) {
+            this.writeRaw(NULL);
+        } else if (value == (long) value && Math.abs(value) < 1e15f) {
+            this.writeLong((long) value);
+        } else {
+            this.writeAscii(Float.toString(value));
+        }
+        return this;
+    }
+
+    /**
+     * Writes the decimal digits of a long without allocating.
+     *
+     * @param value the value to be written
+     * @return this JsonWriter
+     */
+    JsonWriter writeLong(long value) {
+        if (value == Long.MIN_VALUE) {
+            this.writeRaw(MIN_LONG);
+            return this;
+        }
+        if (value < 0) {
+            this.writeByte('-');
+            value = -value;
+        }
+        int digits = 1;
+        for (long v = value; v >= 10; v /= 10) {
+            digits++;
+        }
+        this.ensureCapacity(digits);
+        int pos = this.size + digits;
+        do {
+            this.buffer[--pos] = (byte) ('0' + (value % 10));
+            value /= 10;
+        } while (value != 0);
+        this.size += digits;
+        return this;
+    }
+
+    /**
+     * Writes a quoted, escaped JSON string encoded as UTF-8.
+     *
+     * @param value the string to be written
+     * @return this JsonWriter
+     */
+    JsonWriter writeString(String value) {
+        this.writeByte('"');
+        int length = value.length();
+        this.ensureCapacity(length);
+        for (int i = 0; i < length; i++) {
+            char c = value.charAt(i);
+            if (c >= 0x20 && c < 0x80 && c != '"' && c != '\\') {
+                this.writeByte(c);
+            } else if (c < 0x80) {
+                this.writeEscaped(c);
+            } else if (c < 0x800) {
+                this.writeByte(0xc0 | (c >> 6));
+                this.writeByte(0x80 | (c & 0x3f));
+            } else if (Character.isHighSurrogate(c) && i + 1 < length && Character.isLowSurrogate(value.charAt(i + 1))) {
+                int codePoint = Character.toCodePoint(c, value.charAt(++i));
+                this.writeByte(0xf0 | (codePoint >> 18));
+                this.writeByte(0x80 | ((codePoint >> 12) & 0x3f));
+                this.writeByte(0x80 | ((codePoint >> 6) & 0x3f));
+                this.writeByte(0x80 | (codePoint & 0x3f));
+            } else if (Character.isSurrogate(c)) {
+                this.writeByte('?');
+            } else {
+                this.writeByte(0xe0 | (c >> 12));
+                this.writeByte(0x80 | ((c >> 6) & 0x3f));
+                this.writeByte(0x80 | (c & 0x3f));
+            }
+        }
+        this.writeByte('"');
+        return this;
+    }
+
+    private void writeEscaped(char c) {
+        this.writeByte('\\');
+        switch (c) {
+            case '"':
+                this.writeByte('"');
+                break;
+            case '\\':
+                this.writeByte('\\');
+                break;
+            case '\b':
+                this.writeByte('b');
+                break;
+            case '\f':
+                this.writeByte('f');
+                break;
+            case '\n':
+                this.writeByte('n');
+                break;
+            case '\r':
+                this.writeByte('r');
+                break;
+            case '\t':
+                this.writeByte('t');
+                break;
+            default:
+                this.writeByte('u');
+                this.writeByte('0');
+                this.writeByte('0');
+                this.writeByte(HEX[(c >> 4) & 0xf]);
+                this.writeByte(HEX[c & 0xf]);
+        }
+    }
+
+    /**
+     * Writes a time as a quoted ISO-8601 timestamp, formatting it straight into the buffer.
+     *
+     * @param epochMillis time in ms since the epoch
+     * @return this JsonWriter
+     */
+    JsonWriter writeTimestamp(long epochMillis) {
+        if (!IsoTimestamp.isFormattable(epochMillis)) {
+            return this.writeString(IsoTimestamp.format(epochMillis));
+        }
+        this.ensureCapacity(IsoTimestamp.LENGTH + 2);
+        this.buffer[this.size++] = '"';
+        this.size = IsoTimestamp.format(epochMillis, this.buffer, this.size);
+        this.buffer[this.size++] = '"';
+        return this;
+    }
+
+    /**
+     * Writes a string known to contain only ASCII characters, without quoting or escaping.
+     *
+     * @param value the string to be written
+     * @return this JsonWriter
+     */
+    JsonWriter writeAscii(String value) {
+        int length = value.length();
+        this.ensureCapacity(length);
+        for (int i = 0; i < length; i++) {
+            this.buffer[this.size++] = (byte) value.charAt(i);
+        }
+        return this;
+    }
+
+    /**
+     * Writes already-encoded JSON text as UTF-8, without quoting or escaping.
+     *
+     * @param json the JSON text to be written
+     * @return this JsonWriter
+     */
+    JsonWriter writeUtf8(String json) {
+        this.writeRaw(json.getBytes(StandardCharsets.UTF_8));
+        return this;
+    }
+
+    /**
+     * Writes the specified bytes as they are.
+     *
+     * @param bytes the bytes to be written
+     * @return this JsonWriter
+     */
+    JsonWriter writeRaw(byte[] bytes) {
+        return this.writeRaw(bytes, 0, bytes.length);
+    }
+
+    /**
+     * Writes a range of the specified bytes as they are.
+     *
+     * @param bytes the bytes to be written
+     * @param offset index of the first byte to be written
+     * @param length number of bytes to be written
+     * @return this JsonWriter
+     */
+    JsonWriter writeRaw(byte[] bytes, int offset, int length) {
+        this.ensureCapacity(length);
+        System.arraycopy(bytes, offset, this.buffer, this.size, length);
+        this.size += length;
+        return this;
+    }
+
+    /**
+     * Writes a single byte.
+     *
+     * @param b the byte to be written
+     * @return this JsonWriter
+     */
+    JsonWriter writeByte(int b) {
+        if (this.size == this.buffer.length) {
+            this.ensureCapacity(1);
+        }
+        this.buffer[this.size++] = (byte) b;
+        return this;
+    }
+
+    private void ensureCapacity(int additional) {
+        int required = this.size + additional;
+        if (required > this.buffer.length) {
+            this.buffer = Arrays.copyOf(this.buffer, Math.max(required, this.buffer.length * 2));
+        }
+    }
+}
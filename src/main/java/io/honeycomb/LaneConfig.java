@@ -0,0 +1,78 @@
+package io.honeycomb;
+
+/**
+ * Configures the lane of the request queue holding the Events of one write key and data set, when lane routing is
+ * enabled.
+ *
+ * Each lane is bounded separately, so a chatty data set overflows its own lane rather than the whole queue.
+ * Senders take Events from the lanes in proportion to their weights, skipping any lane that already has
+ * concurrency Events in flight.  When batching is enabled, an Event stops counting against its lane once it is
+ * added to a batch, so that Events waiting for a batch to fill do not hold the lane.
+ */
+public final class LaneConfig {
+    private final String writeKey;
+    private final String dataSet;
+    private final int queueLength;
+    private final int weight;
+    private final int concurrency;
+
+    /**
+     * Constructs a LaneConfig.
+     *
+     * @param writeKey write key of the Events in the lane
+     * @param dataSet data set of the Events in the lane
+     * @param queueLength maximum number of Events waiting in the lane
+     * @param weight share of the senders' attention given to the lane, relative to other lanes
+     * @param concurrency maximum number of Events from the lane in flight at once, not counting Events in batches
+     */
+    public LaneConfig(String writeKey, String dataSet, int queueLength, int weight, int concurrency) {
+        if (queueLength < 1 || weight < 1 || concurrency < 1) {
+            throw new IllegalArgumentException("queue length, weight and concurrency must be at least 1");
+        }
+        this.writeKey = writeKey;
+        this.dataSet = dataSet;
+        this.queueLength = queueLength;
+        this.weight = weight;
+        this.concurrency = concurrency;
+    }
+
+    /**
+     * Returns the write key of the Events in the lane.
+     * @return the write key of the Events in the lane
+     */
+    public String getWriteKey() {
+        return this.writeKey;
+    }
+
+    /**
+     * Returns the data set of the Events in the lane.
+     * @return the data set of the Events in the lane
+     */
+    public String getDataSet() {
+        return this.dataSet;
+    }
+
+    /**
+     * Returns the maximum number of Events waiting in the lane.
+     * @return the maximum number of Events waiting in the lane
+     */
+    public int getQueueLength() {
+        return this.queueLength;
+    }
+
+    /**
+     * Returns the share of the senders' attention given to the lane, relative to other lanes.
+     * @return the share of the senders' attention given to the lane
+     */
+    public int getWeight() {
+        return this.weight;
+    }
+
+    /**
+     * Returns the maximum number of Events from the lane in flight at once.
+     * @return the maximum number of Events from the lane in flight at once
+     */
+    public int getConcurrency() {
+        return this.concurrency;
+    }
+}
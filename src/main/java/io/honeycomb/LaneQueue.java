@@ -0,0 +1,546 @@
+package io.honeycomb;
+
+import java.util.AbstractQueue;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Consumer;
+
+/**
+ * A request queue made of bounded lanes, one per write key and data set if routing is enabled or else a single
+ * lane, from which senders take Events by priority and then in proportion to the weights of the lanes.
+ *
+ * Each lane holds a FIFO queue per Priority.  Senders take the Events of the highest priority waiting in any ready
+ * lane, that is one with fewer than its concurrency Events in flight; an Event stays in flight from when it is
+ * taken until release is called for it.  Among the ready lanes holding Events of that priority, lanes are chosen
+ * by smooth weighted round robin.  When a lane is full, its oldest Event of the lowest priority below that of a new
+ * Event is evicted to make room and passed to the eviction handler.
+ * Lanes without a LaneConfig are created on demand with the default queue length, a weight of 1 and no limit on
+ * concurrency, and removed again once they are idle.  Together they hold at most the default queue length of
+ * Events, so the memory held by the queue stays bounded however many data sets are sent to.  When that bound is
+ * reached, a new Event evicts an Event of a lower priority from one of those lanes or, failing that, an Event of
+ * no higher priority from the largest of them, as long as its own lane stays no larger than that one; a lane
+ * holding more than its share of the bound cannot hold up the others.
+ * Requests other than Events, such as the POISON_PILL, wait in a separate queue and are only taken once every lane
+ * is empty, so that queued Events are sent first.
+ */
+final class LaneQueue extends AbstractQueue<Object> implements BlockingQueue<Object> {
+    /**
+     * A lane and its scheduling state, all guarded by the queue's lock.
+     */
+    private static final class Lane {
+        private final String key;
+        private final int capacity;
+        private final int weight;
+        private final int concurrency;
+        private final boolean configured;
+        private final ArrayDeque<Event>[] levels;
+        private int size;
+        private int inFlight;
+        private int currentWeight;
+
+        @SuppressWarnings("unchecked")
+        private Lane(String key, int capacity, int weight, int concurrency, boolean configured) {
+            this.key = key;
+            this.capacity = capacity;
+            this.weight = weight;
+            this.concurrency = concurrency;
+            this.configured = configured;
+            this.levels = new ArrayDeque[PRIORITIES.length];
+            for (int i = 0; i < this.levels.length; i++) {
+                this.levels[i] = new ArrayDeque<>();
+            }
+        }
+
+        private boolean isReady() {
+            return this.size > 0 && this.inFlight < this.concurrency;
+        }
+
+        /**
+         * Returns the highest priority level holding an Event, or -1 if the lane is empty.
+         */
+        private int topLevel() {
+            for (int i = this.levels.length - 1; i >= 0; i--) {
+                if (!this.levels[i].isEmpty()) {
+                    return i;
+                }
+            }
+            return -1;
+        }
+
+        /**
+         * Removes and returns the oldest Event of the lowest priority level below the specified level, or null.
+         */
+        private Event evictBelow(int level) {
+            for (int i = 0; i < level; i++) {
+                if (!this.levels[i].isEmpty()) {
+                    this.size--;
+                    return this.levels[i].poll();
+                }
+            }
+            return null;
+        }
+    }
+
+    private static final Priority[] PRIORITIES = Priority.values();
+
+    private final ReentrantLock lock = new ReentrantLock();
+    private final Condition notEmpty = this.lock.newCondition();
+    private final Condition notFull = this.lock.newCondition();
+    private final Map<String, Lane> lanes = new HashMap<>();
+    private final List<Lane> order = new ArrayList<>();
+    private final ArrayDeque<Object> others = new ArrayDeque<>();
+    private final int defaultCapacity;
+    private final boolean routing;
+    private final Consumer<Event> evictionHandler;
+    private int size;
+    private int onDemandSize;
+    private Event evicted;
+
+    /**
+     * Constructs a LaneQueue.
+     *
+     * @param configs configuration of the lanes whose queue length, weight or concurrency differ from the defaults
+     * @param defaultCapacity queue length of each lane without a LaneConfig, and of all of them together
+     * @param routing true to give each write key and data set its own lane, or false to use a single lane
+     * @param evictionHandler called, without holding the queue's lock, with each Event evicted to make room
+     */
+    LaneQueue(List<LaneConfig> configs, int defaultCapacity, boolean routing, Consumer<Event> evictionHandler) {
+        if (defaultCapacity < 1) {
+            throw new IllegalArgumentException("capacity must be positive");
+        }
+        this.defaultCapacity = defaultCapacity;
+        this.routing = routing;
+        this.evictionHandler = evictionHandler;
+        for (LaneConfig config : configs) {
+            String key = key(config.getWriteKey(), config.getDataSet());
+            Lane lane = new Lane(key, config.getQueueLength(), config.getWeight(), config.getConcurrency(), true);
+            this.lanes.put(key, lane);
+            this.order.add(lane);
+        }
+    }
+
+    private static String key(String writeKey, String dataSet) {
+        return writeKey + '\u0000' + dataSet;
+    }
+
+    private String keyOf(Event event) {
+        return this.routing ? key(event.getWriteKey(), event.getDataSet()) : "";
+    }
+
+    /**
+     * Returns the lane of the specified Event, creating it if needed.  Must be called while holding the lock.
+     */
+    private Lane laneOf(Event event) {
+        String key = this.keyOf(event);
+        Lane lane = this.lanes.get(key);
+        if (lane == null) {
+            lane = new Lane(key, this.defaultCapacity, 1, Integer.MAX_VALUE, false);
+            this.lanes.put(key, lane);
+            this.order.add(lane);
+        }
+        return lane;
+    }
+
+    /**
+     * Removes a lane created on demand once it holds no Events and has none in flight.  Must be called while
+     * holding the lock.
+     */
+    private void removeIfIdle(Lane lane) {
+        if (!lane.configured && lane.size == 0 && lane.inFlight == 0) {
+            this.lanes.remove(lane.key);
+            this.order.remove(lane);
+        }
+    }
+
+    /**
+     * Adds a request if there is room for it, evicting an Event of a lower priority if needed, and signals a
+     * waiting sender.  An evicted Event is left in the evicted field for the caller to hand to the eviction handler
+     * once it has released the lock.  Must be called while holding the lock.
+     */
+    private boolean enqueue(Object o) {
+        if (o instanceof Event) {
+            Event event = (Event) o;
+            Lane lane = this.laneOf(event);
+            int level = event.getPriority().ordinal();
+            if (lane.size >= lane.capacity || !lane.configured && this.onDemandSize >= this.defaultCapacity) {
+                this.evicted = lane.size >= lane.capacity
+                        ? this.evictBelow(lane, level) : this.evictOnDemandBelow(lane, level);
+                if (this.evicted == null) {
+                    this.removeIfIdle(lane);
+                    return false;
+                }
+            }
+            lane.levels[level].add(event);
+            lane.size++;
+            if (!lane.configured) {
+                this.onDemandSize++;
+            }
+        } else {
+            this.others.add(o);
+        }
+        this.size++;
+        this.notEmpty.signal();
+        return true;
+    }
+
+    /**
+     * Removes and returns the oldest Event of the lowest priority below the specified level in a lane, or null.
+     * Must be called while holding the lock.
+     */
+    private Event evictBelow(Lane lane, int level) {
+        Event evicted = lane.evictBelow(level);
+        if (evicted != null) {
+            this.size--;
+            if (!lane.configured) {
+                this.onDemandSize--;
+            }
+        }
+        return evicted;
+    }
+
+    /**
+     * Removes and returns an Event of a priority below the specified level from the specified lane created on
+     * demand or, failing that, from any other such lane.  Failing that too, removes an Event of a priority no
+     * higher than the specified level from the largest other lane created on demand, if it holds more than one
+     * Event more than the specified lane.  Returns null if no Event is removed.  Must be called while holding the
+     * lock.
+     */
+    private Event evictOnDemandBelow(Lane lane, int level) {
+        Event evicted = this.evictBelow(lane, level);
+        Lane largest = null;
+        for (int i = 0; evicted == null && i < this.order.size(); i++) {
+            Lane other = this.order.get(i);
+            if (!other.configured && other != lane) {
+                evicted = this.evictBelow(other, level);
+                if (evicted != null) {
+                    this.removeIfIdle(other);
+                } else if (largest == null || other.size > largest.size) {
+                    largest = other;
+                }
+            }
+        }
+        if (evicted == null && largest != null && largest.size > lane.size + 1) {
+            evicted = this.evictBelow(largest, level + 1);
+            if (evicted != null) {
+                this.removeIfIdle(largest);
+            }
+        }
+        return evicted;
+    }
+
+    /**
+     * Removes the next request: an Event from the lane chosen by smooth weighted round robin, or another request
+     * once every lane is empty.  Returns null if there is none ready.  Must be called while holding the lock.
+     */
+    private Object dequeue() {
+        int level = -1;
+        boolean pending = false;
+        for (Lane lane : this.order) {
+            if (lane.size > 0) {
+                pending = true;
+            }
+            if (lane.isReady()) {
+                level = Math.max(level, lane.topLevel());
+            }
+        }
+
+        Lane chosen = null;
+        int totalWeight = 0;
+        for (Lane lane : this.order) {
+            if (lane.isReady() && lane.topLevel() == level) {
+                lane.currentWeight += lane.weight;
+                totalWeight += lane.weight;
+                if (chosen == null || lane.currentWeight > chosen.currentWeight) {
+                    chosen = lane;
+                }
+            }
+        }
+        if (chosen != null) {
+            chosen.currentWeight -= totalWeight;
+            chosen.inFlight++;
+            chosen.size--;
+            if (!chosen.configured) {
+                this.onDemandSize--;
+            }
+            this.size--;
+            this.notFull.signalAll();
+            return chosen.levels[level].poll();
+        }
+        if (!pending && !this.others.isEmpty()) {
+            this.size--;
+            return this.others.poll();
+        }
+        return null;
+    }
+
+    /**
+     * Marks an Event taken from this queue as no longer in flight, letting its lane send another.
+     *
+     * @param event the Event whose request has completed
+     */
+    void release(Event event) {
+        this.lock.lock();
+        try {
+            Lane lane = this.lanes.get(this.keyOf(event));
+            if (lane != null && lane.inFlight > 0) {
+                lane.inFlight--;
+                this.removeIfIdle(lane);
+                this.notEmpty.signal();
+            }
+        } finally {
+            this.lock.unlock();
+        }
+    }
+
+    @Override
+    public boolean offer(Object o) {
+        if (o == null) {
+            throw new NullPointerException();
+        }
+        boolean added;
+        Event evicted;
+        this.lock.lock();
+        try {
+            added = this.enqueue(o);
+            evicted = this.takeEvicted();
+        } finally {
+            this.lock.unlock();
+        }
+        this.evict(evicted);
+        return added;
+    }
+
+    /**
+     * Returns and clears the Event evicted by the last call to enqueue.  Must be called while holding the lock.
+     */
+    private Event takeEvicted() {
+        Event evicted = this.evicted;
+        this.evicted = null;
+        return evicted;
+    }
+
+    private void evict(Event evicted) {
+        if (evicted != null) {
+            this.evictionHandler.accept(evicted);
+        }
+    }
+
+    @Override
+    public void put(Object o) throws InterruptedException {
+        if (o == null) {
+            throw new NullPointerException();
+        }
+        Event evicted;
+        this.lock.lockInterruptibly();
+        try {
+            while (!this.enqueue(o)) {
+                this.notFull.await();
+            }
+            evicted = this.takeEvicted();
+        } finally {
+            this.lock.unlock();
+        }
+        this.evict(evicted);
+    }
+
+    @Override
+    public boolean offer(Object o, long timeout, TimeUnit unit) throws InterruptedException {
+        if (o == null) {
+            throw new NullPointerException();
+        }
+        long nanos = unit.toNanos(timeout);
+        Event evicted;
+        this.lock.lockInterruptibly();
+        try {
+            while (!this.enqueue(o)) {
+                if (nanos <= 0) {
+                    return false;
+                }
+                nanos = this.notFull.awaitNanos(nanos);
+            }
+            evicted = this.takeEvicted();
+        } finally {
+            this.lock.unlock();
+        }
+        this.evict(evicted);
+        return true;
+    }
+
+    @Override
+    public Object poll() {
+        this.lock.lock();
+        try {
+            return this.dequeue();
+        } finally {
+            this.lock.unlock();
+        }
+    }
+
+    @Override
+    public Object take() throws InterruptedException {
+        this.lock.lockInterruptibly();
+        try {
+            Object o;
+            while ((o = this.dequeue()) == null) {
+                this.notEmpty.await();
+            }
+            return o;
+        } finally {
+            this.lock.unlock();
+        }
+    }
+
+    @Override
+    public Object poll(long timeout, TimeUnit unit) throws InterruptedException {
+        long nanos = unit.toNanos(timeout);
+        this.lock.lockInterruptibly();
+        try {
+            Object o;
+            while ((o = this.dequeue()) == null) {
+                if (nanos <= 0) {
+                    return null;
+                }
+                nanos = this.notEmpty.awaitNanos(nanos);
+            }
+            return o;
+        } finally {
+            this.lock.unlock();
+        }
+    }
+
+    /**
+     * Returns an Event of the highest priority waiting in a ready lane, or else the next other request, without
+     * removing it or changing the order in which lanes are chosen.
+     * @return the next request, or null if there is none
+     */
+    @Override
+    public Object peek() {
+        this.lock.lock();
+        try {
+            Event next = null;
+            int level = -1;
+            for (Lane lane : this.order) {
+                if (lane.isReady() && lane.topLevel() > level) {
+                    level = lane.topLevel();
+                    next = lane.levels[level].peek();
+                }
+            }
+            return next != null ? next : this.others.peek();
+        } finally {
+            this.lock.unlock();
+        }
+    }
+
+    /**
+     * Returns the number of Events that the lanes could take without evicting any: the room left in each lane with
+     * a LaneConfig plus the room left in the lanes created on demand together.  An Event fits only if its own lane
+     * has room, and other requests are never refused.
+     * @return the number of Events that this queue could take without evicting any
+     */
+    @Override
+    public int remainingCapacity() {
+        this.lock.lock();
+        try {
+            int remaining = Math.max(0, this.defaultCapacity - this.onDemandSize);
+            for (Lane lane : this.order) {
+                if (lane.configured) {
+                    remaining += Math.max(0, lane.capacity - lane.size);
+                }
+            }
+            return remaining;
+        } finally {
+            this.lock.unlock();
+        }
+    }
+
+    @Override
+    public int drainTo(Collection<? super Object> c) {
+        return this.drainTo(c, Integer.MAX_VALUE);
+    }
+
+    @Override
+    public int drainTo(Collection<? super Object> c, int maxElements) {
+        if (c == this) {
+            throw new IllegalArgumentException();
+        }
+        int n = 0;
+        Object o;
+        while (n < maxElements && (o = this.poll()) != null) {
+            c.add(o);
+            n++;
+        }
+        return n;
+    }
+
+    /**
+     * Returns the number of requests waiting in every lane and in the queue of other requests.
+     * @return the number of requests waiting in this queue
+     */
+    @Override
+    public int size() {
+        this.lock.lock();
+        try {
+            return this.size;
+        } finally {
+            this.lock.unlock();
+        }
+    }
+
+    /**
+     * Returns the number of Events waiting in the lane of the specified write key and data set.
+     *
+     * @param writeKey write key of the lane
+     * @param dataSet data set of the lane
+     * @return the number of Events waiting in the lane
+     */
+    int laneSize(String writeKey, String dataSet) {
+        this.lock.lock();
+        try {
+            Lane lane = this.lanes.get(this.routing ? key(writeKey, dataSet) : "");
+            return lane == null ? 0 : lane.size;
+        } finally {
+            this.lock.unlock();
+        }
+    }
+
+    /**
+     * Returns an iterator over a snapshot of the requests in this queue.  The iterator does not support removal.
+     * @return an iterator over a snapshot of the requests in this queue
+     */
+    @Override
+    public Iterator<Object> iterator() {
+        List<Object> snapshot = new ArrayList<>();
+        this.lock.lock();
+        try {
+            for (Lane lane : this.order) {
+                for (int i = lane.levels.length - 1; i >= 0; i--) {
+                    snapshot.addAll(lane.levels[i]);
+                }
+            }
+            snapshot.addAll(this.others);
+        } finally {
+            this.lock.unlock();
+        }
+        Iterator<Object> it = snapshot.iterator();
+        return new Iterator<Object>() {
+            @Override
+            public boolean hasNext() {
+                return it.hasNext();
+            }
+
+            @Override
+            public Object next() {
+                return it.next();
+            }
+        };
+    }
+}
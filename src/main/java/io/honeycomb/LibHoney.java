@@ -5,7 +5,10 @@ import org.apache.commons.logging.LogFactory;
 import org.json.JSONException;
 import org.json.JSONObject;
 
-import java.util.HashMap;
+import java.time.Clock;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
 import java.util.Map;
 import java.util.Queue;
 import java.util.concurrent.Callable;
@@ -15,12 +18,16 @@ import java.util.concurrent.Callable;
  */
 public final class LibHoney {
     /**
-     * Builder contains the default mappings for Builders.
+     * Builder contains the default mappings for Builders.  The mappings are copy-on-write, so they may be changed
+     * from any thread while other threads create Builders from them.
+     * FieldKeys holds the field names registered with fieldKey(), whose JSON encodings Transmission reuses.
      * Transmission contains the global instance of Transmission.
      * All other metadata is used as default values for Events and Transmission.
      */
-    private HashMap<String, Object> fields;
-    private HashMap<String, Callable> dynFields;
+    private final CopyOnWriteFields<Object> fields;
+    private final CopyOnWriteFields<Callable> dynFields;
+    private volatile FieldLayer fieldLayer;
+    private final FieldKeys fieldKeys;
     private Transmission transmission;
 
     // Metadata
@@ -35,6 +42,37 @@ public final class LibHoney {
     private final int requestQueueLength;
     private final int responseQueueLength;
     private final String userAgent;
+    private final boolean batching;
+    private final int maxBatchSize;
+    private final int maxBatchBytes;
+    private final int batchTimeout;
+    private final int connectTimeout;
+    private final int socketTimeout;
+    private final int idleConnectionTimeout;
+    private final int maxConnections;
+    private final boolean asyncTransport;
+    private final int ioThreads;
+    private final Transport transport;
+    private final boolean lockFreeRequestQueue;
+    private final int compressionLevel;
+    private final int compressionMinSize;
+    private final ResponseObserver responseObserver;
+    private final String spoolDirectory;
+    private final long spoolMaxBytes;
+    private final int spoolSegmentBytes;
+    private final int spoolReplayRate;
+    private final int maxRetries;
+    private final int retryBaseDelay;
+    private final int retryMaxDelay;
+    private final double retryBudget;
+    private final boolean adaptiveConcurrency;
+    private final Sampler sampler;
+    private final Clock clock;
+    private final boolean laneRouting;
+    private final List<LaneConfig> lanes;
+    private final boolean prioritization;
+    private final boolean virtualThreads;
+    private final int eventPoolSize;
 
     // Logging
     private final Log log = LogFactory.getLog(LibHoney.class);
@@ -55,9 +93,41 @@ public final class LibHoney {
         this.requestQueueLength = builder.requestQueueLength;
         this.responseQueueLength = builder.responseQueueLength;
         this.userAgent = builder.userAgent;
-
-        this.fields = new HashMap<>();
-        this.dynFields = new HashMap<>();
+        this.batching = builder.batching;
+        this.maxBatchSize = builder.maxBatchSize;
+        this.maxBatchBytes = builder.maxBatchBytes;
+        this.batchTimeout = builder.batchTimeout;
+        this.connectTimeout = builder.connectTimeout;
+        this.socketTimeout = builder.socketTimeout;
+        this.idleConnectionTimeout = builder.idleConnectionTimeout;
+        this.maxConnections = builder.maxConnections;
+        this.asyncTransport = builder.asyncTransport;
+        this.ioThreads = builder.ioThreads;
+        this.transport = builder.transport;
+        this.lockFreeRequestQueue = builder.lockFreeRequestQueue;
+        this.compressionLevel = builder.compressionLevel;
+        this.compressionMinSize = builder.compressionMinSize;
+        this.responseObserver = builder.responseObserver;
+        this.spoolDirectory = builder.spoolDirectory;
+        this.spoolMaxBytes = builder.spoolMaxBytes;
+        this.spoolSegmentBytes = builder.spoolSegmentBytes;
+        this.spoolReplayRate = builder.spoolReplayRate;
+        this.maxRetries = builder.maxRetries;
+        this.retryBaseDelay = builder.retryBaseDelay;
+        this.retryMaxDelay = builder.retryMaxDelay;
+        this.retryBudget = builder.retryBudget;
+        this.adaptiveConcurrency = builder.adaptiveConcurrency;
+        this.sampler = builder.sampler;
+        this.clock = builder.clock;
+        this.laneRouting = builder.laneRouting;
+        this.lanes = Collections.unmodifiableList(new ArrayList<>(builder.lanes));
+        this.prioritization = builder.prioritization;
+        this.virtualThreads = builder.virtualThreads;
+        this.eventPoolSize = builder.eventPoolSize;
+
+        this.fields = new CopyOnWriteFields<>();
+        this.dynFields = new CopyOnWriteFields<>();
+        this.fieldKeys = new FieldKeys();
         this.transmission = new Transmission.Builder(this).build();
     }
 
@@ -76,6 +146,37 @@ public final class LibHoney {
         private int requestQueueLength = Constants.DEFAULT_REQUEST_QUEUE_LENGTH;
         private int responseQueueLength = Constants.DEFAULT_RESPONSE_QUEUE_LENGTH;
         private String userAgent = Constants.DEFAULT_USER_AGENT;
+        private boolean batching = Constants.DEFAULT_BATCHING;
+        private int maxBatchSize = Constants.DEFAULT_MAX_BATCH_SIZE;
+        private int maxBatchBytes = Constants.DEFAULT_MAX_BATCH_BYTES;
+        private int batchTimeout = Constants.DEFAULT_BATCH_TIMEOUT;
+        private int connectTimeout = Constants.DEFAULT_CONNECT_TIMEOUT;
+        private int socketTimeout = Constants.DEFAULT_SOCKET_TIMEOUT;
+        private int idleConnectionTimeout = Constants.DEFAULT_IDLE_CONNECTION_TIMEOUT;
+        private int maxConnections = Constants.DEFAULT_MAX_CONNECTIONS;
+        private boolean asyncTransport = Constants.DEFAULT_ASYNC_TRANSPORT;
+        private int ioThreads = Constants.DEFAULT_IO_THREADS;
+        private Transport transport;
+        private boolean lockFreeRequestQueue = Constants.DEFAULT_LOCK_FREE_REQUEST_QUEUE;
+        private int compressionLevel = Constants.DEFAULT_COMPRESSION_LEVEL;
+        private int compressionMinSize = Constants.DEFAULT_COMPRESSION_MIN_SIZE;
+        private ResponseObserver responseObserver;
+        private String spoolDirectory;
+        private long spoolMaxBytes = Constants.DEFAULT_SPOOL_MAX_BYTES;
+        private int spoolSegmentBytes = Constants.DEFAULT_SPOOL_SEGMENT_BYTES;
+        private int spoolReplayRate = Constants.DEFAULT_SPOOL_REPLAY_RATE;
+        private int maxRetries = Constants.DEFAULT_MAX_RETRIES;
+        private int retryBaseDelay = Constants.DEFAULT_RETRY_BASE_DELAY;
+        private int retryMaxDelay = Constants.DEFAULT_RETRY_MAX_DELAY;
+        private double retryBudget = Constants.DEFAULT_RETRY_BUDGET;
+        private boolean adaptiveConcurrency = Constants.DEFAULT_ADAPTIVE_CONCURRENCY;
+        private Sampler sampler = Constants.DEFAULT_SAMPLER;
+        private Clock clock = Constants.DEFAULT_CLOCK;
+        private boolean laneRouting = Constants.DEFAULT_LANE_ROUTING;
+        private List<LaneConfig> lanes = new ArrayList<>();
+        private boolean prioritization = Constants.DEFAULT_PRIORITIZATION;
+        private boolean virtualThreads = Constants.DEFAULT_VIRTUAL_THREADS;
+        private int eventPoolSize = Constants.DEFAULT_EVENT_POOL_SIZE;
 
         public Builder writeKey(String writeKey) {
             this.writeKey = writeKey;
@@ -132,6 +233,175 @@ public final class LibHoney {
             return this;
         }
 
+        public Builder batching(boolean batching) {
+            this.batching = batching;
+            return this;
+        }
+
+        public Builder maxBatchSize(int maxBatchSize) {
+            this.maxBatchSize = maxBatchSize;
+            return this;
+        }
+
+        public Builder maxBatchBytes(int maxBatchBytes) {
+            this.maxBatchBytes = maxBatchBytes;
+            return this;
+        }
+
+        public Builder batchTimeout(int batchTimeout) {
+            this.batchTimeout = batchTimeout;
+            return this;
+        }
+
+        public Builder connectTimeout(int connectTimeout) {
+            this.connectTimeout = connectTimeout;
+            return this;
+        }
+
+        public Builder socketTimeout(int socketTimeout) {
+            this.socketTimeout = socketTimeout;
+            return this;
+        }
+
+        public Builder idleConnectionTimeout(int idleConnectionTimeout) {
+            this.idleConnectionTimeout = idleConnectionTimeout;
+            return this;
+        }
+
+        public Builder maxConnections(int maxConnections) {
+            this.maxConnections = maxConnections;
+            return this;
+        }
+
+        public Builder asyncTransport(boolean asyncTransport) {
+            this.asyncTransport = asyncTransport;
+            return this;
+        }
+
+        public Builder ioThreads(int ioThreads) {
+            this.ioThreads = ioThreads;
+            return this;
+        }
+
+        public Builder transport(Transport transport) {
+            this.transport = transport;
+            return this;
+        }
+
+        public Builder lockFreeRequestQueue(boolean lockFreeRequestQueue) {
+            this.lockFreeRequestQueue = lockFreeRequestQueue;
+            return this;
+        }
+
+        public Builder compressionLevel(int compressionLevel) {
+            this.compressionLevel = compressionLevel;
+            return this;
+        }
+
+        public Builder compressionMinSize(int compressionMinSize) {
+            this.compressionMinSize = compressionMinSize;
+            return this;
+        }
+
+        /**
+         * Sets an observer to which every Response is passed.  Responses are still converted to JSONObjects and
+         * added to the response queue as well, so set responseQueueLength(0) when only the observer is used.
+         *
+         * @param responseObserver observer to which every Response is passed
+         * @return this Builder
+         */
+        public Builder responseObserver(ResponseObserver responseObserver) {
+            this.responseObserver = responseObserver;
+            return this;
+        }
+
+        public Builder spoolDirectory(String spoolDirectory) {
+            this.spoolDirectory = spoolDirectory;
+            return this;
+        }
+
+        public Builder spoolMaxBytes(long spoolMaxBytes) {
+            this.spoolMaxBytes = spoolMaxBytes;
+            return this;
+        }
+
+        public Builder spoolSegmentBytes(int spoolSegmentBytes) {
+            this.spoolSegmentBytes = spoolSegmentBytes;
+            return this;
+        }
+
+        public Builder spoolReplayRate(int spoolReplayRate) {
+            this.spoolReplayRate = spoolReplayRate;
+            return this;
+        }
+
+        public Builder maxRetries(int maxRetries) {
+            this.maxRetries = maxRetries;
+            return this;
+        }
+
+        public Builder retryBaseDelay(int retryBaseDelay) {
+            this.retryBaseDelay = retryBaseDelay;
+            return this;
+        }
+
+        public Builder retryMaxDelay(int retryMaxDelay) {
+            this.retryMaxDelay = retryMaxDelay;
+            return this;
+        }
+
+        public Builder retryBudget(double retryBudget) {
+            this.retryBudget = retryBudget;
+            return this;
+        }
+
+        public Builder adaptiveConcurrency(boolean adaptiveConcurrency) {
+            this.adaptiveConcurrency = adaptiveConcurrency;
+            return this;
+        }
+
+        public Builder sampler(Sampler sampler) {
+            this.sampler = sampler;
+            return this;
+        }
+
+        public Builder clock(Clock clock) {
+            this.clock = clock;
+            return this;
+        }
+
+        public Builder laneRouting(boolean laneRouting) {
+            this.laneRouting = laneRouting;
+            return this;
+        }
+
+        public Builder lanes(List<LaneConfig> lanes) {
+            this.lanes = new ArrayList<>(lanes);
+            this.laneRouting |= !lanes.isEmpty();
+            return this;
+        }
+
+        public Builder lane(LaneConfig lane) {
+            this.lanes.add(lane);
+            this.laneRouting = true;
+            return this;
+        }
+
+        public Builder prioritization(boolean prioritization) {
+            this.prioritization = prioritization;
+            return this;
+        }
+
+        public Builder virtualThreads(boolean virtualThreads) {
+            this.virtualThreads = virtualThreads;
+            return this;
+        }
+
+        public Builder eventPoolSize(int eventPoolSize) {
+            this.eventPoolSize = eventPoolSize;
+            return this;
+        }
+
         public LibHoney build() {
             return new LibHoney(this);
         }
@@ -174,6 +444,19 @@ public final class LibHoney {
         this.fields.put(key, value);
     }
 
+    /**
+     * Returns the FieldKey for the specified field name, registering it so that its JSON encoding is cached and
+     * copied whenever an Event with the field is serialized.  The FieldKey can be kept and passed to
+     * Event.addField() by call sites that add the field to many Events, whose Events then carry the encoding with
+     * the value and write it without looking up the name.
+     *
+     * @param name the field name
+     * @return the FieldKey for the field name
+     */
+    public FieldKey fieldKey(String name) {
+        return this.fieldKeys.register(name);
+    }
+
     /**
      * Closes Transmission
      */
@@ -181,6 +464,14 @@ public final class LibHoney {
         this.transmission.close();
     }
 
+    /**
+     * Returns true if the number of requests in flight adapts to throttling and latency.
+     * @return true if the number of requests in flight adapts to throttling and latency
+     */
+    public boolean getAdaptiveConcurrency() {
+        return this.adaptiveConcurrency;
+    }
+
     /**
      * Returns the API host for this LibHoney.
      * @return the API host for this LibHoney
@@ -189,6 +480,30 @@ public final class LibHoney {
         return this.apiHost;
     }
 
+    /**
+     * Returns true if a non-blocking transport is used.
+     * @return true if a non-blocking transport is used
+     */
+    public boolean getAsyncTransport() {
+        return this.asyncTransport;
+    }
+
+    /**
+     * Returns true if events are sent in batches to the batch endpoint.
+     * @return true if events are sent in batches to the batch endpoint
+     */
+    public boolean getBatching() {
+        return this.batching;
+    }
+
+    /**
+     * Returns the maximum number of ms an event waits in a batch before the batch is sent.
+     * @return the maximum number of ms an event waits in a batch before the batch is sent
+     */
+    public int getBatchTimeout() {
+        return this.batchTimeout;
+    }
+
     /**
      * Returns true if this LibHoney should block on response.
      * @return true if this LibHoney should block on response
@@ -205,6 +520,14 @@ public final class LibHoney {
         return this.blockOnSend;
     }
 
+    /**
+     * Returns the clock from which Events take their creation time.
+     * @return the clock from which Events take their creation time
+     */
+    public Clock getClock() {
+        return this.clock;
+    }
+
     /**
      * Returns number of seconds Transmission's close method will wait before timing out.
      * @return number of seconds Transmission's close method will wait before timing out
@@ -213,6 +536,30 @@ public final class LibHoney {
         return this.closeTimeout;
     }
 
+    /**
+     * Returns the gzip compression level for request bodies, from 1 to 9, or 0 if bodies are not compressed.
+     * @return the gzip compression level for request bodies, or 0 if bodies are not compressed
+     */
+    public int getCompressionLevel() {
+        return this.compressionLevel;
+    }
+
+    /**
+     * Returns the minimum size in bytes of a request body that is compressed.
+     * @return the minimum size in bytes of a request body that is compressed
+     */
+    public int getCompressionMinSize() {
+        return this.compressionMinSize;
+    }
+
+    /**
+     * Returns the number of ms to wait while establishing a connection before timing out.
+     * @return the number of ms to wait while establishing a connection before timing out
+     */
+    public int getConnectTimeout() {
+        return this.connectTimeout;
+    }
+
     /**
      * Returns the data set identifier for this LibHoney.
      * @return the data set identifier for this LibHoney
@@ -222,19 +569,115 @@ public final class LibHoney {
     }
 
     /**
-     * Returns dynamic fields for this LibHoney.
+     * Returns an unmodifiable snapshot of the dynamic fields for this LibHoney.
      * @return dynamic fields for this LibHoney
      */
     public Map <String, Callable> getDynFields() {
+        return this.dynFields.snapshot();
+    }
+
+    /**
+     * Returns the copy-on-write store of dynamic fields, which Builders share rather than copy.
+     * @return the copy-on-write store of dynamic fields
+     */
+    CopyOnWriteFields<Callable> getDynFieldStore() {
         return this.dynFields;
     }
 
     /**
-     * Returns fields for this LibHoney.
+     * Returns the maximum number of sent Events kept for reuse, or 0 if Events are not recycled.
+     * @return the maximum number of sent Events kept for reuse, or 0 if Events are not recycled
+     */
+    public int getEventPoolSize() {
+        return this.eventPoolSize;
+    }
+
+    /**
+     * Returns the field names registered with fieldKey().
+     * @return the field names registered with fieldKey()
+     */
+    FieldKeys getFieldKeys() {
+        return this.fieldKeys;
+    }
+
+    /**
+     * Returns an unmodifiable snapshot of the fields for this LibHoney.
      * @return fields for this LibHoney
      */
     public Map<String, Object> getFields() {
-        return this.fields;
+        return this.fields.snapshot();
+    }
+
+    /**
+     * Returns the current fields as a frozen layer, which Builders inherit rather than copy.  The layer is reused
+     * until the fields change.
+     * @return the current fields as a frozen layer
+     */
+    FieldLayer getFieldLayer() {
+        Map<String, Object> snapshot = this.fields.snapshot();
+        FieldLayer layer = this.fieldLayer;
+        if (layer == null || layer.getFields() != snapshot) {
+            layer = new FieldLayer(snapshot, null);
+            this.fieldLayer = layer;
+        }
+        return layer;
+    }
+
+    /**
+     * Returns the number of ms a pooled connection may stay idle before it is closed.
+     * @return the number of ms a pooled connection may stay idle before it is closed
+     */
+    public int getIdleConnectionTimeout() {
+        return this.idleConnectionTimeout;
+    }
+
+    /**
+     * Returns the number of I/O threads used by a non-blocking transport.
+     * @return the number of I/O threads used by a non-blocking transport
+     */
+    public int getIoThreads() {
+        return this.ioThreads;
+    }
+
+    /**
+     * Returns true if the request queue has a separate lane for each write key and data set.
+     * @return true if the request queue has a separate lane for each write key and data set
+     */
+    public boolean getLaneRouting() {
+        return this.laneRouting;
+    }
+
+    /**
+     * Returns the configuration of lanes that differ from the default lane.  Lanes are only used with lane routing,
+     * which configuring any lane through lane or lanes enables.
+     * @return the configuration of lanes that differ from the default lane
+     */
+    public List<LaneConfig> getLanes() {
+        return this.lanes;
+    }
+
+    /**
+     * Returns true if the request queue is a lock-free ring buffer.
+     * @return true if the request queue is a lock-free ring buffer
+     */
+    public boolean getLockFreeRequestQueue() {
+        return this.lockFreeRequestQueue;
+    }
+
+    /**
+     * Returns the maximum size of a batch body in bytes.
+     * @return the maximum size of a batch body in bytes
+     */
+    public int getMaxBatchBytes() {
+        return this.maxBatchBytes;
+    }
+
+    /**
+     * Returns the maximum number of events in a batch.
+     * @return the maximum number of events in a batch
+     */
+    public int getMaxBatchSize() {
+        return this.maxBatchSize;
     }
 
     /**
@@ -245,6 +688,38 @@ public final class LibHoney {
         return this.maxConcurrentBranches;
     }
 
+    /**
+     * Returns the maximum number of pooled HTTP connections, or 0 to size the pool from maxConcurrentBranches.
+     * @return the maximum number of pooled HTTP connections
+     */
+    public int getMaxConnections() {
+        return this.maxConnections;
+    }
+
+    /**
+     * Returns the maximum number of times an event that failed with a retryable error is sent again.
+     * @return the maximum number of times an event that failed with a retryable error is sent again
+     */
+    public int getMaxRetries() {
+        return this.maxRetries;
+    }
+
+    /**
+     * Returns the metrics describing the queues and requests of this LibHoney's Transmission.
+     * @return the metrics describing the queues and requests of this LibHoney's Transmission
+     */
+    public Metrics getMetrics() {
+        return this.transmission.getMetrics();
+    }
+
+    /**
+     * Returns true if Events of a higher priority are sent first and dropped last.
+     * @return true if Events of a higher priority are sent first and dropped last
+     */
+    public boolean getPrioritization() {
+        return this.prioritization;
+    }
+
     /**
      * Returns the request queue for this LibHoney.
      * @return the request queue for this LibHoney
@@ -262,7 +737,15 @@ public final class LibHoney {
     }
 
     /**
-     * Returns the response queue for this LibHoney
+     * Returns the observer to which every Response is passed, or null if there is none.
+     * @return the observer to which every Response is passed, or null if there is none
+     */
+    public ResponseObserver getResponseObserver() {
+        return this.responseObserver;
+    }
+
+    /**
+     * Returns the response queue for this LibHoney, or null if the response queue length is 0
      * @return the response queue for this LibHoney
      */
     public Queue getResponseQueue() {
@@ -277,6 +760,38 @@ public final class LibHoney {
         return this.responseQueueLength;
     }
 
+    /**
+     * Returns the maximum backoff in ms before the first retry of an event.
+     * @return the maximum backoff in ms before the first retry of an event
+     */
+    public int getRetryBaseDelay() {
+        return this.retryBaseDelay;
+    }
+
+    /**
+     * Returns the number of retries earned by each event sent, which bounds the extra load added by retries.
+     * @return the number of retries earned by each event sent, which bounds the extra load added by retries
+     */
+    public double getRetryBudget() {
+        return this.retryBudget;
+    }
+
+    /**
+     * Returns the maximum backoff in ms before any retry of an event.
+     * @return the maximum backoff in ms before any retry of an event
+     */
+    public int getRetryMaxDelay() {
+        return this.retryMaxDelay;
+    }
+
+    /**
+     * Returns the sampler that decides which events are sent, and at what sample rate.
+     * @return the sampler that decides which events are sent, and at what sample rate
+     */
+    public Sampler getSampler() {
+        return this.sampler;
+    }
+
     /**
      * Returns the sample rate for this LibHoney.
      * @return the sample rate for this LibHoney
@@ -285,6 +800,46 @@ public final class LibHoney {
         return this.sampleRate;
     }
 
+    /**
+     * Returns the number of ms to wait for data on an open connection before timing out.
+     * @return the number of ms to wait for data on an open connection before timing out
+     */
+    public int getSocketTimeout() {
+        return this.socketTimeout;
+    }
+
+    /**
+     * Returns the directory in which undeliverable events are spooled, or null if spooling is disabled.
+     * @return the directory in which undeliverable events are spooled, or null if spooling is disabled
+     */
+    public String getSpoolDirectory() {
+        return this.spoolDirectory;
+    }
+
+    /**
+     * Returns the maximum number of bytes of disk used by the spool.
+     * @return the maximum number of bytes of disk used by the spool
+     */
+    public long getSpoolMaxBytes() {
+        return this.spoolMaxBytes;
+    }
+
+    /**
+     * Returns the maximum number of spooled events replayed per second.
+     * @return the maximum number of spooled events replayed per second
+     */
+    public int getSpoolReplayRate() {
+        return this.spoolReplayRate;
+    }
+
+    /**
+     * Returns the size in bytes of each spool segment file.
+     * @return the size in bytes of each spool segment file
+     */
+    public int getSpoolSegmentBytes() {
+        return this.spoolSegmentBytes;
+    }
+
     /**
      * Returns the Transmission for this LibHoney.
      * @return the Transmission for this LibHoney
@@ -293,10 +848,26 @@ public final class LibHoney {
         return this.transmission;
     }
 
+    /**
+     * Returns the custom transport for this LibHoney, or null if one is built from its metadata.
+     * @return the custom transport for this LibHoney, or null if one is built from its metadata
+     */
+    public Transport getTransport() {
+        return this.transport;
+    }
+
     public String getUserAgent() {
         return this.userAgent;
     }
 
+    /**
+     * Returns true if requests are sent on virtual threads, where the JDK supports them.
+     * @return true if requests are sent on virtual threads, where the JDK supports them
+     */
+    public boolean getVirtualThreads() {
+        return this.virtualThreads;
+    }
+
     /**
      * Returns the write key for this LibHoney.
      * @return the write key for this LibHoney.
@@ -359,8 +930,8 @@ public final class LibHoney {
     public JSONObject toJson() {
         JSONObject json = new JSONObject();
         try {
-            json.put("fields", this.fields);
-            json.put("dynFields", this.fields);
+            json.put("fields", this.getFields());
+            json.put("dynFields", this.getDynFields());
             json.put("writeKey", this.writeKey);
             json.put("dataSet", this.dataSet);
             json.put("sampleRate", this.sampleRate);
@@ -369,6 +940,7 @@ public final class LibHoney {
             json.put("blockOnSend", this.blockOnSend);
             json.put("blockOnResponse", this.blockOnResponse);
             json.put("closeTimeout", this.closeTimeout);
+            json.put("batching", this.batching);
         } catch (JSONException e) {
             log.error(e);
         }
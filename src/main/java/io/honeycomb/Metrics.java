@@ -0,0 +1,92 @@
+package io.honeycomb;
+
+/**
+ * Counters, gauges and latency histograms describing a Transmission, for reading from a metrics registry.
+ * Every method reads the current value without blocking, so it is safe to poll from any thread.
+ */
+public interface Metrics {
+    /**
+     * Returns the number of requests waiting in the request queue.
+     * @return the number of requests waiting in the request queue
+     */
+    int getRequestQueueDepth();
+
+    /**
+     * Returns the number of responses waiting in the response queue.
+     * @return the number of responses waiting in the response queue
+     */
+    int getResponseQueueDepth();
+
+    /**
+     * Returns the current maximum number of requests in flight at once, which adapts to throttling and latency
+     * when adaptiveConcurrency is enabled.
+     * @return the current maximum number of requests in flight at once
+     */
+    int getConcurrencyLimit();
+
+    /**
+     * Returns the number of events added to the request queue.
+     * @return the number of events added to the request queue
+     */
+    long getEventsEnqueued();
+
+    /**
+     * Returns the number of events accepted by honeycomb.io.
+     * @return the number of events accepted by honeycomb.io
+     */
+    long getEventsSent();
+
+    /**
+     * Returns the number of events dropped due to sampling.
+     * @return the number of events dropped due to sampling
+     */
+    long getEventsSampled();
+
+    /**
+     * Returns the number of events dropped because the request queue was full.
+     * @return the number of events dropped because the request queue was full
+     */
+    long getEventsDropped();
+
+    /**
+     * Returns the number of events that could not be sent or were rejected by honeycomb.io.
+     * @return the number of events that could not be sent or were rejected by honeycomb.io
+     */
+    long getEventsFailed();
+
+    /**
+     * Returns the number of retries scheduled for events that failed with a retryable error.
+     * @return the number of retries scheduled for events that failed with a retryable error
+     */
+    long getEventsRetried();
+
+    /**
+     * Returns the number of events appended to the spool.
+     * @return the number of events appended to the spool
+     */
+    long getEventsSpooled();
+
+    /**
+     * Returns the number of events waiting in the spool to be replayed.
+     * @return the number of events waiting in the spool to be replayed
+     */
+    int getSpoolDepth();
+
+    /**
+     * Returns the number of request body bytes sent, after compression, in requests that received a response.
+     * @return the number of request body bytes sent, after compression, in requests that received a response
+     */
+    long getBytesSent();
+
+    /**
+     * Returns the histogram of HTTP round trip times in nanoseconds.
+     * @return the histogram of HTTP round trip times in nanoseconds
+     */
+    LatencyHistogram getSendLatency();
+
+    /**
+     * Returns the histogram of the time events waited in the request queue, in nanoseconds.
+     * @return the histogram of the time events waited in the request queue, in nanoseconds
+     */
+    LatencyHistogram getQueueLatency();
+}
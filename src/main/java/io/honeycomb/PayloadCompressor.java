@@ -0,0 +1,131 @@
+package io.honeycomb;
+
+import java.util.Arrays;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.zip.CRC32;
+import java.util.zip.Deflater;
+
+/**
+ * Gzip-compresses request bodies using a pool of Deflaters, so compressing a body does not allocate a new native
+ * zlib stream per request.
+ */
+final class PayloadCompressor {
+    private static final int MAX_POOLED_DEFLATERS = 64;
+    private static final byte[] GZIP_HEADER = {0x1f, (byte) 0x8b, Deflater.DEFLATED, 0, 0, 0, 0, 0, 0, (byte) 0xff};
+    private static final int GZIP_TRAILER_LENGTH = 8;
+    static final int MAX_RETAINED_SCRATCH = 1 << 20;
+
+    /**
+     * Idle Deflaters are kept for reuse; any beyond MAX_POOLED_DEFLATERS are released when returned.
+     * Each thread compresses into its own scratch buffer, which is then copied to a body of the exact size.  A
+     * scratch buffer grown beyond MAX_RETAINED_SCRATCH bytes is dropped after use rather than kept by the thread.
+     */
+    private final Queue<Deflater> pool = new ConcurrentLinkedQueue<>();
+    private final AtomicInteger pooled = new AtomicInteger();
+    private final ThreadLocal<byte[]> scratch = ThreadLocal.withInitial(() -> new byte[8192]);
+    private final int level;
+    private final int minSize;
+
+    /**
+     * Constructs a PayloadCompressor.
+     *
+     * @param level compression level from 1 (fastest) to 9 (smallest)
+     * @param minSize bodies smaller than this number of bytes are sent uncompressed
+     */
+    PayloadCompressor(int level, int minSize) {
+        if (level < Deflater.BEST_SPEED || level > Deflater.BEST_COMPRESSION) {
+            throw new IllegalArgumentException("compression level must be between 1 and 9");
+        }
+        this.level = level;
+        this.minSize = minSize;
+    }
+
+    /**
+     * Returns true if a body of the specified length should be compressed.
+     *
+     * @param length length of the body in bytes
+     * @return true if a body of the specified length should be compressed
+     */
+    boolean shouldCompress(int length) {
+        return length >= this.minSize;
+    }
+
+    /**
+     * Returns the gzip encoding of a range of the specified bytes.
+     *
+     * @param bytes the bytes to be compressed
+     * @param offset index of the first byte to be compressed
+     * @param length number of bytes to be compressed
+     * @return the gzip encoding of the bytes
+     */
+    byte[] compress(byte[] bytes, int offset, int length) {
+        Deflater deflater = this.pool.poll();
+        if (deflater == null) {
+            deflater = new Deflater(this.level, true);
+        } else {
+            this.pooled.decrementAndGet();
+        }
+
+        try {
+            byte[] out = this.scratch.get();
+            System.arraycopy(GZIP_HEADER, 0, out, 0, GZIP_HEADER.length);
+            int size = GZIP_HEADER.length;
+
+            deflater.setInput(bytes, offset, length);
+            deflater.finish();
+            while (!deflater.finished()) {
+                if (size == out.length) {
+                    out = Arrays.copyOf(out, out.length * 2);
+                    this.scratch.set(out);
+                }
+                size += deflater.deflate(out, size, out.length - size);
+            }
+
+            if (size + GZIP_TRAILER_LENGTH > out.length) {
+                out = Arrays.copyOf(out, size + GZIP_TRAILER_LENGTH);
+                this.scratch.set(out);
+            }
+            CRC32 crc = new CRC32();
+            crc.update(bytes, offset, length);
+            size = writeIntLE(out, size, (int) crc.getValue());
+            size = writeIntLE(out, size, length);
+            byte[] body = Arrays.copyOf(out, size);
+            if (out.length > MAX_RETAINED_SCRATCH) {
+                this.scratch.remove();
+            }
+            return body;
+        } finally {
+            deflater.reset();
+            this.release(deflater);
+        }
+    }
+
+    private void release(Deflater deflater) {
+        if (this.pooled.incrementAndGet() <= MAX_POOLED_DEFLATERS) {
+            this.pool.offer(deflater);
+        } else {
+            this.pooled.decrementAndGet();
+            deflater.end();
+        }
+    }
+
+    private static int writeIntLE(byte[] out, int pos, int value) {
+        out[pos] = (byte) value;
+        out[pos + 1] = (byte) (value >> 8);
+        out[pos + 2] = (byte) (value >> 16);
+        out[pos + 3] = (byte) (value >> 24);
+        return pos + 4;
+    }
+
+    /**
+     * Releases the native resources of every pooled Deflater.
+     */
+    void close() {
+        Deflater deflater;
+        while ((deflater = this.pool.poll()) != null) {
+            deflater.end();
+        }
+    }
+}
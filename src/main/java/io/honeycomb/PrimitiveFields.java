@@ -0,0 +1,228 @@
+package io.honeycomb;
+
+import java.util.Arrays;
+import java.util.Map;
+
+/**
+ * Field mappings whose values are ints, longs, floats, doubles or booleans, kept unboxed in parallel arrays: each
+ * value is stored as the bits of a long alongside a byte recording its type.  Values are only boxed if they are read
+ * back as objects, and are written as JSON straight from their bits.  Fields added with a FieldKey are kept here too,
+ * whatever their value, together with the key's cached encoding, which is written as is.
+ *
+ * Events rarely have more than a few dozen fields, so keys are found by a linear scan, which compares the
+ * references of the usual literal keys before calling equals.
+ */
+final class PrimitiveFields {
+    /**
+     * Types of values, shared with TemplateEvent, whose slots are UNSET until a value is given.
+     */
+    static final byte UNSET = 0;
+    static final byte OBJECT = 1;
+    static final byte INT = 2;
+    static final byte LONG = 3;
+    static final byte DOUBLE = 4;
+    static final byte BOOLEAN = 5;
+    static final byte FLOAT = 6;
+    private static final int INITIAL_CAPACITY = 8;
+
+    private String[] keys = new String[INITIAL_CAPACITY];
+    private byte[][] encodedKeys = new byte[INITIAL_CAPACITY][];
+    private Object[] values = new Object[INITIAL_CAPACITY];
+    private long[] bits = new long[INITIAL_CAPACITY];
+    private byte[] types = new byte[INITIAL_CAPACITY];
+    private int size;
+
+    /**
+     * Maps the specified key to the specified value, replacing any previous value.
+     *
+     * @param key the key
+     * @param encodedKey the key encoded by a FieldKey, or null
+     * @param type the type of the value
+     * @param bits the bits of an unboxed value, or 0
+     * @param value the value if its type is OBJECT, or null
+     */
+    void put(String key, byte[] encodedKey, byte type, long bits, Object value) {
+        int i = this.indexOf(key);
+        if (i < 0) {
+            if (this.size == this.keys.length) {
+                int capacity = this.size * 2;
+                this.keys = Arrays.copyOf(this.keys, capacity);
+                this.encodedKeys = Arrays.copyOf(this.encodedKeys, capacity);
+                this.values = Arrays.copyOf(this.values, capacity);
+                this.bits = Arrays.copyOf(this.bits, capacity);
+                this.types = Arrays.copyOf(this.types, capacity);
+            }
+            i = this.size++;
+            this.keys[i] = key;
+        }
+        this.encodedKeys[i] = encodedKey;
+        this.values[i] = value;
+        this.bits[i] = bits;
+        this.types[i] = type;
+    }
+
+    /**
+     * Removes the mapping for the specified key, if there is one.
+     * @param key the key
+     */
+    void remove(String key) {
+        int i = this.indexOf(key);
+        if (i >= 0) {
+            this.size--;
+            this.keys[i] = this.keys[this.size];
+            this.encodedKeys[i] = this.encodedKeys[this.size];
+            this.values[i] = this.values[this.size];
+            this.bits[i] = this.bits[this.size];
+            this.types[i] = this.types[this.size];
+            this.keys[this.size] = null;
+            this.encodedKeys[this.size] = null;
+            this.values[this.size] = null;
+        }
+    }
+
+    /**
+     * Returns true if there is a mapping for the specified key.
+     *
+     * @param key the key
+     * @return true if there is a mapping for the key
+     */
+    boolean containsKey(String key) {
+        return this.indexOf(key) >= 0;
+    }
+
+    /**
+     * Returns the boxed value mapped to the specified key, or null if there is none.
+     *
+     * @param key the key
+     * @return the boxed value mapped to the key, or null
+     */
+    Object get(String key) {
+        int i = this.indexOf(key);
+        return i < 0 ? null : this.box(i);
+    }
+
+    /**
+     * Returns true if there are no mappings.
+     * @return true if there are no mappings
+     */
+    boolean isEmpty() {
+        return this.size == 0;
+    }
+
+    /**
+     * Removes all mappings, keeping the capacity of the arrays.
+     */
+    void clear() {
+        Arrays.fill(this.keys, 0, this.size, null);
+        Arrays.fill(this.encodedKeys, 0, this.size, null);
+        Arrays.fill(this.values, 0, this.size, null);
+        this.size = 0;
+    }
+
+    /**
+     * Copies every mapping, boxed, into the specified map, replacing any mapping for the same key.
+     *
+     * @param target the map to which mappings are added
+     */
+    void putInto(Map<String, Object> target) {
+        for (int i = 0; i < this.size; i++) {
+            target.put(this.keys[i], this.box(i));
+        }
+    }
+
+    /**
+     * Writes every mapping as a member of a JSON object, without boxing the values or encoding the keys added with a
+     * FieldKey.
+     *
+     * @param writer writer to which the mappings are written
+     * @param first true if no member of the object has been written yet
+     * @return true if no member of the object has been written yet, after the mappings
+     */
+    boolean writeEntries(JsonWriter writer, boolean first) {
+        for (int i = 0; i < this.size; i++) {
+            if (!first) {
+                writer.writeByte(',');
+            }
+            first = false;
+            if (this.encodedKeys[i] != null) {
+                writer.writeRaw(this.encodedKeys[i]);
+            } else {
+                writer.writeKey(String.valueOf(this.keys[i]));
+            }
+            writeValue(writer, this.types[i], this.bits[i], this.values[i]);
+        }
+        return first;
+    }
+
+    private int indexOf(String key) {
+        for (int i = 0; i < this.size; i++) {
+            if (this.keys[i] == key) {
+                return i;
+            }
+        }
+        for (int i = 0; i < this.size; i++) {
+            if (key != null && key.equals(this.keys[i])) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    private Object box(int i) {
+        return box(this.types[i], this.bits[i], this.values[i]);
+    }
+
+    /**
+     * Writes a value of the specified type as JSON, straight from its bits unless it is an object.
+     *
+     * @param writer writer to which the value is written
+     * @param type the type of the value
+     * @param bits the bits of an unboxed value
+     * @param value the value if its type is OBJECT
+     */
+    static void writeValue(JsonWriter writer, byte type, long bits, Object value) {
+        switch (type) {
+            case OBJECT:
+                writer.writeValue(value);
+                break;
+            case FLOAT:
+                writer.writeFloat(Float.intBitsToFloat((int) bits));
+                break;
+            case DOUBLE:
+                writer.writeDouble(Double.longBitsToDouble(bits));
+                break;
+            case BOOLEAN:
+                writer.writeBoolean(bits != 0);
+                break;
+            default:
+                writer.writeLong(bits);
+        }
+    }
+
+    /**
+     * Returns a value of the specified type as an object, boxing it if needed.
+     *
+     * @param type the type of the value
+     * @param bits the bits of an unboxed value
+     * @param value the value if its type is OBJECT
+     * @return the value as an object, or null if its type is UNSET
+     */
+    static Object box(byte type, long bits, Object value) {
+        switch (type) {
+            case UNSET:
+                return null;
+            case OBJECT:
+                return value;
+            case INT:
+                return (int) bits;
+            case FLOAT:
+                return Float.intBitsToFloat((int) bits);
+            case DOUBLE:
+                return Double.longBitsToDouble(bits);
+            case BOOLEAN:
+                return bits != 0;
+            default:
+                return bits;
+        }
+    }
+}
@@ -0,0 +1,21 @@
+package io.honeycomb;
+
+/**
+ * The priority of an Event in the request queue, when prioritization or lane routing is enabled.  Events of a
+ * higher priority are sent before queued Events of a lower priority, and when the queue is full, the oldest Events
+ * of the lowest priority are dropped to make room for Events of a higher priority.
+ */
+public enum Priority {
+    /**
+     * Bulk telemetry, which is the first to be dropped under pressure.
+     */
+    LOW,
+    /**
+     * The default priority.
+     */
+    NORMAL,
+    /**
+     * Events such as errors and audit events, which are sent first and dropped last.
+     */
+    HIGH
+}
@@ -0,0 +1,62 @@
+package io.honeycomb;
+
+/**
+ * Keeps one in every sampleRate Events at random, using the sample rate set on each Event.  This is the default
+ * Sampler.
+ *
+ * If sampleBeforeBuild is set, the decision is made from the Builder's sample rate before the Event is created, so
+ * Builder.newEvent() returns a DroppedEvent without evaluating dynamic fields for Events that would be dropped.
+ * Such Events cannot be kept by lowering their sample rate afterwards, so this is not the default.
+ */
+public final class RandomSampler implements Sampler {
+    private final RandomSource random;
+    private final boolean sampleBeforeBuild;
+
+    /**
+     * Constructs a RandomSampler drawing from RandomSource.THREAD_LOCAL, which decides when Events are sent.
+     */
+    public RandomSampler() {
+        this(RandomSource.THREAD_LOCAL);
+    }
+
+    /**
+     * Constructs a RandomSampler which decides when Events are sent.
+     *
+     * @param random source of the random numbers used to make sampling decisions
+     */
+    public RandomSampler(RandomSource random) {
+        this(random, false);
+    }
+
+    /**
+     * Constructs a RandomSampler.
+     *
+     * @param random source of the random numbers used to make sampling decisions
+     * @param sampleBeforeBuild true to decide from the Builder's sample rate before each Event is created
+     */
+    public RandomSampler(RandomSource random, boolean sampleBeforeBuild) {
+        this.random = random;
+        this.sampleBeforeBuild = sampleBeforeBuild;
+    }
+
+    @Override
+    public int sample(Event event) {
+        return this.sample(event.getSampleRate());
+    }
+
+    /**
+     * Decides up front from the Builder's sample rate if sampleBeforeBuild is set, since the decision does not
+     * depend on the Event's fields.
+     */
+    @Override
+    public int sampleBeforeBuild(Builder builder) {
+        return this.sampleBeforeBuild ? this.sample(builder.getSampleRate()) : -1;
+    }
+
+    private int sample(int sampleRate) {
+        if (sampleRate <= 1) {
+            return 1;
+        }
+        return this.random.nextInt(sampleRate) == 0 ? sampleRate : 0;
+    }
+}
@@ -0,0 +1,37 @@
+package io.honeycomb;
+
+import java.util.Random;
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * Supplies the random numbers used to make sampling decisions.
+ *
+ * The default source draws from ThreadLocalRandom, so threads sampling concurrently never contend on a shared
+ * seed.  A seeded source makes sampling decisions reproducible in tests and benchmarks.
+ */
+@FunctionalInterface
+public interface RandomSource {
+    /**
+     * A RandomSource drawing from the calling thread's ThreadLocalRandom.
+     */
+    RandomSource THREAD_LOCAL = bound -> ThreadLocalRandom.current().nextInt(bound);
+
+    /**
+     * Returns a pseudorandom int between 0 (inclusive) and the specified bound (exclusive).
+     *
+     * @param bound the upper bound, which must be positive
+     * @return a pseudorandom int between 0 (inclusive) and bound (exclusive)
+     */
+    int nextInt(int bound);
+
+    /**
+     * Returns a RandomSource producing the same sequence of numbers for the same seed.  It is safe to share
+     * between threads, but contends when used by many at once, so it is intended for tests and benchmarks.
+     *
+     * @param seed the initial seed
+     * @return a RandomSource producing the same sequence of numbers for the same seed
+     */
+    static RandomSource seeded(long seed) {
+        return new Random(seed)::nextInt;
+    }
+}
@@ -0,0 +1,106 @@
+package io.honeycomb;
+
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+import org.json.JSONException;
+import org.json.JSONObject;
+
+/**
+ * The outcome of sending an Event: the HTTP status and duration of the request, the Event's metadata string,
+ * and the response body or an error.  A status code of 0 means the Event was never accepted by honeycomb.io,
+ * for example because it was sampled out, dropped or the request failed.
+ */
+public final class Response {
+    private final int statusCode;
+    private final long duration;
+    private final String metadata;
+    private final String body;
+    private final String error;
+
+    // Logging
+    private static final Log log = LogFactory.getLog(Response.class);
+
+    /**
+     * Constructs a Response.
+     *
+     * @param statusCode HTTP status code, or 0 if no response was received
+     * @param duration number of ms the request took
+     * @param metadata metadata string of the Event
+     * @param body body of the HTTP response
+     * @param error description of the error, or an empty string
+     */
+    public Response(int statusCode, long duration, String metadata, String body, String error) {
+        this.statusCode = statusCode;
+        this.duration = duration;
+        this.metadata = metadata;
+        this.body = body;
+        this.error = error;
+    }
+
+    /**
+     * Returns the body of the HTTP response.
+     * @return the body of the HTTP response
+     */
+    public String getBody() {
+        return this.body;
+    }
+
+    /**
+     * Returns the number of ms the request took.
+     * @return the number of ms the request took
+     */
+    public long getDuration() {
+        return this.duration;
+    }
+
+    /**
+     * Returns the description of the error, or an empty string if there was none.
+     * @return the description of the error, or an empty string if there was none
+     */
+    public String getError() {
+        return this.error;
+    }
+
+    /**
+     * Returns the metadata string of the Event.
+     * @return the metadata string of the Event
+     */
+    public String getMetadata() {
+        return this.metadata;
+    }
+
+    /**
+     * Returns the HTTP status code, or 0 if no response was received.
+     * @return the HTTP status code, or 0 if no response was received
+     */
+    public int getStatusCode() {
+        return this.statusCode;
+    }
+
+    /**
+     * Returns a JSON representation of this Response, as placed on the response queue.
+     * @return a JSON representation of this Response
+     */
+    public JSONObject toJson() {
+        JSONObject json = new JSONObject();
+        try {
+            json.put("status_code", this.statusCode);
+            json.put("duration", this.duration);
+            json.put("metadata", this.metadata);
+            json.put("body", this.body);
+            json.put("error", this.error);
+        } catch (JSONException e) {
+            log.error(e);
+        }
+        return json;
+    }
+
+    /**
+     * Returns a string representation of this Response.
+     * @return a string representation of this Response
+     */
+    @Override
+    public String toString() {
+        return this.toJson().toString();
+    }
+}
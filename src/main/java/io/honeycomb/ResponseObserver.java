@@ -0,0 +1,22 @@
+package io.honeycomb;
+
+/**
+ * Receives a Response for every Event that was sent, dropped or failed.
+ *
+ * Observers are called on the thread that learns the outcome of an Event: a sender thread (a virtual thread if
+ * virtualThreads is set) when the transport blocks, a libhoney-io-callback thread with the asynchronous transport,
+ * the libhoney-retry thread for retries dropped because the request queue is full, and the application thread
+ * calling send() for Events dropped by sampling or because the request queue is full.  Observers should therefore
+ * return quickly and must be safe to call concurrently.
+ *
+ * Every Response is also added to the response queue as a JSONObject unless responseQueueLength is 0, so an
+ * application that only uses an observer should set responseQueueLength(0) to avoid building that JSONObject.
+ */
+@FunctionalInterface
+public interface ResponseObserver {
+    /**
+     * Called once for each Event when its outcome is known.
+     * @param response the outcome of sending an Event
+     */
+    void onResponse(Response response);
+}
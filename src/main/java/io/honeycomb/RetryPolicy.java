@@ -0,0 +1,152 @@
+package io.honeycomb;
+
+import org.apache.http.Header;
+import org.apache.http.HttpResponse;
+
+import java.time.ZonedDateTime;
+import java.time.format.DateTimeFormatter;
+import java.time.format.DateTimeParseException;
+import java.util.concurrent.Delayed;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Decides whether and when an Event that failed with a retryable error is sent again.
+ *
+ * Each Event is retried at most maxRetries times, after an exponential backoff with full jitter: a random delay
+ * between 0 and min(maxDelay, baseDelay * 2^(attempt - 1)) ms.  A Retry-After header from honeycomb.io takes
+ * precedence over a shorter backoff, and no retry is sent before it allows; an Event whose Retry-After is longer
+ * than maxDelay is not retried at all, so that it can be spooled instead of being held in memory.  Retries are
+ * also limited by a budget, so that during an outage they add at most a fraction of the normal request load:
+ * every first attempt deposits budget tokens, every retry withdraws one, and the balance is capped at MAX_TOKENS.
+ */
+final class RetryPolicy {
+    private static final long TOKEN = 1000; // balance is kept in thousandths of a token
+    private static final long MAX_TOKENS = 10 * TOKEN;
+
+    private final int maxRetries;
+    private final int baseDelay;
+    private final int maxDelay;
+    private final long deposit;
+    private final AtomicLong tokens;
+
+    /**
+     * Constructs a RetryPolicy.
+     *
+     * @param maxRetries maximum number of times an Event is retried
+     * @param baseDelay backoff ceiling in ms for the first retry
+     * @param maxDelay maximum backoff ceiling in ms
+     * @param budget number of retries earned by each first attempt
+     */
+    RetryPolicy(int maxRetries, int baseDelay, int maxDelay, double budget) {
+        this.maxRetries = maxRetries;
+        this.baseDelay = baseDelay;
+        this.maxDelay = maxDelay;
+        this.deposit = Math.round(budget * TOKEN);
+        this.tokens = new AtomicLong(MAX_TOKENS);
+    }
+
+    /**
+     * Records the first attempt to send an Event, adding to the retry budget.
+     */
+    void recordRequest() {
+        if (this.tokens.get() < MAX_TOKENS) {
+            this.tokens.accumulateAndGet(this.deposit, (balance, deposit) -> Math.min(MAX_TOKENS, balance + deposit));
+        }
+    }
+
+    /**
+     * Returns true and withdraws from the retry budget if an Event that has already been retried the specified
+     * number of times may be retried again within maxDelay.
+     *
+     * @param retries number of times the Event has already been retried
+     * @param retryAfter number of ms requested by a Retry-After header, or -1 if there was none
+     * @return true if the Event may be retried
+     */
+    boolean tryRetry(int retries, long retryAfter) {
+        if (retries >= this.maxRetries || retryAfter > this.maxDelay) {
+            return false;
+        }
+        long balance;
+        do {
+            balance = this.tokens.get();
+            if (balance < TOKEN) {
+                return false;
+            }
+        } while (!this.tokens.compareAndSet(balance, balance - TOKEN));
+        return true;
+    }
+
+    /**
+     * Returns the number of ms to wait before the specified retry, which is never less than retryAfter.
+     *
+     * @param retry the retry, starting at 1
+     * @param retryAfter number of ms requested by a Retry-After header, or -1 if there was none
+     * @return the number of ms to wait before the retry
+     */
+    long getDelay(int retry, long retryAfter) {
+        long ceiling = Math.min(this.maxDelay, (long) this.baseDelay << Math.min(retry - 1, 30));
+        long backoff = ThreadLocalRandom.current().nextLong(ceiling + 1);
+        return Math.max(backoff, retryAfter);
+    }
+
+    /**
+     * Returns the number of ms requested by the Retry-After header of a response, as either a number of seconds or
+     * an HTTP date, or -1 if there is no valid header.
+     *
+     * @param response HTTP response received
+     * @return the number of ms requested by the Retry-After header, or -1
+     */
+    static long getRetryAfter(HttpResponse response) {
+        Header header = response.getFirstHeader("Retry-After");
+        if (header == null) {
+            return -1;
+        }
+        String value = header.getValue().trim();
+        try {
+            return TimeUnit.SECONDS.toMillis(Math.max(0, Long.parseLong(value)));
+        } catch (NumberFormatException e) {
+            // Not a number of seconds, so it should be a date
+        }
+        try {
+            long at = ZonedDateTime.parse(value, DateTimeFormatter.RFC_1123_DATE_TIME).toInstant().toEpochMilli();
+            return Math.max(0, at - System.currentTimeMillis());
+        } catch (DateTimeParseException e) {
+            return -1;
+        }
+    }
+
+    /**
+     * An Event waiting on the retry queue until its backoff has elapsed.
+     */
+    static final class Retry implements Delayed {
+        private final Event event;
+        private final long due;
+
+        /**
+         * Constructs a Retry.
+         *
+         * @param event Event to be retried
+         * @param delay number of ms to wait before the Event is retried
+         */
+        Retry(Event event, long delay) {
+            this.event = event;
+            this.due = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(delay);
+        }
+
+        Event getEvent() {
+            return this.event;
+        }
+
+        @Override
+        public long getDelay(TimeUnit unit) {
+            return unit.convert(this.due - System.nanoTime(), TimeUnit.NANOSECONDS);
+        }
+
+        @Override
+        public int compareTo(Delayed other) {
+            return Long.compare(this.getDelay(TimeUnit.NANOSECONDS), other.getDelay(TimeUnit.NANOSECONDS));
+        }
+    }
+}
@@ -0,0 +1,327 @@
+package io.honeycomb;
+
+import java.util.AbstractQueue;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Iterator;
+import java.util.List;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * A bounded, lock-free queue backed by a ring buffer, safe for many producers and many consumers.
+ *
+ * Each slot carries a sequence number that tells producers and consumers whose turn it is, so offer and poll only
+ * compare-and-set a shared cursor and never take a lock.  Producers waiting for a free slot spin, then yield, then
+ * park for increasing intervals until one becomes available.  Consumers waiting for an element spin and yield in the
+ * same way, then park until a producer publishing an element unparks one of them, so idle consumers do not wake.
+ *
+ * @param <E> the type of elements held in this queue
+ */
+public class RingBufferQueue<E> extends AbstractQueue<E> implements BlockingQueue<E> {
+    private static final int SPIN_TRIES = 100;
+    private static final int YIELD_TRIES = 100;
+    private static final long MIN_PARK_NANOS = 1000L;
+    private static final long MAX_PARK_NANOS = 1000000L;
+
+    /**
+     * The slot for position p is p % slots.  A slot whose sequence equals p is free for the producer claiming p,
+     * and a slot whose sequence equals p + 1 holds the element for the consumer claiming p.
+     * The sequence scheme needs at least two slots, so a capacity of one is enforced against the head cursor.
+     */
+    private final int capacity;
+    private final int slots;
+    private final AtomicReferenceArray<E> buffer;
+    private final AtomicLongArray sequences;
+    private final AtomicLong head = new AtomicLong();
+    private final AtomicLong tail = new AtomicLong();
+
+    /**
+     * Consumers parked waiting for an element.  A consumer registers itself before checking the queue a last time,
+     * and a producer checks for one after publishing its element, so an element is never left waiting for a parked
+     * consumer.
+     */
+    private final ConcurrentLinkedQueue<Thread> parkedConsumers = new ConcurrentLinkedQueue<>();
+
+    /**
+     * Constructs a RingBufferQueue with the specified capacity.
+     *
+     * @param capacity the maximum number of elements held in this queue
+     */
+    public RingBufferQueue(int capacity) {
+        if (capacity <= 0) {
+            throw new IllegalArgumentException("capacity must be positive");
+        }
+        this.capacity = capacity;
+        this.slots = Math.max(capacity, 2);
+        this.buffer = new AtomicReferenceArray<>(this.slots);
+        this.sequences = new AtomicLongArray(this.slots);
+        for (int i = 0; i < this.slots; i++) {
+            this.sequences.set(i, i);
+        }
+    }
+
+    /**
+     * Inserts the specified element if a slot is free, without waiting.
+     *
+     * @param e the element to add
+     * @return true if the element was added, false if this queue is full
+     */
+    @Override
+    public boolean offer(E e) {
+        if (e == null) {
+            throw new NullPointerException();
+        }
+        long pos = this.tail.get();
+        while (true) {
+            int index = (int) (pos % this.slots);
+            long diff = this.sequences.get(index) - pos;
+            if (diff == 0 && this.slots != this.capacity && pos - this.head.get() >= this.capacity) {
+                return false;
+            } else if (diff == 0) {
+                if (this.tail.compareAndSet(pos, pos + 1)) {
+                    this.buffer.lazySet(index, e);
+                    this.sequences.set(index, pos + 1);
+                    if (!this.parkedConsumers.isEmpty()) {
+                        this.unparkConsumer();
+                    }
+                    return true;
+                }
+                pos = this.tail.get();
+            } else if (diff < 0) {
+                return false;
+            } else {
+                pos = this.tail.get();
+            }
+        }
+    }
+
+    /**
+     * Retrieves and removes the head of this queue if there is one, without waiting.
+     *
+     * @return the head of this queue, or null if this queue is empty
+     */
+    @Override
+    public E poll() {
+        long pos = this.head.get();
+        while (true) {
+            int index = (int) (pos % this.slots);
+            long diff = this.sequences.get(index) - (pos + 1);
+            if (diff == 0) {
+                if (this.head.compareAndSet(pos, pos + 1)) {
+                    E e = this.buffer.get(index);
+                    this.buffer.lazySet(index, null);
+                    this.sequences.lazySet(index, pos + this.slots);
+                    return e;
+                }
+                pos = this.head.get();
+            } else if (diff < 0) {
+                return null;
+            } else {
+                pos = this.head.get();
+            }
+        }
+    }
+
+    @Override
+    public E peek() {
+        long pos = this.head.get();
+        int index = (int) (pos % this.slots);
+        return this.sequences.get(index) == pos + 1 ? this.buffer.get(index) : null;
+    }
+
+    @Override
+    public void put(E e) throws InterruptedException {
+        for (int attempt = 0; !this.offer(e); attempt++) {
+            backOff(attempt);
+        }
+    }
+
+    @Override
+    public boolean offer(E e, long timeout, TimeUnit unit) throws InterruptedException {
+        long deadline = System.nanoTime() + unit.toNanos(timeout);
+        for (int attempt = 0; !this.offer(e); attempt++) {
+            if (System.nanoTime() - deadline >= 0) {
+                return false;
+            }
+            backOff(attempt);
+        }
+        return true;
+    }
+
+    @Override
+    public E take() throws InterruptedException {
+        return this.awaitElement(false, 0);
+    }
+
+    @Override
+    public E poll(long timeout, TimeUnit unit) throws InterruptedException {
+        return this.awaitElement(true, System.nanoTime() + unit.toNanos(timeout));
+    }
+
+    /**
+     * Waits for an element: spins first, then yields, then parks until a producer unparks this thread.
+     *
+     * @param timed true to give up at the deadline
+     * @param deadline value of System.nanoTime() at which to give up, if timed
+     * @return the head of this queue, or null if the deadline passed first
+     * @throws InterruptedException if the current thread is interrupted
+     */
+    private E awaitElement(boolean timed, long deadline) throws InterruptedException {
+        E e;
+        for (int attempt = 0; attempt < SPIN_TRIES + YIELD_TRIES; attempt++) {
+            if ((e = this.poll()) != null) {
+                return e;
+            }
+            if (timed && System.nanoTime() - deadline >= 0) {
+                return null;
+            }
+            backOff(attempt);
+        }
+
+        Thread current = Thread.currentThread();
+        try {
+            while (true) {
+                this.parkedConsumers.add(current);
+                if ((e = this.poll()) != null) {
+                    return e;
+                }
+                if (!timed) {
+                    LockSupport.park(this);
+                } else if (deadline - System.nanoTime() > 0) {
+                    LockSupport.parkNanos(this, deadline - System.nanoTime());
+                } else {
+                    return null;
+                }
+                if (Thread.interrupted()) {
+                    throw new InterruptedException();
+                }
+                this.parkedConsumers.remove(current);
+            }
+        } finally {
+            // A producer may have unparked this thread for an element another consumer took, so pass the wakeup on
+            if (!this.parkedConsumers.remove(current) && !this.isEmpty()) {
+                this.unparkConsumer();
+            }
+        }
+    }
+
+    private void unparkConsumer() {
+        Thread consumer = this.parkedConsumers.poll();
+        if (consumer != null) {
+            LockSupport.unpark(consumer);
+        }
+    }
+
+    /**
+     * Waits before the next attempt: spins first, then yields, then parks for increasing intervals.
+     *
+     * @param attempt the number of attempts already made
+     * @throws InterruptedException if the current thread is interrupted
+     */
+    private static void backOff(int attempt) throws InterruptedException {
+        if (Thread.interrupted()) {
+            throw new InterruptedException();
+        }
+        if (attempt < SPIN_TRIES) {
+            return;
+        }
+        if (attempt < SPIN_TRIES + YIELD_TRIES) {
+            Thread.yield();
+            return;
+        }
+        int shift = Math.min(attempt - SPIN_TRIES - YIELD_TRIES, 10);
+        LockSupport.parkNanos(Math.min(MIN_PARK_NANOS << shift, MAX_PARK_NANOS));
+    }
+
+    /**
+     * Returns the number of free slots.  Slots claimed by producers that have not yet published their elements are
+     * not free.
+     * @return the number of free slots
+     */
+    @Override
+    public int remainingCapacity() {
+        while (true) {
+            long head = this.head.get();
+            long tail = this.tail.get();
+            if (head == this.head.get()) {
+                return this.capacity - (int) Math.max(0, Math.min(tail - head, this.capacity));
+            }
+        }
+    }
+
+    @Override
+    public int drainTo(Collection<? super E> c) {
+        return this.drainTo(c, Integer.MAX_VALUE);
+    }
+
+    @Override
+    public int drainTo(Collection<? super E> c, int maxElements) {
+        if (c == this) {
+            throw new IllegalArgumentException();
+        }
+        int n = 0;
+        E e;
+        while (n < maxElements && (e = this.poll()) != null) {
+            c.add(e);
+            n++;
+        }
+        return n;
+    }
+
+    /**
+     * Returns the number of elements in this queue that poll can take, that is the published elements from the head
+     * up to the first slot a producer has claimed but not yet filled.  The value is only a snapshot while other
+     * threads are active, and takes time proportional to the number of elements.
+     * @return the number of elements in this queue
+     */
+    @Override
+    public int size() {
+        long head = this.head.get();
+        long tail = this.tail.get();
+        long pos = head;
+        while (pos < tail && pos - head < this.capacity && this.sequences.get((int) (pos % this.slots)) == pos + 1) {
+            pos++;
+        }
+        return (int) (pos - head);
+    }
+
+    @Override
+    public boolean isEmpty() {
+        return this.peek() == null;
+    }
+
+    /**
+     * Returns an iterator over a snapshot of the elements in this queue.  The iterator does not support removal.
+     * @return an iterator over a snapshot of the elements in this queue
+     */
+    @Override
+    public Iterator<E> iterator() {
+        List<E> snapshot = new ArrayList<>();
+        long tail = this.tail.get();
+        for (long pos = this.head.get(); pos < tail; pos++) {
+            int index = (int) (pos % this.slots);
+            E e = this.buffer.get(index);
+            if (e != null && this.sequences.get(index) == pos + 1) {
+                snapshot.add(e);
+            }
+        }
+        Iterator<E> it = snapshot.iterator();
+        return new Iterator<E>() {
+            @Override
+            public boolean hasNext() {
+                return it.hasNext();
+            }
+
+            @Override
+            public E next() {
+                return it.next();
+            }
+        };
+    }
+}
@@ -0,0 +1,32 @@
+package io.honeycomb;
+
+/**
+ * Decides whether an Event is sent, and with what sample rate.
+ *
+ * Samplers are called on the thread sending the Event, once its fields are complete, so they must be safe to call
+ * concurrently.  The returned sample rate is sent to honeycomb.io with the Event, which counts it as that many
+ * events.
+ */
+@FunctionalInterface
+public interface Sampler {
+    /**
+     * Returns the sample rate with which the specified Event is kept, or 0 if it should be dropped.
+     *
+     * @param event the Event to be sampled
+     * @return the sample rate with which the Event is kept, or 0 if it should be dropped
+     */
+    int sample(Event event);
+
+    /**
+     * Returns the sample rate with which an Event about to be created from the specified Builder is kept, 0 if it
+     * should be dropped, or -1 if the decision depends on the Event itself.  Deciding before the Event is created
+     * lets Builder.newEvent() skip evaluating dynamic fields for Events that would be dropped.  By default the
+     * decision is left until the Event is sent.
+     *
+     * @param builder the Builder from which the Event is created
+     * @return the sample rate with which the Event is kept, 0 if it should be dropped, or -1 to decide later
+     */
+    default int sampleBeforeBuild(Builder builder) {
+        return -1;
+    }
+}
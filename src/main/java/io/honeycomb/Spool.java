@@ -0,0 +1,439 @@
+package io.honeycomb;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Deque;
+import java.util.List;
+import java.util.zip.CRC32;
+
+/**
+ * An append-only log of Events on disk, kept so that events which could not be queued or sent survive an outage
+ * and can be replayed in order once honeycomb.io is reachable again.
+ *
+ * The log is a directory of fixed-size, memory-mapped segment files named spool-SEQUENCE.log.  Each segment
+ * starts with a checksummed header and holds records of the form [length][crc32][payload].  The length is
+ * written last, so a record torn by a crash reads as a length of 0, which marks the end of the segment.
+ * Writes always go to a fresh segment after a restart, so stale bytes are never mistaken for records, and
+ * recovered segments holding no records are deleted.
+ *
+ * The position of the next record to replay is kept in a small memory-mapped cursor file.  Records after the
+ * cursor are replayed after a restart, so an Event may be sent twice but is never lost while the spool has room.
+ * Disk usage is bounded by maxBytes: an append that would need another segment beyond that bound, including the
+ * first segment written after a restart, is refused until replay frees room.
+ * Once the spool is closed, appends are refused and no records are returned, since requests completing after
+ * close() may still try to spool their Events.
+ */
+final class Spool {
+    private static final byte[] MAGIC = {'H', 'N', 'Y', 'S', 'P', 'O', 'O', 'L'};
+    private static final int VERSION = 1;
+    private static final int HEADER_LENGTH = MAGIC.length + 4 + 8 + 4;
+    private static final int RECORD_OVERHEAD = 8;
+    private static final int CURSOR_LENGTH = 16;
+    private static final String CURSOR_FILE = "spool.cursor";
+
+    private final File directory;
+    private final long maxBytes;
+    private final int segmentBytes;
+
+    /**
+     * Segments are ordered from the one being read to the one being written, which is always the last.  There is
+     * no segment being written, and active is null, until the first append after the spool is opened.
+     */
+    private final Deque<Segment> segments = new ArrayDeque<>();
+    private final MappedByteBuffer cursor;
+    private final RandomAccessFile cursorFile;
+    private Segment active;
+    private long nextSequence;
+    private int readOffset;
+    private int records;
+    private boolean closed;
+
+    /**
+     * Opens the spool in the specified directory, recovering any segments and the cursor left by a previous run.
+     *
+     * @param directory directory holding the segment files, which is created if needed
+     * @param maxBytes maximum number of bytes of disk used by segments
+     * @param segmentBytes size in bytes of each segment file
+     * @throws IOException if the directory or its files cannot be read or written
+     */
+    Spool(File directory, long maxBytes, int segmentBytes) throws IOException {
+        if (segmentBytes <= HEADER_LENGTH + RECORD_OVERHEAD || maxBytes < segmentBytes) {
+            throw new IllegalArgumentException("spool must hold at least one segment of more than "
+                    + (HEADER_LENGTH + RECORD_OVERHEAD) + " bytes");
+        }
+        if (!directory.isDirectory() && !directory.mkdirs()) {
+            throw new IOException("Unable to create spool directory " + directory);
+        }
+        this.directory = directory;
+        this.maxBytes = maxBytes;
+        this.segmentBytes = segmentBytes;
+
+        this.cursorFile = new RandomAccessFile(new File(directory, CURSOR_FILE), "rw");
+        this.cursor = this.cursorFile.getChannel().map(FileChannel.MapMode.READ_WRITE, 0, CURSOR_LENGTH);
+        this.recover();
+    }
+
+    /**
+     * Opens the existing segments in sequence order, discarding those with a damaged header, behind the cursor or
+     * holding no records.  The first append then starts a fresh segment for writing.
+     */
+    private void recover() throws IOException {
+        File[] files = this.directory.listFiles((dir, name) -> name.startsWith("spool-") && name.endsWith(".log"));
+        if (files == null) {
+            files = new File[0];
+        }
+        Arrays.sort(files);
+
+        long cursorSequence = -1;
+        int cursorOffset = HEADER_LENGTH;
+        if (checksum(this.cursor, 0, 12) == this.cursor.getInt(12)) {
+            cursorSequence = this.cursor.getLong(0);
+            cursorOffset = this.cursor.getInt(8);
+        }
+
+        for (File file : files) {
+            Segment segment = Segment.open(file, this.segmentBytes);
+            if (segment != null) {
+                this.nextSequence = Math.max(this.nextSequence, segment.sequence + 1);
+            }
+            int count = segment == null || segment.sequence < cursorSequence ? 0
+                    : segment.countRecords(segment.sequence == cursorSequence ? cursorOffset : HEADER_LENGTH);
+            if (count == 0) {
+                if (segment != null) {
+                    segment.close();
+                }
+                delete(file);
+                continue;
+            }
+            this.records += count;
+            this.segments.addLast(segment);
+        }
+
+        Segment first = this.segments.peekFirst();
+        this.readOffset = first != null && first.sequence == cursorSequence ? cursorOffset : HEADER_LENGTH;
+        this.saveCursor();
+    }
+
+    /**
+     * Appends a record to the spool.
+     *
+     * @param payload the record to be appended
+     * @return true if the record was appended, or false if the spool is full or closed, or the record is too large
+     * @throws IOException if a new segment cannot be created
+     */
+    synchronized boolean append(byte[] payload) throws IOException {
+        if (this.closed) {
+            return false;
+        }
+        int length = RECORD_OVERHEAD + payload.length;
+        if (HEADER_LENGTH + length > this.segmentBytes) {
+            return false;
+        }
+        if (this.active == null || this.active.writeOffset + length > this.segmentBytes) {
+            if ((long) (this.segments.size() + 1) * this.segmentBytes > this.maxBytes) {
+                return false;
+            }
+            if (this.active != null) {
+                this.active.buffer.force();
+            }
+            this.active = Segment.create(this.directory, this.nextSequence++, this.segmentBytes);
+            this.segments.addLast(this.active);
+        }
+
+        MappedByteBuffer buffer = this.active.buffer;
+        int offset = this.active.writeOffset;
+        CRC32 crc = new CRC32();
+        crc.update(payload);
+        ByteBuffer target = buffer.duplicate();
+        target.position(offset + RECORD_OVERHEAD);
+        target.put(payload);
+        buffer.putInt(offset + 4, (int) crc.getValue());
+        buffer.putInt(offset, payload.length);
+        this.active.writeOffset = offset + length;
+        this.records++;
+        return true;
+    }
+
+    /**
+     * Returns the oldest record that has not been committed, or null if there is none or the spool is closed.
+     * Repeated calls return the same record until commit() is called.
+     *
+     * @return the oldest record that has not been committed, or null
+     */
+    synchronized byte[] peek() {
+        if (this.closed) {
+            return null;
+        }
+        while (true) {
+            Segment segment = this.segments.peekFirst();
+            if (segment == null) {
+                return null;
+            }
+            byte[] payload = segment.read(this.readOffset);
+            if (payload != null) {
+                return payload;
+            }
+            if (segment == this.active) {
+                return null;
+            }
+            // Every record in a finished segment has been replayed
+            this.segments.removeFirst();
+            segment.close();
+            delete(segment.file);
+            this.readOffset = HEADER_LENGTH;
+            this.saveCursor();
+        }
+    }
+
+    /**
+     * Removes the record last returned by peek().
+     */
+    synchronized void commit() {
+        Segment segment = this.segments.peekFirst();
+        if (this.closed || segment == null) {
+            return;
+        }
+        byte[] payload = segment.read(this.readOffset);
+        if (payload != null) {
+            this.readOffset += RECORD_OVERHEAD + payload.length;
+            this.records--;
+            this.saveCursor();
+        }
+    }
+
+    /**
+     * Returns true if every record has been committed.
+     * @return true if every record has been committed
+     */
+    synchronized boolean isEmpty() {
+        return this.records == 0;
+    }
+
+    /**
+     * Returns the number of records that have not been committed.
+     * @return the number of records that have not been committed
+     */
+    synchronized int size() {
+        return this.records;
+    }
+
+    /**
+     * Returns the number of bytes of disk used by segments.
+     * @return the number of bytes of disk used by segments
+     */
+    synchronized long getDiskUsage() {
+        return (long) this.segments.size() * this.segmentBytes;
+    }
+
+    /**
+     * Flushes the segment being written and the cursor to disk and closes every file.
+     */
+    synchronized void close() {
+        if (this.closed) {
+            return;
+        }
+        this.closed = true;
+        if (this.active != null) {
+            this.active.buffer.force();
+        }
+        this.cursor.force();
+        for (Segment segment : this.segments) {
+            segment.close();
+        }
+        try {
+            this.cursorFile.close();
+        } catch (IOException e) {
+            // The cursor has already been forced to disk
+        }
+    }
+
+    /**
+     * Saves the position of the next record to replay, which is in the next segment to be created if there is no
+     * segment left.
+     */
+    private void saveCursor() {
+        Segment first = this.segments.peekFirst();
+        this.cursor.putLong(0, first != null ? first.sequence : this.nextSequence);
+        this.cursor.putInt(8, this.readOffset);
+        this.cursor.putInt(12, checksum(this.cursor, 0, 12));
+    }
+
+    private static int checksum(ByteBuffer buffer, int offset, int length) {
+        CRC32 crc = new CRC32();
+        for (int i = 0; i < length; i++) {
+            crc.update(buffer.get(offset + i));
+        }
+        return (int) crc.getValue();
+    }
+
+    private static void delete(File file) {
+        if (!file.delete()) {
+            file.deleteOnExit();
+        }
+    }
+
+    /**
+     * Returns the spool record for an Event: its sample rate, write key, data set, creation time, metadata and
+     * encoded fields.
+     *
+     * @param event the Event to be encoded
+     * @param writer scratch writer for the fields
+     * @return the spool record for the Event
+     */
+    static byte[] encode(Event event, JsonWriter writer) {
+        writer.reset();
+        event.writeFields(writer);
+        List<byte[]> strings = new ArrayList<>(4);
+        int length = 4 + 4 + writer.size();
+        for (String value : new String[] {event.getWriteKey(), event.getDataSet(), event.getCreatedAt(),
+                event.getMetadata()}) {
+            byte[] bytes = (value == null ? "" : value).getBytes(StandardCharsets.UTF_8);
+            strings.add(bytes);
+            length += 4 + bytes.length;
+        }
+
+        ByteBuffer buffer = ByteBuffer.allocate(length);
+        buffer.putInt(event.getSampleRate());
+        for (byte[] bytes : strings) {
+            buffer.putInt(bytes.length).put(bytes);
+        }
+        buffer.putInt(writer.size()).put(writer.buffer(), 0, writer.size());
+        return buffer.array();
+    }
+
+    /**
+     * Returns the Event stored in a spool record.
+     *
+     * @param record the spool record
+     * @param transmission the Transmission the Event is sent with
+     * @return the Event stored in the record
+     */
+    static Event decode(byte[] record, Transmission transmission) {
+        ByteBuffer buffer = ByteBuffer.wrap(record);
+        int sampleRate = buffer.getInt();
+        String writeKey = readString(buffer);
+        String dataSet = readString(buffer);
+        String createdAt = readString(buffer);
+        String metadata = readString(buffer);
+        byte[] fields = new byte[buffer.getInt()];
+        buffer.get(fields);
+        return new Event(transmission, writeKey, dataSet, sampleRate, createdAt, metadata, fields);
+    }
+
+    private static String readString(ByteBuffer buffer) {
+        byte[] bytes = new byte[buffer.getInt()];
+        buffer.get(bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    /**
+     * A memory-mapped segment file.
+     */
+    private static final class Segment {
+        private final File file;
+        private final long sequence;
+        private final RandomAccessFile raf;
+        private final MappedByteBuffer buffer;
+        private int writeOffset;
+
+        private Segment(File file, long sequence, RandomAccessFile raf, MappedByteBuffer buffer) {
+            this.file = file;
+            this.sequence = sequence;
+            this.raf = raf;
+            this.buffer = buffer;
+            this.writeOffset = HEADER_LENGTH;
+        }
+
+        /**
+         * Creates a segment file with the specified sequence number, writing and forcing its header before any
+         * record is written.
+         */
+        static Segment create(File directory, long sequence, int segmentBytes) throws IOException {
+            File file = new File(directory, String.format("spool-%020d.log", sequence));
+            RandomAccessFile raf = new RandomAccessFile(file, "rw");
+            raf.setLength(segmentBytes);
+            MappedByteBuffer buffer = raf.getChannel().map(FileChannel.MapMode.READ_WRITE, 0, segmentBytes);
+            for (int i = 0; i < MAGIC.length; i++) {
+                buffer.put(i, MAGIC[i]);
+            }
+            buffer.putInt(MAGIC.length, VERSION);
+            buffer.putLong(MAGIC.length + 4, sequence);
+            buffer.putInt(HEADER_LENGTH - 4, checksum(buffer, 0, HEADER_LENGTH - 4));
+            buffer.force();
+            return new Segment(file, sequence, raf, buffer);
+        }
+
+        /**
+         * Opens an existing segment file, or returns null if its header is missing or damaged.
+         */
+        static Segment open(File file, int segmentBytes) throws IOException {
+            if (file.length() < HEADER_LENGTH) {
+                return null;
+            }
+            RandomAccessFile raf = new RandomAccessFile(file, "rw");
+            MappedByteBuffer buffer = raf.getChannel().map(FileChannel.MapMode.READ_WRITE, 0, file.length());
+            boolean valid = buffer.getInt(MAGIC.length) == VERSION
+                    && buffer.getInt(HEADER_LENGTH - 4) == checksum(buffer, 0, HEADER_LENGTH - 4);
+            for (int i = 0; valid && i < MAGIC.length; i++) {
+                valid = buffer.get(i) == MAGIC[i];
+            }
+            if (!valid) {
+                raf.close();
+                return null;
+            }
+            Segment segment = new Segment(file, buffer.getLong(MAGIC.length + 4), raf, buffer);
+            segment.writeOffset = (int) Math.min(file.length(), segmentBytes);
+            return segment;
+        }
+
+        /**
+         * Returns the number of intact records from the specified offset to the end of this segment.
+         */
+        int countRecords(int offset) {
+            int count = 0;
+            byte[] payload;
+            while ((payload = this.read(offset)) != null) {
+                offset += RECORD_OVERHEAD + payload.length;
+                count++;
+            }
+            return count;
+        }
+
+        /**
+         * Returns the record at the specified offset, or null if there is no intact record there.
+         */
+        byte[] read(int offset) {
+            int limit = Math.min(this.writeOffset, this.buffer.capacity());
+            if (offset + RECORD_OVERHEAD > limit) {
+                return null;
+            }
+            int length = this.buffer.getInt(offset);
+            if (length <= 0 || offset + RECORD_OVERHEAD + length > limit) {
+                return null;
+            }
+            byte[] payload = new byte[length];
+            ByteBuffer source = this.buffer.duplicate();
+            source.position(offset + RECORD_OVERHEAD);
+            source.get(payload);
+            CRC32 crc = new CRC32();
+            crc.update(payload);
+            return (int) crc.getValue() == this.buffer.getInt(offset + 4) ? payload : null;
+        }
+
+        void close() {
+            try {
+                this.raf.close();
+            } catch (IOException e) {
+                // Nothing was left to write
+            }
+        }
+    }
+}
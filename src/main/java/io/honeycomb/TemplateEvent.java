@@ -0,0 +1,286 @@
+package io.honeycomb;
+
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+import org.json.JSONException;
+import org.json.JSONObject;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * An Event created from an EventTemplate, whose values are kept in slots indexed as in the template rather than in
+ * a map.  Values may be set by slot index, which hot call sites should look up once with EventTemplate.slot(), or
+ * by field name.  A field added by name that has no slot is kept as in any other Event, but the Event is then
+ * serialized from a merged map of its fields rather than from the template's prefix.
+ */
+public final class TemplateEvent extends Event {
+    /**
+     * Each slot holds an object in values, or the bits of an unboxed value in bits, as recorded by its kind, which is
+     * one of the types of PrimitiveFields.
+     * A dropped Event was sampled out before it was created, and ignores any values it is given.
+     */
+    private final EventTemplate template;
+    private final boolean dropped;
+    private final Object[] values;
+    private final long[] bits;
+    private final byte[] kinds;
+
+    // Logging
+    private static final Log log = LogFactory.getLog(TemplateEvent.class);
+
+    /**
+     * Constructs a TemplateEvent with each slot holding its default value, if any.
+     *
+     * @param template template from which this Event is created
+     * @param dropped true if this Event was sampled out before it was created
+     */
+    TemplateEvent(EventTemplate template, boolean dropped) {
+        super(template.getLibHoney().getTransmission(), template.getBuilder(),
+                template.getLibHoney().getClock().millis());
+        this.template = template;
+        this.dropped = dropped;
+        int slots = template.getSlotCount();
+        this.values = new Object[slots];
+        this.bits = new long[slots];
+        this.kinds = new byte[slots];
+        for (int i = 0; i < slots; i++) {
+            Object value = template.getDefault(i);
+            if (value != null) {
+                this.values[i] = value;
+                this.kinds[i] = PrimitiveFields.OBJECT;
+            }
+        }
+    }
+
+    /**
+     * Sets the slots of the template's dynamic fields by executing them.
+     */
+    void executeDynFields() {
+        for (int i = 0; i < this.kinds.length; i++) {
+            if (this.template.getDynField(i) != null) {
+                try {
+                    this.set(i, this.template.getDynField(i).call());
+                } catch (Exception e) {
+                    log.error(e);
+                }
+            }
+        }
+    }
+
+    /**
+     * Returns the template from which this Event was created.
+     * @return the template from which this Event was created
+     */
+    public EventTemplate getTemplate() {
+        return this.template;
+    }
+
+    /**
+     * Sets the value of the specified slot.
+     *
+     * @param slot index of the slot
+     * @param value value of the slot
+     */
+    public void set(int slot, Object value) {
+        this.set(slot, PrimitiveFields.OBJECT, 0, value);
+    }
+
+    /**
+     * Sets the value of the specified slot to an int, without boxing it.
+     *
+     * @param slot index of the slot
+     * @param value value of the slot
+     */
+    public void set(int slot, int value) {
+        this.set(slot, PrimitiveFields.INT, value, null);
+    }
+
+    /**
+     * Sets the value of the specified slot to a long, without boxing it.
+     *
+     * @param slot index of the slot
+     * @param value value of the slot
+     */
+    public void set(int slot, long value) {
+        this.set(slot, PrimitiveFields.LONG, value, null);
+    }
+
+    /**
+     * Sets the value of the specified slot to a char, as a String of one character rather than as its code.
+     *
+     * @param slot index of the slot
+     * @param value value of the slot
+     */
+    public void set(int slot, char value) {
+        this.set(slot, (Object) String.valueOf(value));
+    }
+
+    /**
+     * Sets the value of the specified slot to a float, without boxing it or widening it to a double.
+     *
+     * @param slot index of the slot
+     * @param value value of the slot
+     */
+    public void set(int slot, float value) {
+        this.set(slot, PrimitiveFields.FLOAT, Float.floatToRawIntBits(value), null);
+    }
+
+    /**
+     * Sets the value of the specified slot to a double, without boxing it.
+     *
+     * @param slot index of the slot
+     * @param value value of the slot
+     */
+    public void set(int slot, double value) {
+        this.set(slot, PrimitiveFields.DOUBLE, Double.doubleToRawLongBits(value), null);
+    }
+
+    /**
+     * Sets the value of the specified slot to a boolean, without boxing it.
+     *
+     * @param slot index of the slot
+     * @param value value of the slot
+     */
+    public void set(int slot, boolean value) {
+        this.set(slot, PrimitiveFields.BOOLEAN, value ? 1 : 0, null);
+    }
+
+    private void set(int slot, byte kind, long bits, Object value) {
+        if (!this.dropped) {
+            this.values[slot] = value;
+            this.bits[slot] = bits;
+            this.kinds[slot] = kind;
+        }
+    }
+
+    @Override
+    public void add(Map<String, Object> fields) {
+        for (Map.Entry<String, Object> entry : fields.entrySet()) {
+            this.addField(entry.getKey(), entry.getValue());
+        }
+    }
+
+    @Override
+    public void addField(String key, Object value) {
+        this.putField(key, null, PrimitiveFields.OBJECT, 0, value);
+    }
+
+    /**
+     * Sets the slot of the specified field if the template has one, or else adds the field as any other Event does.
+     * Every addField method ends here.
+     */
+    @Override
+    void putField(String key, byte[] encodedKey, byte type, long bits, Object value) {
+        int slot = this.template.slot(key);
+        if (slot >= 0) {
+            this.set(slot, type, bits, value);
+        } else if (!this.dropped && type == PrimitiveFields.OBJECT && encodedKey == null) {
+            super.addField(key, value);
+        } else if (!this.dropped) {
+            super.putField(key, encodedKey, type, bits, value);
+        }
+    }
+
+    /**
+     * Returns the value of the specified field of this Event, or null if it has no such field.
+     *
+     * @param key key of the field
+     * @return the value of the field, or null
+     */
+    @Override
+    public Object getField(String key) {
+        int slot = this.template.slot(key);
+        if (slot >= 0) {
+            return this.get(slot);
+        }
+        Object value = super.getField(key);
+        return value != null ? value : this.template.getStaticFields().get(key);
+    }
+
+    /**
+     * Returns a copy of the fields for this Event, in which static fields come first, then slots, then fields
+     * added by name.  Changes to the copy are not seen by this Event.
+     *
+     * @return a copy of the fields for this Event
+     */
+    @Override
+    public Map<String, Object> getFields() {
+        Map<String, Object> fields = new LinkedHashMap<>(this.template.getStaticFields());
+        for (int i = 0; i < this.kinds.length; i++) {
+            if (this.kinds[i] != PrimitiveFields.UNSET) {
+                fields.put(this.template.getSlotName(i), this.get(i));
+            }
+        }
+        fields.putAll(super.getFields());
+        return fields;
+    }
+
+    @Override
+    boolean hasFields() {
+        if (!this.template.getStaticFields().isEmpty() || super.hasFields()) {
+            return true;
+        }
+        for (byte kind : this.kinds) {
+            if (kind != PrimitiveFields.UNSET) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    @Override
+    public boolean shouldSendEvent() {
+        return !this.dropped && super.shouldSendEvent();
+    }
+
+    /**
+     * Writes this Event's fields as a JSON object: the template's prefix of static fields, followed by the
+     * pre-encoded key and the value of each slot that is set.
+     *
+     * @param writer writer to which the fields are written
+     */
+    @Override
+    void writeFields(JsonWriter writer) {
+        if (super.hasFields()) {
+            writer.writeObject(this.getFields());
+            return;
+        }
+        writer.writeRaw(this.template.getPrefix());
+        boolean first = this.template.getStaticFields().isEmpty();
+        for (int i = 0; i < this.kinds.length; i++) {
+            if (this.kinds[i] == PrimitiveFields.UNSET) {
+                continue;
+            }
+            if (!first) {
+                writer.writeByte(',');
+            }
+            first = false;
+            writer.writeRaw(this.template.getSlotKey(i));
+            PrimitiveFields.writeValue(writer, this.kinds[i], this.bits[i], this.values[i]);
+        }
+        writer.writeByte('}');
+    }
+
+    /**
+     * Returns a JSON representation of this Event.
+     * @return a JSON representation of this Event
+     */
+    @Override
+    public JSONObject toJson() {
+        JSONObject json = super.toJson();
+        try {
+            json.put("fields", this.getFields());
+        } catch (JSONException e) {
+            log.error(e);
+        }
+        return json;
+    }
+
+    /**
+     * Returns the boxed value of the specified slot, or null if it is not set.
+     */
+    private Object get(int slot) {
+        return PrimitiveFields.box(this.kinds[slot], this.bits[slot], this.values[slot]);
+    }
+}
@@ -0,0 +1,64 @@
+package io.honeycomb;
+
+import java.time.Clock;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Samples Events so that about a target number per second are kept, sharing the target equally between keys.
+ * Keys less frequent than their share are kept, while more frequent keys are sampled down to it.
+ */
+public final class ThroughputSampler extends WindowedSampler {
+    private final int eventsPerSecond;
+
+    /**
+     * Constructs a ThroughputSampler drawing from RandomSource.THREAD_LOCAL.
+     *
+     * @param eventsPerSecond number of Events per second to keep
+     * @param windowMillis length of the window in ms from which rates are computed
+     * @param keyFields names of the fields whose values make up the key of an Event
+     */
+    public ThroughputSampler(int eventsPerSecond, long windowMillis, String... keyFields) {
+        this(eventsPerSecond, windowMillis, RandomSource.THREAD_LOCAL, keyFields);
+    }
+
+    /**
+     * Constructs a ThroughputSampler.
+     *
+     * @param eventsPerSecond number of Events per second to keep
+     * @param windowMillis length of the window in ms from which rates are computed
+     * @param random source of the random numbers used to make sampling decisions
+     * @param keyFields names of the fields whose values make up the key of an Event
+     */
+    public ThroughputSampler(int eventsPerSecond, long windowMillis, RandomSource random, String... keyFields) {
+        this(eventsPerSecond, windowMillis, random, Constants.DEFAULT_CLOCK, keyFields);
+    }
+
+    /**
+     * Constructs a ThroughputSampler whose windows are timed by the specified clock, such as the one passed to
+     * LibHoney.Builder.clock().
+     *
+     * @param eventsPerSecond number of Events per second to keep
+     * @param windowMillis length of the window in ms from which rates are computed
+     * @param random source of the random numbers used to make sampling decisions
+     * @param clock clock that times the windows
+     * @param keyFields names of the fields whose values make up the key of an Event
+     */
+    public ThroughputSampler(int eventsPerSecond, long windowMillis, RandomSource random, Clock clock, String... keyFields) {
+        super(windowMillis, random, clock, keyFields);
+        if (eventsPerSecond < 1) {
+            throw new IllegalArgumentException("throughput must be at least 1 event per second");
+        }
+        this.eventsPerSecond = eventsPerSecond;
+    }
+
+    @Override
+    Map<String, Integer> computeRates(Map<String, Long> counts, long windowMillis) {
+        double goalPerKey = this.eventsPerSecond * (windowMillis / 1000.0) / counts.size();
+        Map<String, Integer> rates = new HashMap<>();
+        for (Map.Entry<String, Long> entry : counts.entrySet()) {
+            rates.put(entry.getKey(), (int) Math.max(1, Math.ceil(entry.getValue() / goalPerKey)));
+        }
+        return rates;
+    }
+}
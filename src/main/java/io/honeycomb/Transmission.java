@@ -4,16 +4,23 @@ import org.apache.commons.logging.Log;
 import org.apache.commons.logging.LogFactory;
 import org.apache.http.HttpResponse;
 import org.apache.http.client.methods.HttpPost;
+import org.apache.http.concurrent.FutureCallback;
+import org.apache.http.entity.ByteArrayEntity;
 import org.apache.http.entity.ContentType;
-import org.apache.http.entity.StringEntity;
-import org.apache.http.impl.client.DefaultHttpClient;
+import org.apache.http.nio.reactor.IOReactorException;
 import org.apache.http.util.EntityUtils;
+import org.json.JSONArray;
 import org.json.JSONException;
 import org.json.JSONObject;
 
+import java.io.File;
 import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
 import java.util.Queue;
 import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicBoolean;
 
 /**
  * Sends messages and receives responses with honeycomb.io.
@@ -21,13 +28,85 @@ import java.util.concurrent.*;
 public class Transmission {
     /**
      * Request queue contains Events that will soon be sent as HTTP requests.
-     * Response queue contains JSONObjects that were recently received as HTTP responses.
+     * Response queue contains JSONObjects that were recently received as HTTP responses, and is null if
+     * responseQueueLength is 0.
      */
-    private ArrayBlockingQueue<Object> requestQueue;
+    private BlockingQueue<Object> requestQueue;
+    private LaneQueue laneQueue;
     private ArrayBlockingQueue<JSONObject> responseQueue;
     private final ExecutorService executor;
     private final Object POISON_PILL = new Object();
 
+    /**
+     * Each sender thread encodes event bodies into its own reusable buffer.
+     * The buffer is copied once into the request entity, since the request may outlive the next encode.
+     */
+    private static final ThreadLocal<JsonWriter> JSON_WRITER = ThreadLocal.withInitial(() -> new JsonWriter(1024));
+
+
+    /**
+     * Transport executes every HTTP request and is shared by all threads.
+     */
+    private final Transport transport;
+    private final PayloadCompressor compressor;
+
+    /**
+     * Every Response is passed to the observer, if any, before it is placed on the response queue.
+     */
+    private final ResponseObserver responseObserver;
+
+    /**
+     * Events that overflow the request queue or fail to send are appended to the spool, if there is one.
+     * The replayer thread moves them back onto the request queue in order, at no more than spoolReplayRate
+     * events per second.  While sends are failing it replays only one event every SPOOL_PROBE_INTERVAL ms,
+     * as a probe of whether honeycomb.io is reachable again.
+     */
+    private final Spool spool;
+    private final Thread spoolReplayer;
+    private volatile boolean sendsFailing;
+    private static final long SPOOL_PROBE_INTERVAL = 1000;
+
+    /**
+     * Events that fail with a retryable error wait on the retry queue until their backoff has elapsed, then the
+     * retry thread moves them back onto the request queue, so no sender thread waits on a backoff.
+     */
+    private final RetryPolicy retryPolicy;
+    private final DelayQueue<RetryPolicy.Retry> retryQueue;
+    private final Thread retryScheduler;
+
+    /**
+     * Senders take a permit from the limiter before each request and callbacks return it, so the number of requests
+     * in flight backs off when honeycomb.io throttles or slows down.  Null if adaptiveConcurrency is disabled.
+     */
+    private final ConcurrencyLimiter limiter;
+
+    /**
+     * If virtualThreads is set on a JDK that supports them, senders serialize requests and hand each one to a new
+     * virtual thread, which blocks on the transport instead of a pooled platform thread.  sendPermits bounds the
+     * requests in flight on virtual threads to maxConcurrentBranches, and is released when a request completes
+     * rather than when its thread ends, so that it also holds for transports that complete asynchronously.  Both
+     * are null otherwise.
+     */
+    private final ThreadFactory virtualThreadFactory;
+    private final Semaphore sendPermits;
+
+    /**
+     * Events created by Builder.newEvent() are recycled into the pool once their requests have completed, and are
+     * not retained by this Transmission afterwards.  Null if eventPoolSize is 0.
+     */
+    private final EventPool eventPool;
+
+    /**
+     * Field names registered with LibHoney.fieldKey(), whose cached encodings are copied by every JsonWriter this
+     * Transmission serializes Events with.
+     */
+    private final FieldKeys fieldKeys;
+
+    /**
+     * Metrics are updated by sender and callback threads and may be read from any thread.
+     */
+    private final TransmissionMetrics metrics;
+
     // Metadata
     private String apiHost;
     private boolean blockOnSend;
@@ -35,6 +114,33 @@ public class Transmission {
     private int closeTimeout;
     private final int maxConcurrentBranches;
     private String userAgent;
+    private final boolean batching;
+    private final int maxBatchSize;
+    private final int maxBatchBytes;
+    private final int batchTimeout;
+    private final int connectTimeout;
+    private final int socketTimeout;
+    private final int idleConnectionTimeout;
+    private final int maxConnections;
+    private final boolean asyncTransport;
+    private final int ioThreads;
+    private final boolean lockFreeRequestQueue;
+    private final int compressionLevel;
+    private final int compressionMinSize;
+    private final String spoolDirectory;
+    private final long spoolMaxBytes;
+    private final int spoolSegmentBytes;
+    private final int spoolReplayRate;
+    private final int maxRetries;
+    private final int retryBaseDelay;
+    private final int retryMaxDelay;
+    private final double retryBudget;
+    private final boolean adaptiveConcurrency;
+    private final boolean laneRouting;
+    private final List<LaneConfig> lanes;
+    private final boolean prioritization;
+    private final boolean virtualThreads;
+    private final int eventPoolSize;
 
     // Logging
     private final Log log = LogFactory.getLog(Transmission.class);
@@ -42,6 +148,9 @@ public class Transmission {
     /**
      * Constructs a Transmission from a Transmission.Builder.
      * Initializes and dispatches a number of threads based on builder.maxConcurrentBranches.
+     * When batching, each thread groups the events it takes into its own batches.
+     * With an asynchronous transport only builder.ioThreads threads are dispatched, since they do not wait
+     * on the socket; maxConcurrentBranches then bounds the number of requests in flight.
      * @param builder the builder to build this Transmission
      */
     private Transmission(Builder builder) {
@@ -50,17 +159,69 @@ public class Transmission {
         this.blockOnSend = builder.blockOnSend;
         this.blockOnResponse = builder.blockOnResponse;
         this.closeTimeout = builder.closeTimeout;
-        this.requestQueue = new ArrayBlockingQueue<>(builder.requestQueueLength);
-        this.responseQueue = new ArrayBlockingQueue<>(builder.responseQueueLength);
+        this.lockFreeRequestQueue = builder.lockFreeRequestQueue;
+        this.laneRouting = builder.laneRouting;
+        this.lanes = builder.lanes;
+        this.prioritization = builder.prioritization;
+        this.metrics = new TransmissionMetrics(this);
+        this.requestQueue = this.createRequestQueue(builder.requestQueueLength);
+        this.responseQueue = builder.responseQueueLength > 0 ? new ArrayBlockingQueue<>(builder.responseQueueLength)
+                : null;
+        this.responseObserver = builder.responseObserver;
         this.userAgent = builder.userAgent;
+        this.batching = builder.batching;
+        this.maxBatchSize = builder.maxBatchSize;
+        this.maxBatchBytes = builder.maxBatchBytes;
+        this.batchTimeout = builder.batchTimeout;
+        this.connectTimeout = builder.connectTimeout;
+        this.socketTimeout = builder.socketTimeout;
+        this.idleConnectionTimeout = builder.idleConnectionTimeout;
+        this.maxConnections = builder.maxConnections > 0 ? builder.maxConnections : builder.maxConcurrentBranches;
+
+        this.asyncTransport = builder.asyncTransport;
+        this.ioThreads = builder.ioThreads;
+        this.transport = builder.transport != null ? builder.transport : this.createTransport();
+        this.compressionLevel = builder.compressionLevel;
+        this.compressionMinSize = builder.compressionMinSize;
+        this.compressor = this.compressionLevel > 0
+                ? new PayloadCompressor(this.compressionLevel, this.compressionMinSize) : null;
+        this.spoolDirectory = builder.spoolDirectory;
+        this.spoolMaxBytes = builder.spoolMaxBytes;
+        this.spoolSegmentBytes = builder.spoolSegmentBytes;
+        this.spoolReplayRate = builder.spoolReplayRate;
+        this.spool = this.spoolDirectory != null ? this.openSpool() : null;
+        this.maxRetries = builder.maxRetries;
+        this.retryBaseDelay = builder.retryBaseDelay;
+        this.retryMaxDelay = builder.retryMaxDelay;
+        this.retryBudget = builder.retryBudget;
+        this.retryPolicy = new RetryPolicy(this.maxRetries, this.retryBaseDelay, this.retryMaxDelay,
+                this.retryBudget);
+        this.retryQueue = new DelayQueue<>();
+        this.adaptiveConcurrency = builder.adaptiveConcurrency;
+        this.limiter = this.adaptiveConcurrency ? new ConcurrencyLimiter(this.maxConcurrentBranches) : null;
+        this.virtualThreads = builder.virtualThreads;
+        this.virtualThreadFactory = this.virtualThreads && !this.asyncTransport
+                ? this.createVirtualThreadFactory() : null;
+        this.sendPermits = this.virtualThreadFactory != null ? new Semaphore(this.maxConcurrentBranches) : null;
+        this.eventPoolSize = builder.eventPoolSize;
+        this.eventPool = this.eventPoolSize > 0 ? new EventPool(this.eventPoolSize) : null;
+        this.fieldKeys = builder.fieldKeys;
 
         /**
-         * Blocks on requestQueue.take(), handling and usually sending a request when it is taken
+         * Blocks on requestQueue.take(), handling and usually sending a request when it is taken.  Only a few
+         * threads are needed when requests do not block them, because the transport is asynchronous or requests
+         * are sent on virtual threads.
          */
-        this.executor = Executors.newFixedThreadPool(this.maxConcurrentBranches);
-        for (int i = 0; i < maxConcurrentBranches; i++) {
+        int senderThreads = this.asyncTransport || this.virtualThreadFactory != null
+                ? this.ioThreads : this.maxConcurrentBranches;
+        this.executor = Executors.newFixedThreadPool(senderThreads);
+        for (int i = 0; i < senderThreads; i++) {
             this.executor.submit(() -> {
                 try {
+                    if (this.batching) {
+                        this.runBatchLoop();
+                        return;
+                    }
                     while (!Thread.currentThread().isInterrupted()) {
                         Object request = requestQueue.take();
                         if (request == POISON_PILL) {
@@ -68,6 +229,7 @@ public class Transmission {
                             this.enqueueRequest(POISON_PILL);
                             return;
                         }
+                        this.recordQueueLatency((Event) request);
                         this.send((Event) request);
                     }
                 } catch (Exception e) {
@@ -75,6 +237,22 @@ public class Transmission {
                 }
             });
         }
+
+        if (this.maxRetries > 0) {
+            this.retryScheduler = new Thread(this::runRetries, "libhoney-retry");
+            this.retryScheduler.setDaemon(true);
+            this.retryScheduler.start();
+        } else {
+            this.retryScheduler = null;
+        }
+
+        if (this.spool != null) {
+            this.spoolReplayer = new Thread(this::runSpoolReplay, "libhoney-spool-replay");
+            this.spoolReplayer.setDaemon(true);
+            this.spoolReplayer.start();
+        } else {
+            this.spoolReplayer = null;
+        }
     }
 
     /**
@@ -89,6 +267,36 @@ public class Transmission {
         private int requestQueueLength;
         private int responseQueueLength;
         private String userAgent;
+        private boolean batching;
+        private int maxBatchSize;
+        private int maxBatchBytes;
+        private int batchTimeout;
+        private int connectTimeout;
+        private int socketTimeout;
+        private int idleConnectionTimeout;
+        private int maxConnections;
+        private boolean asyncTransport;
+        private int ioThreads;
+        private Transport transport;
+        private boolean lockFreeRequestQueue;
+        private int compressionLevel;
+        private int compressionMinSize;
+        private ResponseObserver responseObserver;
+        private String spoolDirectory;
+        private long spoolMaxBytes;
+        private int spoolSegmentBytes;
+        private int spoolReplayRate;
+        private int maxRetries;
+        private int retryBaseDelay;
+        private int retryMaxDelay;
+        private double retryBudget;
+        private boolean adaptiveConcurrency;
+        private boolean laneRouting;
+        private List<LaneConfig> lanes;
+        private boolean prioritization;
+        private boolean virtualThreads;
+        private int eventPoolSize;
+        private FieldKeys fieldKeys;
 
         // Passed in global state
         public Builder(LibHoney libhoney) {
@@ -100,6 +308,36 @@ public class Transmission {
             this.requestQueueLength = libhoney.getRequestQueueLength();
             this.responseQueueLength = libhoney.getResponseQueueLength();
             this.userAgent = libhoney.getUserAgent();
+            this.batching = libhoney.getBatching();
+            this.maxBatchSize = libhoney.getMaxBatchSize();
+            this.maxBatchBytes = libhoney.getMaxBatchBytes();
+            this.batchTimeout = libhoney.getBatchTimeout();
+            this.connectTimeout = libhoney.getConnectTimeout();
+            this.socketTimeout = libhoney.getSocketTimeout();
+            this.idleConnectionTimeout = libhoney.getIdleConnectionTimeout();
+            this.maxConnections = libhoney.getMaxConnections();
+            this.asyncTransport = libhoney.getAsyncTransport();
+            this.ioThreads = libhoney.getIoThreads();
+            this.transport = libhoney.getTransport();
+            this.lockFreeRequestQueue = libhoney.getLockFreeRequestQueue();
+            this.compressionLevel = libhoney.getCompressionLevel();
+            this.compressionMinSize = libhoney.getCompressionMinSize();
+            this.responseObserver = libhoney.getResponseObserver();
+            this.spoolDirectory = libhoney.getSpoolDirectory();
+            this.spoolMaxBytes = libhoney.getSpoolMaxBytes();
+            this.spoolSegmentBytes = libhoney.getSpoolSegmentBytes();
+            this.spoolReplayRate = libhoney.getSpoolReplayRate();
+            this.maxRetries = libhoney.getMaxRetries();
+            this.retryBaseDelay = libhoney.getRetryBaseDelay();
+            this.retryMaxDelay = libhoney.getRetryMaxDelay();
+            this.retryBudget = libhoney.getRetryBudget();
+            this.adaptiveConcurrency = libhoney.getAdaptiveConcurrency();
+            this.laneRouting = libhoney.getLaneRouting();
+            this.lanes = libhoney.getLanes();
+            this.prioritization = libhoney.getPrioritization();
+            this.virtualThreads = libhoney.getVirtualThreads();
+            this.eventPoolSize = libhoney.getEventPoolSize();
+            this.fieldKeys = libhoney.getFieldKeys();
         }
 
         public Builder apiHost(String apiHost) {
@@ -142,6 +380,152 @@ public class Transmission {
             return this;
         }
 
+        public Builder batching(boolean batching) {
+            this.batching = batching;
+            return this;
+        }
+
+        public Builder maxBatchSize(int maxBatchSize) {
+            this.maxBatchSize = maxBatchSize;
+            return this;
+        }
+
+        public Builder maxBatchBytes(int maxBatchBytes) {
+            this.maxBatchBytes = maxBatchBytes;
+            return this;
+        }
+
+        public Builder batchTimeout(int batchTimeout) {
+            this.batchTimeout = batchTimeout;
+            return this;
+        }
+
+        public Builder connectTimeout(int connectTimeout) {
+            this.connectTimeout = connectTimeout;
+            return this;
+        }
+
+        public Builder socketTimeout(int socketTimeout) {
+            this.socketTimeout = socketTimeout;
+            return this;
+        }
+
+        public Builder idleConnectionTimeout(int idleConnectionTimeout) {
+            this.idleConnectionTimeout = idleConnectionTimeout;
+            return this;
+        }
+
+        public Builder maxConnections(int maxConnections) {
+            this.maxConnections = maxConnections;
+            return this;
+        }
+
+        public Builder asyncTransport(boolean asyncTransport) {
+            this.asyncTransport = asyncTransport;
+            return this;
+        }
+
+        public Builder ioThreads(int ioThreads) {
+            this.ioThreads = ioThreads;
+            return this;
+        }
+
+        public Builder transport(Transport transport) {
+            this.transport = transport;
+            return this;
+        }
+
+        public Builder lockFreeRequestQueue(boolean lockFreeRequestQueue) {
+            this.lockFreeRequestQueue = lockFreeRequestQueue;
+            return this;
+        }
+
+        public Builder compressionLevel(int compressionLevel) {
+            this.compressionLevel = compressionLevel;
+            return this;
+        }
+
+        public Builder compressionMinSize(int compressionMinSize) {
+            this.compressionMinSize = compressionMinSize;
+            return this;
+        }
+
+        public Builder responseObserver(ResponseObserver responseObserver) {
+            this.responseObserver = responseObserver;
+            return this;
+        }
+
+        public Builder spoolDirectory(String spoolDirectory) {
+            this.spoolDirectory = spoolDirectory;
+            return this;
+        }
+
+        public Builder spoolMaxBytes(long spoolMaxBytes) {
+            this.spoolMaxBytes = spoolMaxBytes;
+            return this;
+        }
+
+        public Builder spoolSegmentBytes(int spoolSegmentBytes) {
+            this.spoolSegmentBytes = spoolSegmentBytes;
+            return this;
+        }
+
+        public Builder spoolReplayRate(int spoolReplayRate) {
+            this.spoolReplayRate = spoolReplayRate;
+            return this;
+        }
+
+        public Builder maxRetries(int maxRetries) {
+            this.maxRetries = maxRetries;
+            return this;
+        }
+
+        public Builder retryBaseDelay(int retryBaseDelay) {
+            this.retryBaseDelay = retryBaseDelay;
+            return this;
+        }
+
+        public Builder retryMaxDelay(int retryMaxDelay) {
+            this.retryMaxDelay = retryMaxDelay;
+            return this;
+        }
+
+        public Builder retryBudget(double retryBudget) {
+            this.retryBudget = retryBudget;
+            return this;
+        }
+
+        public Builder adaptiveConcurrency(boolean adaptiveConcurrency) {
+            this.adaptiveConcurrency = adaptiveConcurrency;
+            return this;
+        }
+
+        public Builder laneRouting(boolean laneRouting) {
+            this.laneRouting = laneRouting;
+            return this;
+        }
+
+        public Builder lanes(List<LaneConfig> lanes) {
+            this.lanes = lanes;
+            this.laneRouting |= !lanes.isEmpty();
+            return this;
+        }
+
+        public Builder prioritization(boolean prioritization) {
+            this.prioritization = prioritization;
+            return this;
+        }
+
+        public Builder virtualThreads(boolean virtualThreads) {
+            this.virtualThreads = virtualThreads;
+            return this;
+        }
+
+        public Builder eventPoolSize(int eventPoolSize) {
+            this.eventPoolSize = eventPoolSize;
+            return this;
+        }
+
         public Transmission build() {
             return new Transmission(this);
         }
@@ -150,185 +534,763 @@ public class Transmission {
     /**
      * Closes Transmission by enqueuing a POISON_PILL which causes each thread to return,
      * then shuts down the executor and awaits this.closeTimeout seconds before timing out.
+     * Pooled HTTP connections are released once the threads have stopped.
      */
     public void close() {
         this.executor.shutdown();
         try {
+            if (this.spoolReplayer != null) {
+                this.spoolReplayer.interrupt();
+                this.spoolReplayer.join(TimeUnit.SECONDS.toMillis(this.closeTimeout));
+            }
+            if (this.retryScheduler != null) {
+                this.retryScheduler.interrupt();
+                this.retryScheduler.join(TimeUnit.SECONDS.toMillis(this.closeTimeout));
+                // Events waiting for a retry get one last attempt without waiting out their backoff
+                List<RetryPolicy.Retry> pending = new ArrayList<>();
+                this.retryQueue.drainTo(pending, Integer.MAX_VALUE);
+                for (RetryPolicy.Retry retry : pending) {
+                    this.requeue(retry.getEvent());
+                }
+            }
             this.requestQueue.offer(POISON_PILL); // Does not acknowledge blockOnSend
             this.executor.awaitTermination(this.closeTimeout, TimeUnit.SECONDS);
+            if (this.sendPermits != null) {
+                // Wait for requests still in flight on virtual threads
+                this.sendPermits.tryAcquire(this.maxConcurrentBranches, this.closeTimeout, TimeUnit.SECONDS);
+            }
         } catch (InterruptedException e) {
             log.error(e);
         } finally {
             this.executor.shutdownNow();
+            this.transport.close();
+            if (this.compressor != null) {
+                this.compressor.close();
+            }
+            if (this.spool != null) {
+                this.spool.close();
+            }
         }
     }
 
     /**
-     * Returns an HTTP POST request built from the specified Event.
-     *
-     * @param event the data to be sent in an HTTP POST request
-     * @return an HTTP POST request
+     * Returns a factory of virtual threads for sending requests, or null if the JDK does not support them.
+     * @return a factory of virtual threads, or null
      */
-    private HttpPost createHttpRequest(Event event) {
-        HttpPost post = new HttpPost(this.apiHost + "/1/events/" + event.getDataSet());
-
-        post.setHeader("User-Agent", this.userAgent);
-        post.setHeader("X-Honeycomb-Team", event.getWriteKey());
-        post.setHeader("X-Honeycomb-SampleRate", Integer.toString(event.getSampleRate()));
-        post.setHeader("X-Honeycomb-Event-Time", event.getCreatedAt());
-        post.setEntity(new StringEntity(new JSONObject(event.getFields()).toString(), ContentType.APPLICATION_JSON));
-
-        return post;
+    private ThreadFactory createVirtualThreadFactory() {
+        ThreadFactory factory = VirtualThreads.newFactory("libhoney-sender-");
+        if (factory == null) {
+            log.warn("virtual threads are not supported by this JDK; sending on a pool of platform threads");
+        }
+        return factory;
     }
 
     /**
-     * Returns a JSONObject indicating that a specified error has occurred.
+     * Returns a bounded request queue with the specified capacity: a LaneQueue with lanes of that capacity if
+     * laneRouting or prioritization is set, a lock-free ring buffer if lockFreeRequestQueue is set, so that threads
+     * sending events do not contend on a lock, or an ArrayBlockingQueue otherwise.  Events of a lower priority
+     * evicted from a LaneQueue are spooled or dropped.
      *
-     * @param error string describing specified error
-     * @param metadata metadata string used for debugging
-     * @return a JSONObject indicating that a specified error has occurred
+     * @param capacity the maximum number of requests held in the queue, or in each lane
+     * @return a bounded request queue with the specified capacity
      */
-    protected JSONObject createJsonError(String error, String metadata) {
-        JSONObject json = new JSONObject();
-        try {
-            json.put("status_code", 0);
-            json.put("duration", 0);
-            json.put("metadata", metadata);
-            json.put("body", "");
-            json.put("error", error);
-        } catch (Exception e) {
-            log.error(e);
+    private BlockingQueue<Object> createRequestQueue(int capacity) {
+        if (this.laneRouting || this.prioritization) {
+            this.laneQueue = new LaneQueue(this.lanes, capacity, this.laneRouting, this::shed);
+            return this.laneQueue;
         }
-        return json;
+        if (this.lockFreeRequestQueue) {
+            return new RingBufferQueue<>(capacity);
+        }
+        return new ArrayBlockingQueue<>(capacity);
     }
 
     /**
-     * Returns a JSONObject based on the HTTP response received from honeycomb.io.
-     * @param httpResponse HTTP response received
-     * @param metadata metadata string used for debugging
-     * @param start current time in ms when the request started
-     * @return a JSONObject based on the HTTP response received from honeycomb.io
+     * Returns the transport described by this Transmission's metadata: a non-blocking transport with a window of
+     * maxConcurrentBranches requests in flight, or a blocking transport with one pooled connection per thread.
+     *
+     * @return the transport described by this Transmission's metadata
      */
-    private JSONObject createJsonResponse(HttpResponse httpResponse, String metadata, long start)  {
-        long end = System.currentTimeMillis();
+    private Transport createTransport() {
+        if (this.asyncTransport) {
+            try {
+                return new AsyncHttpTransport(this.ioThreads, this.maxConcurrentBranches, this.maxConnections,
+                        this.connectTimeout, this.socketTimeout, this.closeTimeout);
+            } catch (IOReactorException e) {
+                throw new IllegalStateException("Unable to start I/O reactor", e);
+            }
+        }
+        return new BlockingHttpTransport(this.maxConnections, Math.min(this.maxConcurrentBranches, this.maxConnections),
+                this.connectTimeout, this.socketTimeout, this.idleConnectionTimeout);
+    }
 
-        JSONObject json = new JSONObject();
+    /**
+     * Returns the spool in spoolDirectory, recovering any events left by a previous run.
+     * @return the spool in spoolDirectory
+     */
+    private Spool openSpool() {
         try {
-            json.put("status_code", httpResponse.getStatusLine().getStatusCode());
-            json.put("duration", end - start);
-            json.put("metadata", metadata);
-            json.put("body", EntityUtils.toString(httpResponse.getEntity()));
-            json.put("error", "");
-        } catch (Exception e) {
-            log.error(e);
+            return new Spool(new File(this.spoolDirectory), this.spoolMaxBytes, this.spoolSegmentBytes);
+        } catch (IOException e) {
+            throw new IllegalStateException("Unable to open spool in " + this.spoolDirectory, e);
         }
-
-        return json;
     }
 
     /**
-     * Adds a Event to this Transmission's request queue.
+     * Appends an Event to the spool so that it is replayed later.
      *
-     * @param event Event to be enqueued
+     * @param event Event that could not be queued or sent
+     * @return true if the Event was spooled, or false if there is no spool or it is full
      */
-    public void enqueueRequest(Object event) {
-        if (this.blockOnSend) {
-            try {
-                this.requestQueue.put(event);
-            } catch (InterruptedException e) {
-                log.error(e);
-            }
-        } else {
-            try {
-                this.requestQueue.add(event);
-            } catch (IllegalStateException e) {
-                log.debug("queue_overflow");
-                if (event.getClass() == Event.class) {
-                    this.enqueueResponse(this.createJsonError("event dropped; queue overflow",
-                            ((Event) event).getMetadata()));
-                } else {
-                    this.enqueueResponse(this.createJsonError("event dropped; queue overflow", ""));
-                }
+    private boolean spool(Event event) {
+        if (this.spool == null) {
+            return false;
+        }
+        try {
+            JsonWriter writer = JSON_WRITER.get().setFieldKeys(this.fieldKeys);
+            byte[] record = Spool.encode(event, writer);
+            writer.release();
+            if (this.spool.append(record)) {
+                this.metrics.eventSpooled();
+                this.recycle(event);
+                return true;
             }
+        } catch (IOException e) {
+            log.error(e);
         }
+        return false;
     }
 
     /**
-     * Adds a JSONObject to this Transmission's response queue.
-     *
-     * @param json JSONObject to be enqueued
+     * Moves spooled events back onto the request queue in the order they were spooled, pacing them to
+     * spoolReplayRate events per second, or to one every SPOOL_PROBE_INTERVAL ms while sends are failing.
+     * A spooled event is committed only once it is on the request queue, so an event is never lost by a crash
+     * during replay but may be sent twice, and the spool depth may briefly count an event that is already queued.
+     * If replay is stopped while waiting for room on the request queue, the record is left uncommitted at the head
+     * of the spool, so replay resumes in order.  A record that cannot be decoded or queued is logged and skipped,
+     * so replay only stops once interrupted.
      */
-    public void enqueueResponse(JSONObject json) {
-        if (this.blockOnResponse) {
-            try {
-                responseQueue.put(json);
-            } catch (InterruptedException e) {
-                log.error(e);
-            }
-        } else {
-            if (responseQueue.offer(json)) {
-                log.debug("message_queued");
-            } else {
-                log.debug("queue_overflow");
+    private void runSpoolReplay() {
+        long interval = TimeUnit.SECONDS.toNanos(1) / Math.max(1, this.spoolReplayRate);
+        long next = System.nanoTime();
+        long lastReplay = next - TimeUnit.MILLISECONDS.toNanos(SPOOL_PROBE_INTERVAL);
+        try {
+            while (!Thread.currentThread().isInterrupted()) {
+                byte[] record = this.spool.peek();
+                long now = System.nanoTime();
+                long due = this.sendsFailing
+                        ? Math.max(next, lastReplay + TimeUnit.MILLISECONDS.toNanos(SPOOL_PROBE_INTERVAL)) : next;
+                if (record == null || due > now) {
+                    TimeUnit.NANOSECONDS.sleep(record == null ? TimeUnit.MILLISECONDS.toNanos(100)
+                            : Math.min(due - now, TimeUnit.MILLISECONDS.toNanos(100)));
+                    continue;
+                }
+
+                try {
+                    Event event = Spool.decode(record, this);
+                    event.setEnqueuedAt(System.nanoTime());
+                    this.requestQueue.put(event);
+                    this.metrics.eventEnqueued();
+                } catch (RuntimeException e) {
+                    log.error("skipping spool record that could not be replayed", e);
+                }
+                this.spool.commit();
+                lastReplay = now;
+                next = Math.max(next, now - interval) + interval;
             }
+        } catch (InterruptedException e) {
+            log.debug("spool replay stopped");
         }
     }
 
     /**
-     * Returns the API host for this Transmission.
-     * @return the API host for this Transmission
+     * Schedules a retry of an Event that failed with a retryable error, or appends it to the spool if it cannot be
+     * retried, including when Retry-After asks for a longer wait than retryMaxDelay.
+     *
+     * @param event Event that failed
+     * @param retryAfter number of ms requested by a Retry-After header, or -1 if there was none
+     * @return true if the Event will be sent again later
      */
-    public String getApiHost() {
-        return this.apiHost;
+    private boolean retryOrSpool(Event event, long retryAfter) {
+        if (this.retryScheduler != null && !this.executor.isShutdown()
+                && this.retryPolicy.tryRetry(event.getRetries(), retryAfter)) {
+            int retries = event.getRetries() + 1;
+            event.setRetries(retries);
+            this.retryQueue.add(new RetryPolicy.Retry(event, this.retryPolicy.getDelay(retries, retryAfter)));
+            this.metrics.eventRetried();
+            return true;
+        }
+        return this.spool(event);
     }
 
     /**
-     * Returns true if this Transmission should block on response.
-     * @return true if this Transmission should block on response
+     * Takes Events from the retry queue as their backoff elapses and moves them back onto the request queue.
      */
-    public boolean getBlockOnResponse() {
-        return this.blockOnResponse;
+    private void runRetries() {
+        try {
+            while (!Thread.currentThread().isInterrupted()) {
+                this.requeue(this.retryQueue.take().getEvent());
+            }
+        } catch (InterruptedException e) {
+            log.debug("retries stopped");
+        }
     }
 
     /**
-     * Returns true if this Transmission should block on send.
-     * @return true if this Transmission should block on send
+     * Adds an Event being retried to the request queue without blocking, spooling or dropping it if the queue is
+     * full.
+     *
+     * @param event Event to be retried
      */
-    public boolean getBlockOnSend() {
-        return this.blockOnSend;
+    private void requeue(Event event) {
+        event.setEnqueuedAt(System.nanoTime());
+        if (!this.requestQueue.offer(event)) {
+            log.debug("queue_overflow");
+            this.shed(event);
+        }
     }
 
     /**
-     * Returns number of seconds Transmission's close method will wait before timing out.
-     * @return number of seconds Transmission's close method will wait before timing out
+     * Spools an Event that did not fit in the request queue or was evicted from it, or drops it if there is no
+     * spool.
+     *
+     * @param event Event shed from the request queue
      */
-    public int getCloseTimeout() {
-        return this.closeTimeout;
+    private void shed(Event event) {
+        if (!this.spool(event)) {
+            this.metrics.eventDropped();
+            this.deliverResponse(this.createErrorResponse("event dropped; queue overflow", event.getMetadata()));
+            this.recycle(event);
+        }
     }
 
     /**
-     * Returns this Transmission's thread executor.
-     * @return this Transmission's thread executor
+     * Returns an Event that will not be used again to the pool, if Events are recycled.
+     *
+     * @param event Event whose request has completed, or that was spooled, dropped or sampled out
      */
-    public Executor getExecutor() {
-        return this.executor;
+    void recycle(Event event) {
+        if (this.eventPool != null) {
+            this.eventPool.release(event);
+        }
     }
 
     /**
-     * Returns this Transmission's queue of requests to be sent.
-     * @return this Transmission's queue of requests to be sent.
+     * Returns true if a response with the specified status code may succeed if the request is sent again later.
+     *
+     * @param statusCode HTTP status code
+     * @return true if the request may be sent again later
      */
-    public Queue getRequestQueue() {
-        return this.requestQueue;
+    private static boolean isRetryable(int statusCode) {
+        return statusCode == 429 || statusCode >= 500;
     }
 
     /**
-     * Return this Transmission's queue of received responses.
-     * @return this Transmission's queue of received responses.
+     * Takes events from the request queue and groups them into batches, sending each batch once it is full or
+     * has lingered for batchTimeout ms.  Pending batches are flushed when the POISON_PILL is taken.
+     *
+     * @throws InterruptedException if the thread is interrupted while waiting for a request
      */
-    public Queue getResponseQueue() {
-        return this.responseQueue;
-    }
+    private void runBatchLoop() throws InterruptedException {
+        EventBatcher batcher = new EventBatcher(this.maxBatchSize, this.maxBatchBytes, this.batchTimeout,
+                this.fieldKeys);
+        List<EventBatcher.Batch> ready = new ArrayList<>();
+
+        while (!Thread.currentThread().isInterrupted()) {
+            long wait = batcher.millisUntilNextDeadline(System.currentTimeMillis());
+            Object request = wait < 0 ? this.requestQueue.take() : this.requestQueue.poll(wait, TimeUnit.MILLISECONDS);
+
+            if (request == POISON_PILL) {
+                batcher.drainAll(ready);
+                this.sendBatches(ready);
+                log.debug("killing thread " + Thread.currentThread().getId());
+                this.enqueueRequest(POISON_PILL);
+                return;
+            }
+            long now = System.currentTimeMillis();
+            if (request != null) {
+                this.recordQueueLatency((Event) request);
+                batcher.add((Event) request, now, ready);
+                // An Event waiting in an open batch would otherwise hold its lane for up to batchTimeout ms
+                this.releaseLane((Event) request);
+            }
+            batcher.drainExpired(now, ready);
+            this.sendBatches(ready);
+        }
+    }
+
+    /**
+     * Records the time the specified Event waited in the request queue.
+     * @param event Event taken from the request queue
+     */
+    private void recordQueueLatency(Event event) {
+        this.metrics.recordQueueLatency(System.nanoTime() - event.getEnqueuedAt());
+    }
+
+    /**
+     * Sends each of the specified batches, then clears the list.
+     * @param batches batches to be sent
+     */
+    private void sendBatches(List<EventBatcher.Batch> batches) {
+        for (EventBatcher.Batch batch : batches) {
+            this.sendBatch(batch);
+        }
+        batches.clear();
+    }
+
+    /**
+     * Returns an HTTP POST request to the batch endpoint built from the specified batch.
+     *
+     * @param batch the events to be sent in an HTTP POST request
+     * @return an HTTP POST request
+     */
+    private HttpPost createHttpBatchRequest(EventBatcher.Batch batch) {
+        HttpPost post = new HttpPost(this.apiHost + "/1/batch/" + batch.getDataSet());
+
+        post.setHeader("User-Agent", this.userAgent);
+        post.setHeader("X-Honeycomb-Team", batch.getWriteKey());
+        JsonWriter body = batch.finish();
+        this.setBody(post, body.buffer(), body.size(), false);
+
+        return post;
+    }
+
+    /**
+     * Returns an HTTP POST request built from the specified Event.
+     *
+     * @param event the data to be sent in an HTTP POST request
+     * @return an HTTP POST request
+     */
+    private HttpPost createHttpRequest(Event event) {
+        HttpPost post = new HttpPost(this.apiHost + "/1/events/" + event.getDataSet());
+
+        post.setHeader("User-Agent", this.userAgent);
+        post.setHeader("X-Honeycomb-Team", event.getWriteKey());
+        post.setHeader("X-Honeycomb-SampleRate", Integer.toString(event.getSampleRate()));
+        post.setHeader("X-Honeycomb-Event-Time", event.getCreatedAt());
+        JsonWriter writer = JSON_WRITER.get().setFieldKeys(this.fieldKeys);
+        writer.reset();
+        event.writeFields(writer);
+        this.setBody(post, writer.buffer(), writer.size(), true);
+        writer.release();
+
+        return post;
+    }
+
+    /**
+     * Sets the JSON body of a request, gzip-compressing it if compression is enabled and the body is large enough.
+     *
+     * @param post the request
+     * @param bytes buffer holding the body
+     * @param length length of the body in bytes
+     * @param reusedBuffer true if the buffer will be reused, so an uncompressed body must be copied
+     */
+    private void setBody(HttpPost post, byte[] bytes, int length, boolean reusedBuffer) {
+        if (this.compressor != null && this.compressor.shouldCompress(length)) {
+            byte[] compressed = this.compressor.compress(bytes, 0, length);
+            post.setHeader("Content-Encoding", "gzip");
+            post.setEntity(new ByteArrayEntity(compressed, ContentType.APPLICATION_JSON));
+        } else if (reusedBuffer) {
+            post.setEntity(new ByteArrayEntity(Arrays.copyOf(bytes, length), ContentType.APPLICATION_JSON));
+        } else {
+            post.setEntity(new ByteArrayEntity(bytes, 0, length, ContentType.APPLICATION_JSON));
+        }
+    }
+
+    /**
+     * Returns a JSONObject indicating that a specified error has occurred.
+     *
+     * @param error string describing specified error
+     * @param metadata metadata string used for debugging
+     * @return a JSONObject indicating that a specified error has occurred
+     */
+    protected JSONObject createJsonError(String error, String metadata) {
+        return this.createErrorResponse(error, metadata).toJson();
+    }
+
+    /**
+     * Returns a Response indicating that a specified error has occurred.
+     *
+     * @param error string describing specified error
+     * @param metadata metadata string used for debugging
+     * @return a Response indicating that a specified error has occurred
+     */
+    protected Response createErrorResponse(String error, String metadata) {
+        return new Response(0, 0, metadata, "", error);
+    }
+
+    /**
+     * Returns a Response based on the HTTP response received from honeycomb.io.
+     * @param httpResponse HTTP response received
+     * @param metadata metadata string used for debugging
+     * @param start current time in ms when the request started
+     * @return a Response based on the HTTP response received from honeycomb.io
+     */
+    private Response createResponse(HttpResponse httpResponse, String metadata, long start)  {
+        long end = System.currentTimeMillis();
+
+        String body = "";
+        try {
+            body = EntityUtils.toString(httpResponse.getEntity());
+        } catch (Exception e) {
+            log.error(e);
+        }
+        return new Response(httpResponse.getStatusLine().getStatusCode(), end - start, metadata, body, "");
+    }
+
+    /**
+     * Delivers one Response per event in a batch, based on the HTTP response received from honeycomb.io.
+     * A successful batch response carries a status for each event; any other response applies to every event.
+     *
+     * @param batch the batch that was sent
+     * @param httpResponse HTTP response received
+     * @param start current time in ms when the request started
+     */
+    private void deliverBatchResponses(EventBatcher.Batch batch, HttpResponse httpResponse, long start) {
+        long duration = System.currentTimeMillis() - start;
+        List<Event> events = batch.getEvents();
+
+        int statusCode = httpResponse.getStatusLine().getStatusCode();
+        String body = "";
+        JSONArray statuses = null;
+        try {
+            body = EntityUtils.toString(httpResponse.getEntity());
+            if (statusCode == 200) {
+                statuses = new JSONArray(body);
+            }
+        } catch (Exception e) {
+            log.error(e);
+        }
+
+        this.sendsFailing = isRetryable(statusCode);
+        long retryAfter = RetryPolicy.getRetryAfter(httpResponse);
+        for (int i = 0; i < events.size(); i++) {
+            JSONObject status = statuses == null ? null : statuses.optJSONObject(i);
+            int eventStatusCode = status == null ? statusCode : status.optInt("status", statusCode);
+            if (isRetryable(eventStatusCode) && this.retryOrSpool(events.get(i), retryAfter)) {
+                continue;
+            }
+            this.metrics.eventCompleted(eventStatusCode);
+            this.deliverResponse(new Response(eventStatusCode, duration, events.get(i).getMetadata(),
+                    status == null ? body : "", status == null ? "" : status.optString("error", "")));
+            this.recycle(events.get(i));
+        }
+    }
+
+    /**
+     * Passes a Response to the response observer, if any, then adds its JSON representation to the response queue,
+     * if there is one.
+     *
+     * @param response Response to be delivered
+     */
+    private void deliverResponse(Response response) {
+        if (this.responseObserver != null) {
+            try {
+                this.responseObserver.onResponse(response);
+            } catch (RuntimeException e) {
+                log.error(e);
+            }
+        }
+        if (this.responseQueue != null) {
+            this.enqueueResponse(response.toJson());
+        }
+    }
+
+    /**
+     * Adds a Event to this Transmission's request queue.
+     *
+     * @param event Event to be enqueued
+     */
+    public void enqueueRequest(Object event) {
+        if (event instanceof Event) {
+            ((Event) event).setEnqueuedAt(System.nanoTime());
+        }
+        if (this.blockOnSend) {
+            try {
+                this.requestQueue.put(event);
+                this.countEnqueued(event);
+            } catch (InterruptedException e) {
+                log.error(e);
+            }
+        } else {
+            try {
+                this.requestQueue.add(event);
+                this.countEnqueued(event);
+            } catch (IllegalStateException e) {
+                log.debug("queue_overflow");
+                if (event instanceof Event && this.spool((Event) event)) {
+                    return;
+                }
+                this.metrics.eventDropped();
+                if (event instanceof Event) {
+                    this.deliverResponse(this.createErrorResponse("event dropped; queue overflow",
+                            ((Event) event).getMetadata()));
+                    this.recycle((Event) event);
+                } else {
+                    this.deliverResponse(this.createErrorResponse("event dropped; queue overflow", ""));
+                }
+            }
+        }
+    }
+
+    /**
+     * Counts a request added to the request queue, unless it is the POISON_PILL.
+     * @param event request added to the request queue
+     */
+    private void countEnqueued(Object event) {
+        if (event != POISON_PILL) {
+            this.metrics.eventEnqueued();
+        }
+    }
+
+    /**
+     * Adds a JSONObject to this Transmission's response queue, if there is one.
+     *
+     * @param json JSONObject to be enqueued
+     */
+    public void enqueueResponse(JSONObject json) {
+        if (this.responseQueue == null) {
+            return;
+        }
+        if (this.blockOnResponse) {
+            try {
+                responseQueue.put(json);
+            } catch (InterruptedException e) {
+                log.error(e);
+            }
+        } else {
+            if (responseQueue.offer(json)) {
+                log.debug("message_queued");
+            } else {
+                log.debug("queue_overflow");
+            }
+        }
+    }
+
+    /**
+     * Returns true if the number of requests in flight adapts to throttling and latency.
+     * @return true if the number of requests in flight adapts to throttling and latency
+     */
+    public boolean getAdaptiveConcurrency() {
+        return this.adaptiveConcurrency;
+    }
+
+    /**
+     * Returns the API host for this Transmission.
+     * @return the API host for this Transmission
+     */
+    public String getApiHost() {
+        return this.apiHost;
+    }
+
+    /**
+     * Returns true if this Transmission uses a non-blocking transport.
+     * @return true if this Transmission uses a non-blocking transport
+     */
+    public boolean getAsyncTransport() {
+        return this.asyncTransport;
+    }
+
+    /**
+     * Returns true if this Transmission sends events in batches to the batch endpoint.
+     * @return true if this Transmission sends events in batches to the batch endpoint
+     */
+    public boolean getBatching() {
+        return this.batching;
+    }
+
+    /**
+     * Returns the maximum number of ms an event waits in a batch before the batch is sent.
+     * @return the maximum number of ms an event waits in a batch before the batch is sent
+     */
+    public int getBatchTimeout() {
+        return this.batchTimeout;
+    }
+
+    /**
+     * Returns true if this Transmission should block on response.
+     * @return true if this Transmission should block on response
+     */
+    public boolean getBlockOnResponse() {
+        return this.blockOnResponse;
+    }
+
+    /**
+     * Returns true if this Transmission should block on send.
+     * @return true if this Transmission should block on send
+     */
+    public boolean getBlockOnSend() {
+        return this.blockOnSend;
+    }
+
+    /**
+     * Returns number of seconds Transmission's close method will wait before timing out.
+     * @return number of seconds Transmission's close method will wait before timing out
+     */
+    public int getCloseTimeout() {
+        return this.closeTimeout;
+    }
+
+    /**
+     * Returns the gzip compression level for request bodies, or 0 if bodies are not compressed.
+     * @return the gzip compression level for request bodies, or 0 if bodies are not compressed
+     */
+    public int getCompressionLevel() {
+        return this.compressionLevel;
+    }
+
+    /**
+     * Returns the minimum size in bytes of a request body that is compressed.
+     * @return the minimum size in bytes of a request body that is compressed
+     */
+    public int getCompressionMinSize() {
+        return this.compressionMinSize;
+    }
+
+    /**
+     * Returns the number of ms to wait while establishing a connection before timing out.
+     * @return the number of ms to wait while establishing a connection before timing out
+     */
+    public int getConnectTimeout() {
+        return this.connectTimeout;
+    }
+
+    /**
+     * Returns the pool from which Builder.newEvent() takes Events, or null if Events are not recycled.
+     * @return the pool from which Builder.newEvent() takes Events, or null
+     */
+    EventPool getEventPool() {
+        return this.eventPool;
+    }
+
+    /**
+     * Returns the maximum number of sent Events kept for reuse, or 0 if Events are not recycled.
+     * @return the maximum number of sent Events kept for reuse, or 0 if Events are not recycled
+     */
+    public int getEventPoolSize() {
+        return this.eventPoolSize;
+    }
+
+    /**
+     * Returns this Transmission's thread executor.
+     * @return this Transmission's thread executor
+     */
+    public Executor getExecutor() {
+        return this.executor;
+    }
+
+    /**
+     * Returns true if the request queue has a separate lane for each write key and data set.
+     * @return true if the request queue has a separate lane for each write key and data set
+     */
+    public boolean getLaneRouting() {
+        return this.laneRouting;
+    }
+
+    /**
+     * Returns the configuration of lanes that differ from the default lane.  Lanes are only used with lane routing,
+     * which configuring any lane enables.
+     * @return the configuration of lanes that differ from the default lane
+     */
+    public List<LaneConfig> getLanes() {
+        return this.lanes;
+    }
+
+    /**
+     * Returns the maximum number of times an event that failed with a retryable error is sent again.
+     * @return the maximum number of times an event that failed with a retryable error is sent again
+     */
+    public int getMaxRetries() {
+        return this.maxRetries;
+    }
+
+    /**
+     * Returns the metrics describing this Transmission's queues and requests.
+     * @return the metrics describing this Transmission's queues and requests
+     */
+    public Metrics getMetrics() {
+        return this.metrics;
+    }
+
+    /**
+     * Returns true if Events of a higher priority are sent first and dropped last.
+     * @return true if Events of a higher priority are sent first and dropped last
+     */
+    public boolean getPrioritization() {
+        return this.prioritization;
+    }
+
+    /**
+     * Returns this Transmission's queue of requests to be sent.
+     * @return this Transmission's queue of requests to be sent.
+     */
+    public Queue getRequestQueue() {
+        return this.requestQueue;
+    }
+
+    /**
+     * Returns the observer to which every Response is passed, or null if there is none.
+     * @return the observer to which every Response is passed, or null if there is none
+     */
+    public ResponseObserver getResponseObserver() {
+        return this.responseObserver;
+    }
+
+    /**
+     * Return this Transmission's queue of received responses, or null if responses are not queued.
+     * @return this Transmission's queue of received responses, or null if responses are not queued
+     */
+    public Queue getResponseQueue() {
+        return this.responseQueue;
+    }
+
+    /**
+     * Returns the number of ms a pooled connection may stay idle before it is closed.
+     * @return the number of ms a pooled connection may stay idle before it is closed
+     */
+    public int getIdleConnectionTimeout() {
+        return this.idleConnectionTimeout;
+    }
+
+    /**
+     * Returns the number of I/O threads used by a non-blocking transport.
+     * @return the number of I/O threads used by a non-blocking transport
+     */
+    public int getIoThreads() {
+        return this.ioThreads;
+    }
+
+    /**
+     * Returns true if this Transmission's request queue is a lock-free ring buffer.
+     * @return true if this Transmission's request queue is a lock-free ring buffer
+     */
+    public boolean getLockFreeRequestQueue() {
+        return this.lockFreeRequestQueue;
+    }
+
+    /**
+     * Returns the maximum size of a batch body in bytes.
+     * @return the maximum size of a batch body in bytes
+     */
+    public int getMaxBatchBytes() {
+        return this.maxBatchBytes;
+    }
+
+    /**
+     * Returns the maximum number of events in a batch.
+     * @return the maximum number of events in a batch
+     */
+    public int getMaxBatchSize() {
+        return this.maxBatchSize;
+    }
+
+    /**
+     * Returns the maximum number of pooled HTTP connections.
+     * @return the maximum number of pooled HTTP connections
+     */
+    public int getMaxConnections() {
+        return this.maxConnections;
+    }
 
     /**
      * Returns the number of threads to be instantiated on construction.
@@ -338,6 +1300,94 @@ public class Transmission {
         return this.maxConcurrentBranches;
     }
 
+    /**
+     * Returns the maximum backoff in ms before the first retry of an event.
+     * @return the maximum backoff in ms before the first retry of an event
+     */
+    public int getRetryBaseDelay() {
+        return this.retryBaseDelay;
+    }
+
+    /**
+     * Returns the number of retries earned by each event sent, which bounds the extra load added by retries.
+     * @return the number of retries earned by each event sent, which bounds the extra load added by retries
+     */
+    public double getRetryBudget() {
+        return this.retryBudget;
+    }
+
+    /**
+     * Returns the maximum backoff in ms before any retry of an event.
+     * @return the maximum backoff in ms before any retry of an event
+     */
+    public int getRetryMaxDelay() {
+        return this.retryMaxDelay;
+    }
+
+    /**
+     * Returns the number of ms to wait for data on an open connection before timing out.
+     * @return the number of ms to wait for data on an open connection before timing out
+     */
+    public int getSocketTimeout() {
+        return this.socketTimeout;
+    }
+
+    /**
+     * Returns the directory in which undeliverable events are spooled, or null if spooling is disabled.
+     * @return the directory in which undeliverable events are spooled, or null if spooling is disabled
+     */
+    public String getSpoolDirectory() {
+        return this.spoolDirectory;
+    }
+
+    /**
+     * Returns the maximum number of bytes of disk used by the spool.
+     * @return the maximum number of bytes of disk used by the spool
+     */
+    public long getSpoolMaxBytes() {
+        return this.spoolMaxBytes;
+    }
+
+    /**
+     * Returns the maximum number of spooled events replayed per second.
+     * @return the maximum number of spooled events replayed per second
+     */
+    public int getSpoolReplayRate() {
+        return this.spoolReplayRate;
+    }
+
+    /**
+     * Returns the size in bytes of each spool segment file.
+     * @return the size in bytes of each spool segment file
+     */
+    public int getSpoolSegmentBytes() {
+        return this.spoolSegmentBytes;
+    }
+
+    /**
+     * Returns the spool, or null if spooling is disabled.
+     * @return the spool, or null if spooling is disabled
+     */
+    Spool getSpool() {
+        return this.spool;
+    }
+
+    /**
+     * Returns the transport that executes this Transmission's HTTP requests.
+     * @return the transport that executes this Transmission's HTTP requests
+     */
+    public Transport getTransport() {
+        return this.transport;
+    }
+
+    /**
+     * Returns true if requests are sent on virtual threads, where the JDK supports them.
+     * @return true if requests are sent on virtual threads, where the JDK supports them
+     */
+    public boolean getVirtualThreads() {
+        return this.virtualThreads;
+    }
+
     /**
      * Returns true if all threads are shutdown.
      * @return true if all threads are shutdown
@@ -353,32 +1403,253 @@ public class Transmission {
      */
     protected void send(Event event) {
         long start = System.currentTimeMillis();
+        long startNanos = System.nanoTime();
+        if (event.getRetries() == 0) {
+            this.retryPolicy.recordRequest();
+        }
 
         // Configure request
         HttpPost post = this.createHttpRequest(event);
 
-        // Execute request
-        HttpResponse response = null;
+        // Execute request, then interpret and enqueue the response
+        long permit = this.acquirePermit();
+        this.execute(post, new FutureCallback<HttpResponse>() {
+            @Override
+            public void completed(HttpResponse response) {
+                metrics.recordSendLatency(System.nanoTime() - startNanos);
+                metrics.requestSent(post.getEntity().getContentLength());
+                int statusCode = response.getStatusLine().getStatusCode();
+                boolean retryable = isRetryable(statusCode);
+                releasePermit(permit, retryable);
+                releaseLane(event);
+                sendsFailing = retryable;
+                if (retryable && retryOrSpool(event, RetryPolicy.getRetryAfter(response))) {
+                    EntityUtils.consumeQuietly(response.getEntity());
+                    return;
+                }
+                metrics.eventCompleted(statusCode);
+                deliverResponse(createResponse(response, event.getMetadata(), start));
+                recycle(event);
+            }
+
+            @Override
+            public void failed(Exception e) {
+                log.error(e);
+                releasePermit(permit, true);
+                releaseLane(event);
+                sendsFailing = true;
+                if (retryOrSpool(event, -1)) {
+                    return;
+                }
+                metrics.eventCompleted(0);
+                deliverResponse(createErrorResponse(e.toString(), event.getMetadata()));
+                recycle(event);
+            }
+
+            @Override
+            public void cancelled() {
+                this.failed(new IOException("request cancelled"));
+            }
+        });
+    }
+
+    /**
+     * Send an HTTP request to the batch endpoint based on a batch of Events, wait for a response, then enqueue
+     * a response for each Event.
+     *
+     * @param batch batch from which the HTTP request is built
+     */
+    protected void sendBatch(EventBatcher.Batch batch) {
+        long start = System.currentTimeMillis();
+        long startNanos = System.nanoTime();
+        for (Event event : batch.getEvents()) {
+            if (event.getRetries() == 0) {
+                this.retryPolicy.recordRequest();
+            }
+        }
+
+        // Configure request
+        HttpPost post = this.createHttpBatchRequest(batch);
+
+        // Execute request, then interpret the response and enqueue one response per event
+        long permit = this.acquirePermit();
+        this.execute(post, new FutureCallback<HttpResponse>() {
+            @Override
+            public void completed(HttpResponse response) {
+                metrics.recordSendLatency(System.nanoTime() - startNanos);
+                metrics.requestSent(post.getEntity().getContentLength());
+                releasePermit(permit, isRetryable(response.getStatusLine().getStatusCode()));
+                deliverBatchResponses(batch, response, start);
+            }
+
+            @Override
+            public void failed(Exception e) {
+                log.error(e);
+                releasePermit(permit, true);
+                sendsFailing = true;
+                for (Event event : batch.getEvents()) {
+                    if (retryOrSpool(event, -1)) {
+                        continue;
+                    }
+                    metrics.eventCompleted(0);
+                    deliverResponse(createErrorResponse(e.toString(), event.getMetadata()));
+                    recycle(event);
+                }
+            }
+
+            @Override
+            public void cancelled() {
+                this.failed(new IOException("request cancelled"));
+            }
+        });
+    }
+
+    /**
+     * Executes a request on the transport, on a new virtual thread if virtualThreads is in effect, waiting while
+     * maxConcurrentBranches requests are already in flight on virtual threads.  A transport that throws fails the
+     * callback, so that the permit and lane taken for the request are always released.
+     *
+     * @param post HTTP request to execute
+     * @param callback callback notified when the request completes
+     */
+    private void execute(HttpPost post, FutureCallback<HttpResponse> callback) {
+        if (this.virtualThreadFactory == null) {
+            this.executeOnTransport(post, new Completion(callback, null));
+            return;
+        }
+        try {
+            this.sendPermits.acquire();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            callback.failed(e);
+            return;
+        }
+        FutureCallback<HttpResponse> completion = new Completion(callback, this.sendPermits);
+        try {
+            this.virtualThreadFactory.newThread(() -> this.executeOnTransport(post, completion)).start();
+        } catch (RuntimeException | OutOfMemoryError e) {
+            completion.failed(new RejectedExecutionException("unable to start a sender thread", e));
+        }
+    }
+
+    /**
+     * Executes a request on the transport, failing the callback if the transport throws.
+     *
+     * @param post HTTP request to execute
+     * @param completion callback notified when the request completes
+     */
+    private void executeOnTransport(HttpPost post, FutureCallback<HttpResponse> completion) {
         try {
-            response = (new DefaultHttpClient()).execute(post);
-        } catch (IOException e) {
-            log.error(e);
+            this.transport.execute(post, completion);
+        } catch (RuntimeException e) {
+            completion.failed(e);
         }
+    }
 
-        // Interpret response
-        JSONObject json = this.createJsonResponse(response, event.getMetadata(), start);
+    /**
+     * Passes only the first outcome of a request on to its callback, so that a transport which completes the
+     * callback and then throws does not release the request's permits and lane twice.
+     */
+    private final class Completion implements FutureCallback<HttpResponse> {
+        private final FutureCallback<HttpResponse> callback;
+        private final Semaphore sendPermits;
+        private final AtomicBoolean done = new AtomicBoolean();
+
+        /**
+         * Constructs a Completion.
+         *
+         * @param callback callback notified of the first outcome
+         * @param sendPermits semaphore released once the callback has been notified, or null
+         */
+        Completion(FutureCallback<HttpResponse> callback, Semaphore sendPermits) {
+            this.callback = callback;
+            this.sendPermits = sendPermits;
+        }
+
+        /**
+         * Notifies the callback if this is the first outcome of the request, then releases the send permit.
+         * @param notification notifies the callback
+         * @return true if this is the first outcome of the request
+         */
+        private boolean complete(Runnable notification) {
+            if (!this.done.compareAndSet(false, true)) {
+                return false;
+            }
+            try {
+                notification.run();
+            } finally {
+                if (this.sendPermits != null) {
+                    this.sendPermits.release();
+                }
+            }
+            return true;
+        }
 
-        // Enqueue response
-        this.enqueueResponse(json);
+        @Override
+        public void completed(HttpResponse response) {
+            this.complete(() -> this.callback.completed(response));
+        }
+
+        @Override
+        public void failed(Exception e) {
+            if (!this.complete(() -> this.callback.failed(e))) {
+                log.error(e);
+            }
+        }
+
+        @Override
+        public void cancelled() {
+            this.complete(this.callback::cancelled);
+        }
+    }
+
+    /**
+     * Waits until the limiter allows another request in flight, if adaptiveConcurrency is enabled.
+     * @return the permit to be passed to releasePermit when the request completes
+     */
+    private long acquirePermit() {
+        return this.limiter == null ? 0 : this.limiter.acquire();
+    }
+
+    /**
+     * Returns a permit taken by acquirePermit, adjusting the limit based on the outcome of the request.
+     * @param permit the permit returned by acquirePermit
+     * @param overloaded true if the request was throttled, failed with a server error, or could not be sent
+     */
+    private void releasePermit(long permit, boolean overloaded) {
+        if (this.limiter != null) {
+            this.limiter.release(permit, overloaded);
+        }
     }
 
     /**
-     * Enqueue a response indicating that a Event was dropped due to sample rate, including its metadata string.
+     * Lets the lane of an Event taken from the request queue send another Event, once its request has completed.
+     * @param event Event whose request has completed
+     */
+    private void releaseLane(Event event) {
+        if (this.laneQueue != null) {
+            this.laneQueue.release(event);
+        }
+    }
+
+    /**
+     * Returns the current maximum number of requests in flight at once.
+     * @return the current maximum number of requests in flight at once
+     */
+    int getConcurrencyLimit() {
+        return this.limiter == null ? this.maxConcurrentBranches : this.limiter.getLimit();
+    }
+
+    /**
+     * Deliver a response indicating that a Event was dropped due to sample rate, including its metadata string.
+     * Nothing is allocated if there is neither a response observer nor a response queue.
      * @param metadata metadata string used for debugging
      */
     public void sendDroppedResponse(String metadata) {
-        JSONObject json = this.createJsonError("event dropped due to sampling", metadata);
-        this.enqueueResponse(json);
+        this.metrics.eventSampled();
+        if (this.responseObserver != null || this.responseQueue != null) {
+            this.deliverResponse(this.createErrorResponse("event dropped due to sampling", metadata));
+        }
     }
 
     /**
@@ -393,8 +1664,9 @@ public class Transmission {
      * Sets the request queue (for debugging purposes)
      * @param requestQueue request queue
      */
-    protected void setRequestQueue(ArrayBlockingQueue requestQueue) {
+    protected void setRequestQueue(BlockingQueue requestQueue) {
         this.requestQueue = requestQueue;
+        this.laneQueue = requestQueue instanceof LaneQueue ? (LaneQueue) requestQueue : null;
     }
 
     /**
@@ -448,6 +1720,7 @@ public class Transmission {
             json.put("maxConcurrentBranches", this.maxConcurrentBranches);
             json.put("blockOnSend", this.blockOnSend);
             json.put("blockOnResponse", this.blockOnResponse);
+            json.put("batching", this.batching);
             json.put("requestQueue", this.requestQueue);
             json.put("responseQueue", this.responseQueue);
         } catch (JSONException e) {
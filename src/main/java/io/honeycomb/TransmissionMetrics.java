@@ -0,0 +1,142 @@
+package io.honeycomb;
+
+import java.util.Queue;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Metrics recorded by a Transmission.  Counters are LongAdders so that sender and callback threads update them
+ * without contending; queue depths are read from the Transmission's queues when asked for.
+ */
+final class TransmissionMetrics implements Metrics {
+    private final Transmission transmission;
+    private final LongAdder eventsEnqueued = new LongAdder();
+    private final LongAdder eventsSent = new LongAdder();
+    private final LongAdder eventsSampled = new LongAdder();
+    private final LongAdder eventsDropped = new LongAdder();
+    private final LongAdder eventsFailed = new LongAdder();
+    private final LongAdder eventsRetried = new LongAdder();
+    private final LongAdder eventsSpooled = new LongAdder();
+    private final LongAdder bytesSent = new LongAdder();
+    private final LatencyHistogram sendLatency = new LatencyHistogram();
+    private final LatencyHistogram queueLatency = new LatencyHistogram();
+
+    TransmissionMetrics(Transmission transmission) {
+        this.transmission = transmission;
+    }
+
+    void eventEnqueued() {
+        this.eventsEnqueued.increment();
+    }
+
+    void eventSampled() {
+        this.eventsSampled.increment();
+    }
+
+    void eventDropped() {
+        this.eventsDropped.increment();
+    }
+
+    /**
+     * Counts an event as sent if honeycomb.io accepted it with a 2xx status, or as failed otherwise.
+     * @param statusCode status of the event, or 0 if the request could not be sent
+     */
+    void eventCompleted(int statusCode) {
+        if (statusCode >= 200 && statusCode < 300) {
+            this.eventsSent.increment();
+        } else {
+            this.eventsFailed.increment();
+        }
+    }
+
+    void eventRetried() {
+        this.eventsRetried.increment();
+    }
+
+    void eventSpooled() {
+        this.eventsSpooled.increment();
+    }
+
+    void requestSent(long bytes) {
+        this.bytesSent.add(bytes);
+    }
+
+    void recordSendLatency(long nanos) {
+        this.sendLatency.record(nanos);
+    }
+
+    void recordQueueLatency(long nanos) {
+        this.queueLatency.record(nanos);
+    }
+
+    @Override
+    public int getRequestQueueDepth() {
+        return this.transmission.getRequestQueue().size();
+    }
+
+    @Override
+    public int getResponseQueueDepth() {
+        Queue responseQueue = this.transmission.getResponseQueue();
+        return responseQueue == null ? 0 : responseQueue.size();
+    }
+
+    @Override
+    public int getConcurrencyLimit() {
+        return this.transmission.getConcurrencyLimit();
+    }
+
+    @Override
+    public long getEventsEnqueued() {
+        return this.eventsEnqueued.sum();
+    }
+
+    @Override
+    public long getEventsSent() {
+        return this.eventsSent.sum();
+    }
+
+    @Override
+    public long getEventsSampled() {
+        return this.eventsSampled.sum();
+    }
+
+    @Override
+    public long getEventsDropped() {
+        return this.eventsDropped.sum();
+    }
+
+    @Override
+    public long getEventsFailed() {
+        return this.eventsFailed.sum();
+    }
+
+    @Override
+    public long getEventsRetried() {
+        return this.eventsRetried.sum();
+    }
+
+    @Override
+    public long getEventsSpooled() {
+        return this.eventsSpooled.sum();
+    }
+
+    @Override
+    public int getSpoolDepth() {
+        Spool spool = this.transmission.getSpool();
+        return spool == null ? 0 : spool.size();
+    }
+
+    @Override
+    public long getBytesSent() {
+        return this.bytesSent.sum();
+    }
+
+    @Override
+    public LatencyHistogram getSendLatency() {
+        return this.sendLatency;
+    }
+
+    @Override
+    public LatencyHistogram getQueueLatency() {
+        return this.queueLatency;
+    }
+}
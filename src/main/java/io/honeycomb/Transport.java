@@ -0,0 +1,27 @@
+package io.honeycomb;
+
+import org.apache.http.HttpResponse;
+import org.apache.http.client.methods.HttpUriRequest;
+import org.apache.http.concurrent.FutureCallback;
+
+/**
+ * Executes the HTTP requests built by Transmission.
+ *
+ * An implementation may complete the callback on the calling thread before returning, or later on a thread of its
+ * own, and may block the calling thread to bound the number of requests in flight.  The response entity is only
+ * guaranteed to be readable until the callback returns.
+ */
+public interface Transport {
+    /**
+     * Executes the specified request, then completes the specified callback with its response or failure.
+     *
+     * @param request the request to be executed
+     * @param callback callback notified when the request completes or fails
+     */
+    void execute(HttpUriRequest request, FutureCallback<HttpResponse> callback);
+
+    /**
+     * Releases all connections and threads held by this Transport.
+     */
+    void close();
+}
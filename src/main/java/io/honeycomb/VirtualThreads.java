@@ -0,0 +1,32 @@
+package io.honeycomb;
+
+import java.util.concurrent.ThreadFactory;
+
+/**
+ * Creates virtual threads on JDKs that support them (JDK 21 and later), while this library is still compiled for
+ * Java 8, by looking up Thread.ofVirtual() reflectively.
+ */
+final class VirtualThreads {
+    private VirtualThreads() {
+        throw new IllegalAccessError("Utility class");
+    }
+
+    /**
+     * Returns a factory of virtual threads named with the specified prefix and a counter, or null if the running
+     * JDK does not support virtual threads.
+     *
+     * @param prefix prefix of the names of the threads
+     * @return a factory of virtual threads, or null
+     */
+    static ThreadFactory newFactory(String prefix) {
+        try {
+            Class<?> builderClass = Class.forName("java.lang.Thread$Builder");
+            Object builder = Thread.class.getMethod("ofVirtual").invoke(null);
+            builder = builderClass.getMethod("name", String.class, long.class).invoke(builder, prefix, 0L);
+            return (ThreadFactory) builderClass.getMethod("factory").invoke(builder);
+        } catch (ReflectiveOperationException | RuntimeException e) {
+            // Older JDK, or virtual threads are a preview feature that is not enabled
+            return null;
+        }
+    }
+}
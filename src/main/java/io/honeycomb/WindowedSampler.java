@@ -0,0 +1,142 @@
+package io.honeycomb;
+
+import java.time.Clock;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Samples Events with a sample rate per key, computed from how often each key was seen in the previous window.
+ *
+ * The key of an Event is built from the values of one or more of its fields.  Events are counted per key as they
+ * are sampled; when a window ends, the first thread to notice computes the rates for the next window from the
+ * counts.  Keys not seen in the previous window are kept.  At most MAX_KEYS keys are counted per window, and any
+ * further keys share a single count and rate.
+ */
+abstract class WindowedSampler implements Sampler {
+    private static final int MAX_KEYS = 10000;
+    private static final String OTHER_KEY = "\u0000other";
+
+    private final String[] keyFields;
+    private final long windowMillis;
+    private final RandomSource random;
+    private final Clock clock;
+    private final AtomicBoolean rolling = new AtomicBoolean();
+    private volatile ConcurrentHashMap<String, LongAdder> counts = new ConcurrentHashMap<>();
+    private volatile Map<String, Integer> rates = Collections.emptyMap();
+    private volatile long windowEnd;
+
+    /**
+     * Constructs a WindowedSampler.
+     *
+     * @param windowMillis length of each window in ms
+     * @param random source of the random numbers used to make sampling decisions
+     * @param clock clock that times the windows
+     * @param keyFields names of the fields whose values make up the key of an Event
+     */
+    WindowedSampler(long windowMillis, RandomSource random, Clock clock, String... keyFields) {
+        if (windowMillis < 1) {
+            throw new IllegalArgumentException("window must be at least 1 ms");
+        }
+        this.windowMillis = windowMillis;
+        this.random = random;
+        this.clock = clock;
+        this.keyFields = keyFields.clone();
+        this.windowEnd = clock.millis() + windowMillis;
+    }
+
+    @Override
+    public int sample(Event event) {
+        long now = this.clock.millis();
+        if (now >= this.windowEnd) {
+            this.rollover(now);
+        }
+
+        String key = this.getKey(event);
+        ConcurrentHashMap<String, LongAdder> counts = this.counts;
+        LongAdder count = counts.get(key);
+        if (count == null) {
+            if (counts.size() >= MAX_KEYS) {
+                key = OTHER_KEY;
+            }
+            count = counts.computeIfAbsent(key, k -> new LongAdder());
+        }
+        count.increment();
+
+        int rate = this.getRate(key);
+        if (rate <= 1) {
+            return 1;
+        }
+        return this.random.nextInt(rate) == 0 ? rate : 0;
+    }
+
+    /**
+     * Returns the key of the specified Event, built from the values of the key fields.
+     *
+     * @param event the Event
+     * @return the key of the Event
+     */
+    String getKey(Event event) {
+        if (this.keyFields.length == 1) {
+            return String.valueOf(event.getField(this.keyFields[0]));
+        }
+        StringBuilder key = new StringBuilder();
+        for (int i = 0; i < this.keyFields.length; i++) {
+            if (i > 0) {
+                key.append('\u0000');
+            }
+            key.append(event.getField(this.keyFields[i]));
+        }
+        return key.toString();
+    }
+
+    /**
+     * Starts a new window and replaces the rates with ones computed from the counts of the window that ended.
+     *
+     * @param now current time in ms
+     */
+    private void rollover(long now) {
+        if (!this.rolling.compareAndSet(false, true)) {
+            return;
+        }
+        try {
+            if (now < this.windowEnd) {
+                return;
+            }
+            ConcurrentHashMap<String, LongAdder> previous = this.counts;
+            this.counts = new ConcurrentHashMap<>();
+            Map<String, Long> totals = new HashMap<>();
+            for (Map.Entry<String, LongAdder> entry : previous.entrySet()) {
+                totals.put(entry.getKey(), entry.getValue().sum());
+            }
+            this.rates = totals.isEmpty() ? Collections.emptyMap() : this.computeRates(totals, this.windowMillis);
+            this.windowEnd = now + this.windowMillis;
+        } finally {
+            this.rolling.set(false);
+        }
+    }
+
+    /**
+     * Returns the sample rate of each key for the next window.
+     *
+     * @param counts number of Events seen with each key in the window that ended
+     * @param windowMillis length of the window in ms
+     * @return the sample rate of each key
+     */
+    abstract Map<String, Integer> computeRates(Map<String, Long> counts, long windowMillis);
+
+    /**
+     * Returns the sample rate of the specified key in the current window, or 1 if it was not seen in the previous
+     * window.
+     *
+     * @param key the key
+     * @return the sample rate of the key
+     */
+    int getRate(String key) {
+        Integer rate = this.rates.get(key);
+        return rate == null ? 1 : rate;
+    }
+}
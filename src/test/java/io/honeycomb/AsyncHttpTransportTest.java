@@ -0,0 +1,172 @@
+package io.honeycomb;
+
+import com.sun.net.httpserver.HttpsConfigurator;
+import com.sun.net.httpserver.HttpsServer;
+import org.apache.http.HttpResponse;
+import org.apache.http.client.methods.HttpPost;
+import org.apache.http.concurrent.FutureCallback;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import javax.net.ssl.KeyManagerFactory;
+import javax.net.ssl.SSLContext;
+import javax.net.ssl.SSLException;
+import javax.net.ssl.TrustManagerFactory;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.security.KeyStore;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.Assert.*;
+
+public class AsyncHttpTransportTest {
+    private static final char[] PASSWORD = "changeit".toCharArray();
+
+    private HttpsServer server;
+    private SSLContext sslContext;
+    private final AtomicInteger handled = new AtomicInteger();
+
+    @Before
+    public void startServer() throws Exception {
+        // The test keystore holds a self-signed certificate for localhost, trusted by both client and server
+        KeyStore keyStore = KeyStore.getInstance("JKS");
+        try (InputStream in = AsyncHttpTransportTest.class.getResourceAsStream("/localhost.jks")) {
+            keyStore.load(in, PASSWORD);
+        }
+        KeyManagerFactory keyManagers = KeyManagerFactory.getInstance(KeyManagerFactory.getDefaultAlgorithm());
+        keyManagers.init(keyStore, PASSWORD);
+        TrustManagerFactory trustManagers = TrustManagerFactory.getInstance(TrustManagerFactory.getDefaultAlgorithm());
+        trustManagers.init(keyStore);
+        this.sslContext = SSLContext.getInstance("TLS");
+        this.sslContext.init(keyManagers.getKeyManagers(), trustManagers.getTrustManagers(), null);
+
+        this.server = HttpsServer.create(new InetSocketAddress(0), 0);
+        this.server.setHttpsConfigurator(new HttpsConfigurator(this.sslContext));
+        this.server.createContext("/", exchange -> {
+            exchange.getRequestBody().close();
+            this.handled.incrementAndGet();
+            byte[] body = "ok".getBytes(StandardCharsets.UTF_8);
+            exchange.sendResponseHeaders(202, body.length);
+            try (OutputStream out = exchange.getResponseBody()) {
+                out.write(body);
+            }
+        });
+        this.server.start();
+    }
+
+    @After
+    public void stopServer() {
+        this.server.stop(0);
+    }
+
+    /**
+     * Records the outcome of a request.
+     */
+    private static class Outcome implements FutureCallback<HttpResponse> {
+        private final CountDownLatch done = new CountDownLatch(1);
+        private volatile int statusCode;
+        private volatile Exception failure;
+        private volatile String thread;
+
+        @Override
+        public void completed(HttpResponse response) {
+            this.statusCode = response.getStatusLine().getStatusCode();
+            this.thread = Thread.currentThread().getName();
+            this.done.countDown();
+        }
+
+        @Override
+        public void failed(Exception e) {
+            this.failure = e;
+            this.done.countDown();
+        }
+
+        @Override
+        public void cancelled() {
+            this.failure = new IllegalStateException("cancelled");
+            this.done.countDown();
+        }
+
+        private void await() throws InterruptedException {
+            assertTrue(this.done.await(10, TimeUnit.SECONDS));
+        }
+    }
+
+    private HttpPost newRequest(String host) {
+        return new HttpPost("https://" + host + ":" + this.server.getAddress().getPort() + "/1/events/ds");
+    }
+
+    private Outcome send(AsyncHttpTransport transport, String host) throws Exception {
+        Outcome outcome = new Outcome();
+        transport.execute(this.newRequest(host), outcome);
+        outcome.await();
+        return outcome;
+    }
+
+    @Test
+    public void testVerifiesHostname() throws Exception {
+        AsyncHttpTransport transport = new AsyncHttpTransport(1, 2, 2, 1000, 1000, 1, this.sslContext);
+
+        Outcome outcome = this.send(transport, "localhost");
+        assertNull(outcome.failure);
+        assertEquals(202, outcome.statusCode);
+
+        // The certificate is trusted, but was not issued for 127.0.0.1
+        outcome = this.send(transport, "127.0.0.1");
+        assertTrue(String.valueOf(outcome.failure), outcome.failure instanceof SSLException);
+        assertEquals(0, transport.getInFlight());
+        transport.close();
+    }
+
+    @Test
+    public void testFailsCallbackAfterClose() throws Exception {
+        AsyncHttpTransport transport = new AsyncHttpTransport(1, 1, 1, 1000, 1000, 1, this.sslContext);
+        transport.close();
+        for (int i = 0; i < 2; i++) {
+            Outcome outcome = this.send(transport, "localhost");
+            assertTrue(String.valueOf(outcome.failure), outcome.failure instanceof IllegalStateException);
+            assertEquals(0, transport.getInFlight());
+        }
+    }
+
+    @Test
+    public void testRunsCallbacksOffIoThreads() throws Exception {
+        AsyncHttpTransport transport = new AsyncHttpTransport(1, 2, 2, 1000, 1000, 1, this.sslContext);
+        CountDownLatch release = new CountDownLatch(1);
+        Outcome blocked = new Outcome() {
+            @Override
+            public void completed(HttpResponse response) {
+                super.completed(response);
+                try {
+                    release.await();
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+            }
+        };
+        transport.execute(this.newRequest("localhost"), blocked);
+        blocked.await();
+        assertEquals("libhoney-io-callback", blocked.thread);
+
+        // A blocked callback holds its place in the window, but doesn't stall the one I/O thread
+        assertEquals(1, transport.getInFlight());
+        Outcome outcome = new Outcome();
+        transport.execute(this.newRequest("localhost"), outcome);
+        long deadline = System.currentTimeMillis() + 10000;
+        while (this.handled.get() < 2 && System.currentTimeMillis() < deadline) {
+            Thread.sleep(10);
+        }
+        assertEquals(2, this.handled.get());
+
+        release.countDown();
+        outcome.await();
+        assertEquals(202, outcome.statusCode);
+        transport.close();
+        assertEquals(0, transport.getInFlight());
+    }
+}
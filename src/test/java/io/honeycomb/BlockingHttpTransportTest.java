@@ -0,0 +1,171 @@
+package io.honeycomb;
+
+import com.sun.net.httpserver.HttpServer;
+import org.apache.http.HttpResponse;
+import org.apache.http.client.methods.HttpPost;
+import org.apache.http.concurrent.FutureCallback;
+import org.apache.http.params.HttpConnectionParams;
+import org.apache.http.params.HttpParams;
+import org.apache.http.util.EntityUtils;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.AtomicReference;
+
+import static org.junit.Assert.*;
+
+public class BlockingHttpTransportTest {
+    private HttpServer server;
+    private final List<Integer> clientPorts = new CopyOnWriteArrayList<>();
+
+    @Before
+    public void startServer() throws Exception {
+        this.server = HttpServer.create(new InetSocketAddress("127.0.0.1", 0), 0);
+        this.server.createContext("/", exchange -> {
+            this.clientPorts.add(exchange.getRemoteAddress().getPort());
+            exchange.getRequestBody().close();
+            byte[] body = "ok".getBytes(StandardCharsets.UTF_8);
+            exchange.sendResponseHeaders(202, body.length);
+            try (OutputStream out = exchange.getResponseBody()) {
+                out.write(body);
+            }
+        });
+        this.server.start();
+    }
+
+    @After
+    public void stopServer() {
+        this.server.stop(0);
+    }
+
+    private HttpPost newRequest() {
+        return new HttpPost("http://127.0.0.1:" + this.server.getAddress().getPort() + "/1/events/ds");
+    }
+
+    /**
+     * Records the outcome of a request.
+     */
+    private static class Outcome implements FutureCallback<HttpResponse> {
+        private final boolean readBody;
+        private int statusCode;
+        private String body;
+        private Exception failure;
+
+        private Outcome(boolean readBody) {
+            this.readBody = readBody;
+        }
+
+        @Override
+        public void completed(HttpResponse response) {
+            this.statusCode = response.getStatusLine().getStatusCode();
+            if (this.readBody) {
+                try {
+                    this.body = EntityUtils.toString(response.getEntity());
+                } catch (Exception e) {
+                    this.failure = e;
+                }
+            }
+        }
+
+        @Override
+        public void failed(Exception e) {
+            this.failure = e;
+        }
+
+        @Override
+        public void cancelled() {
+            this.failure = new IllegalStateException("cancelled");
+        }
+    }
+
+    @Test
+    public void testReusesPooledConnection() throws Exception {
+        BlockingHttpTransport transport = new BlockingHttpTransport(2, 2, 1000, 1000);
+        for (int i = 0; i < 3; i++) {
+            Outcome outcome = new Outcome(true);
+            transport.execute(this.newRequest(), outcome);
+            assertNull(outcome.failure);
+            assertEquals(202, outcome.statusCode);
+            assertEquals("ok", outcome.body);
+        }
+
+        // Every request went over the one kept-alive connection, which is back in the pool
+        assertEquals(3, this.clientPorts.size());
+        assertEquals(1, this.clientPorts.stream().distinct().count());
+        assertEquals(0, transport.getConnectionManager().getTotalStats().getLeased());
+        assertEquals(1, transport.getConnectionManager().getTotalStats().getAvailable());
+        transport.close();
+    }
+
+    @Test
+    public void testConsumesEntityAfterCallback() throws Exception {
+        BlockingHttpTransport transport = new BlockingHttpTransport(1, 1, 1000, 1000);
+        AtomicReference<HttpResponse> unread = new AtomicReference<>();
+        transport.execute(this.newRequest(), new Outcome(false) {
+            @Override
+            public void completed(HttpResponse response) {
+                unread.set(response);
+            }
+        });
+
+        // The unread entity is consumed once the callback returns, releasing the only connection to be leased again
+        assertNotNull(unread.get());
+        assertEquals(0, transport.getConnectionManager().getTotalStats().getLeased());
+        Outcome outcome = new Outcome(true);
+        transport.execute(this.newRequest(), outcome);
+        assertEquals("ok", outcome.body);
+        transport.close();
+    }
+
+    @Test
+    public void testClosesIdleConnections() throws Exception {
+        BlockingHttpTransport transport = new BlockingHttpTransport(1, 1, 1000, 1000, 100);
+        Outcome outcome = new Outcome(true);
+        transport.execute(this.newRequest(), outcome);
+        assertEquals(202, outcome.statusCode);
+        assertEquals(1, transport.getConnectionManager().getTotalStats().getAvailable());
+
+        // The evictor closes the pooled connection once it has been idle for longer than the timeout
+        for (int i = 0; i < 100 && transport.getConnectionManager().getTotalStats().getAvailable() > 0; i++) {
+            Thread.sleep(20);
+        }
+        assertEquals(0, transport.getConnectionManager().getTotalStats().getAvailable());
+        transport.close();
+    }
+
+    @Test
+    public void testFailsCallbackAfterClose() throws Exception {
+        BlockingHttpTransport transport = new BlockingHttpTransport(1, 1, 1000, 1000);
+        transport.close();
+        Outcome outcome = new Outcome(true);
+        transport.execute(this.newRequest(), outcome);
+        assertTrue(outcome.failure instanceof IllegalStateException);
+    }
+
+    @Test
+    public void testBuilderOptions() throws Exception {
+        LibHoney libhoney = new LibHoney.Builder()
+                .writeKey("wk")
+                .dataSet("ds")
+                .maxConcurrentBranches(3)
+                .maxConnections(7)
+                .connectTimeout(1234)
+                .socketTimeout(5678)
+                .idleConnectionTimeout(4000)
+                .build();
+        BlockingHttpTransport transport = (BlockingHttpTransport) libhoney.getTransmission().getTransport();
+        assertEquals(7, transport.getConnectionManager().getMaxTotal());
+        assertEquals(3, transport.getConnectionManager().getDefaultMaxPerRoute());
+        HttpParams params = transport.getHttpClient().getParams();
+        assertEquals(1234, HttpConnectionParams.getConnectionTimeout(params));
+        assertEquals(5678, HttpConnectionParams.getSoTimeout(params));
+        assertEquals(4000, transport.getIdleConnectionTimeout());
+        libhoney.close();
+    }
+}
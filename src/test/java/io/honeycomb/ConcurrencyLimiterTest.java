@@ -0,0 +1,65 @@
+package io.honeycomb;
+
+import org.junit.Test;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.*;
+
+public class ConcurrencyLimiterTest {
+    @Test
+    public void testDecreaseAndRecover() throws Exception {
+        ConcurrencyLimiter limiter = new ConcurrencyLimiter(16);
+        assertEquals(16, limiter.getLimit());
+
+        // Failures from requests that were in flight together halve the limit only once
+        long first = limiter.acquire();
+        long second = limiter.acquire();
+        limiter.release(first, true);
+        assertEquals(8, limiter.getLimit());
+        limiter.release(second, true);
+        assertEquals(8, limiter.getLimit());
+
+        // A request started after the decrease can decrease it again
+        limiter.release(limiter.acquire(), true);
+        assertEquals(4, limiter.getLimit());
+
+        // Each success adds 1/limit, so the limit grows by about one per round of requests
+        for (int i = 0; i < 5; i++) {
+            limiter.release(limiter.acquire(), false);
+        }
+        assertEquals(5, limiter.getLimit());
+        for (int i = 0; i < 1000; i++) {
+            limiter.release(limiter.acquire(), false);
+        }
+        assertEquals(16, limiter.getLimit());
+        assertEquals(0, limiter.getInFlight());
+    }
+
+    @Test
+    public void testLimitNeverBelowOne() throws Exception {
+        ConcurrencyLimiter limiter = new ConcurrencyLimiter(2);
+        for (int i = 0; i < 10; i++) {
+            limiter.release(limiter.acquire(), true);
+        }
+        assertEquals(1, limiter.getLimit());
+    }
+
+    @Test
+    public void testAcquireWaitsForLimit() throws Exception {
+        ConcurrencyLimiter limiter = new ConcurrencyLimiter(1);
+        long permit = limiter.acquire();
+        CountDownLatch acquired = new CountDownLatch(1);
+        Thread thread = new Thread(() -> {
+            limiter.release(limiter.acquire(), false);
+            acquired.countDown();
+        });
+        thread.start();
+
+        assertFalse(acquired.await(200, TimeUnit.MILLISECONDS));
+        limiter.release(permit, false);
+        assertTrue(acquired.await(5, TimeUnit.SECONDS));
+        thread.join();
+    }
+}
@@ -0,0 +1,65 @@
+package io.honeycomb;
+
+import org.junit.Test;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicReference;
+
+import static org.junit.Assert.*;
+
+public class CopyOnWriteFieldsTest {
+    @Test
+    public void testSharedSnapshot() throws Exception {
+        CopyOnWriteFields<Object> parent = new CopyOnWriteFields<>();
+        parent.put("a", 1);
+
+        CopyOnWriteFields<Object> child = new CopyOnWriteFields<>();
+        child.putAll(parent);
+        assertSame(parent.snapshot(), child.snapshot());
+
+        child.put("b", 2);
+        parent.put("c", 3);
+        Map<String, Object> expected = new HashMap<>();
+        expected.put("a", 1);
+        expected.put("b", 2);
+        assertEquals(expected, child.snapshot());
+        assertFalse(parent.snapshot().containsKey("b"));
+    }
+
+    @Test(expected = UnsupportedOperationException.class)
+    public void testSnapshotIsUnmodifiable() throws Exception {
+        CopyOnWriteFields<Object> fields = new CopyOnWriteFields<>();
+        fields.put("a", 1);
+        fields.snapshot().put("b", 2);
+    }
+
+    @Test
+    public void testConsistentSnapshots() throws Exception {
+        CopyOnWriteFields<Object> fields = new CopyOnWriteFields<>();
+        AtomicBoolean done = new AtomicBoolean();
+        AtomicReference<String> failure = new AtomicReference<>();
+
+        // Both keys are always written together, so every snapshot must hold equal values for them
+        Thread reader = new Thread(() -> {
+            while (!done.get()) {
+                Map<String, Object> snapshot = fields.snapshot();
+                if (snapshot.get("x") != snapshot.get("y")) {
+                    failure.set(snapshot.toString());
+                }
+            }
+        });
+        reader.start();
+        for (int i = 0; i < 10000; i++) {
+            Map<String, Object> update = new HashMap<>();
+            Integer value = i;
+            update.put("x", value);
+            update.put("y", value);
+            fields.putAll(update);
+        }
+        done.set(true);
+        reader.join();
+        assertNull(failure.get());
+    }
+}
@@ -0,0 +1,83 @@
+package io.honeycomb;
+
+import org.json.JSONArray;
+import org.junit.Test;
+
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.Assert.*;
+
+public class EventBatcherTest {
+    private Event newEvent(LibHoney libhoney, String dataSet) {
+        Builder builder = libhoney.newBuilder();
+        builder.setDataSet(dataSet);
+        builder.addField("foo", "bar");
+        return builder.newEvent();
+    }
+
+    @Test
+    public void testMaxBatchSize() throws Exception {
+        LibHoney libhoney = new LibHoney.Builder().writeKey("wk").dataSet("ds").build();
+        EventBatcher batcher = new EventBatcher(2, 1000000, 1000);
+        List<EventBatcher.Batch> ready = new ArrayList<>();
+
+        batcher.add(newEvent(libhoney, "ds"), 0, ready);
+        batcher.add(newEvent(libhoney, "other"), 0, ready);
+        assertEquals(0, ready.size());
+
+        batcher.add(newEvent(libhoney, "ds"), 0, ready);
+        assertEquals(1, ready.size());
+        assertEquals("ds", ready.get(0).getDataSet());
+        assertEquals(2, ready.get(0).size());
+
+        JSONArray body = new JSONArray(new String(ready.get(0).finish().toByteArray(), StandardCharsets.UTF_8));
+        assertEquals(2, body.length());
+        assertEquals("bar", body.getJSONObject(0).getJSONObject("data").getString("foo"));
+        assertEquals(1, body.getJSONObject(0).getInt("samplerate"));
+        libhoney.close();
+    }
+
+    @Test
+    public void testMaxBatchBytes() throws Exception {
+        LibHoney libhoney = new LibHoney.Builder().writeKey("wk").dataSet("ds").build();
+        Event event = newEvent(libhoney, "ds");
+        JsonWriter writer = new JsonWriter(16);
+        EventBatcher.encode(event, writer);
+        int size = writer.size();
+        EventBatcher batcher = new EventBatcher(100, 2 * size + 8, 1000);
+        List<EventBatcher.Batch> ready = new ArrayList<>();
+
+        batcher.add(event, 0, ready);
+        batcher.add(newEvent(libhoney, "ds"), 0, ready);
+        assertEquals(0, ready.size());
+
+        batcher.add(newEvent(libhoney, "ds"), 0, ready);
+        assertEquals(1, ready.size());
+        assertEquals(2, ready.get(0).size());
+        assertTrue(ready.get(0).finish().size() <= 2 * size + 8);
+        libhoney.close();
+    }
+
+    @Test
+    public void testBatchTimeout() throws Exception {
+        LibHoney libhoney = new LibHoney.Builder().writeKey("wk").dataSet("ds").build();
+        EventBatcher batcher = new EventBatcher(100, 1000000, 50);
+        List<EventBatcher.Batch> ready = new ArrayList<>();
+
+        assertEquals(-1, batcher.millisUntilNextDeadline(0));
+        batcher.add(newEvent(libhoney, "ds"), 0, ready);
+        batcher.add(newEvent(libhoney, "other"), 20, ready);
+        assertEquals(40, batcher.millisUntilNextDeadline(10));
+
+        batcher.drainExpired(60, ready);
+        assertEquals(1, ready.size());
+        assertEquals("ds", ready.get(0).getDataSet());
+
+        batcher.drainAll(ready);
+        assertEquals(2, ready.size());
+        assertTrue(batcher.isEmpty());
+        libhoney.close();
+    }
+}
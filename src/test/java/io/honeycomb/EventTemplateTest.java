@@ -0,0 +1,94 @@
+package io.honeycomb;
+
+import org.json.JSONObject;
+import org.junit.Test;
+
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.*;
+
+public class EventTemplateTest {
+    private static JSONObject fields(Event event) throws Exception {
+        JsonWriter writer = new JsonWriter(16);
+        event.writeFields(writer);
+        return new JSONObject(new String(writer.toByteArray(), StandardCharsets.UTF_8));
+    }
+
+    @Test
+    public void testSlots() throws Exception {
+        LibHoney libhoney = new LibHoney.Builder()
+                .writeKey("wk")
+                .dataSet("dz")
+                .apiHost("http://urlme")
+                .build();
+        libhoney.addField("service", "api");
+        Builder builder = libhoney.newBuilder();
+        builder.addField("route", "/users");
+        builder.addField("status", 200);
+        builder.addDynField("dyn", () -> "d");
+
+        EventTemplate template = builder.newTemplate("duration_ms", "status");
+        assertEquals(3, template.getSlotCount());
+        assertEquals(0, template.slot("duration_ms"));
+        assertEquals(1, template.slot("status"));
+        assertEquals(2, template.slot("dyn"));
+        assertEquals(-1, template.slot("route"));
+        assertEquals(2, template.getStaticFields().size());
+
+        // Changes to the Builder after the template is compiled are not seen
+        builder.addField("route", "/changed");
+
+        TemplateEvent event = template.newEvent();
+        event.set(template.slot("duration_ms"), 12.5);
+        JSONObject json = fields(event);
+        assertEquals(5, json.length());
+        assertEquals("api", json.getString("service"));
+        assertEquals("/users", json.getString("route"));
+        assertEquals(200, json.getInt("status"));
+        assertEquals(12.5, json.getDouble("duration_ms"), 0);
+        assertEquals("d", json.getString("dyn"));
+
+        event.addField("status", 503L);
+        assertEquals(503L, event.getField("status"));
+        assertEquals("/users", event.getField("route"));
+        assertEquals(503, fields(event).getInt("status"));
+
+        // A field without a slot is serialized from the merged fields, shadowing a static field
+        event.addField("route", "/other");
+        event.addField("extra", true);
+        json = fields(event);
+        assertEquals(6, json.length());
+        assertEquals("/other", json.getString("route"));
+        assertTrue(json.getBoolean("extra"));
+        assertEquals(json.length(), event.getFields().size());
+        libhoney.close();
+    }
+
+    @Test
+    public void testSend() throws Exception {
+        BlockingQueue<Response> responses = new LinkedBlockingQueue<>();
+        StubTransport transport = new StubTransport(202, "");
+        LibHoney libhoney = new LibHoney.Builder()
+                .writeKey("wk")
+                .dataSet("dz")
+                .apiHost("http://urlme")
+                .responseQueueLength(0)
+                .responseObserver(responses::add)
+                .transport(transport)
+                .build();
+        EventTemplate template = libhoney.newBuilder().newTemplate("i");
+        for (int i = 0; i < 3; i++) {
+            TemplateEvent event = template.newEvent();
+            event.set(0, i);
+            event.send();
+        }
+        for (int i = 0; i < 3; i++) {
+            assertEquals(202, responses.poll(5, TimeUnit.SECONDS).getStatusCode());
+        }
+        libhoney.close();
+        assertEquals(3, transport.requests.size());
+    }
+}
@@ -1,9 +1,12 @@
 package io.honeycomb;
 
+import org.json.JSONObject;
 import org.junit.Rule;
 import org.junit.Test;
 import org.junit.rules.ExpectedException;
 
+import java.nio.charset.StandardCharsets;
+
 import static org.junit.Assert.*;
 import static org.mockito.Mockito.*;
 
@@ -54,4 +57,100 @@ public final class EventTest {
         event.send();
     }
 
+    @Test
+    public void testPrimitiveFields() throws Exception {
+        LibHoney libhoney = new LibHoney.Builder()
+                .apiHost("uuu")
+                .dataSet("dz")
+                .writeKey("wk")
+                .build();
+        Builder builder = libhoney.newBuilder();
+        builder.addField("status", "inherited");
+        Event event = builder.newEvent();
+        event.addField("status", 200);
+        event.addField("bytes", 1L << 40);
+        event.addField("duration_ms", 12.5);
+        event.addField("cached", true);
+        event.addField("name", "n");
+        event.addField("name", 7);
+        event.addField("cached", "replaced");
+
+        assertEquals(200, event.getField("status"));
+        assertEquals(1L << 40, event.getField("bytes"));
+
+        JsonWriter writer = new JsonWriter(16);
+        event.writeFields(writer);
+        JSONObject json = new JSONObject(new String(writer.toByteArray(), StandardCharsets.UTF_8));
+        assertEquals(5, json.length());
+        assertEquals(200, json.getInt("status"));
+        assertEquals(1L << 40, json.getLong("bytes"));
+        assertEquals(12.5, json.getDouble("duration_ms"), 0);
+        assertEquals("replaced", json.getString("cached"));
+        assertEquals(7, json.getInt("name"));
+
+        // Reading every field boxes the primitives into the fields map, with their original types
+        assertEquals(12.5, event.getFields().get("duration_ms"));
+        assertEquals(Integer.valueOf(7), event.getFields().get("name"));
+        assertEquals(5, event.getFields().size());
+        libhoney.close();
+    }
+
+    @Test
+    public void testCharAndFloatFields() throws Exception {
+        LibHoney libhoney = new LibHoney.Builder()
+                .apiHost("uuu")
+                .dataSet("dz")
+                .writeKey("wk")
+                .build();
+        Event event = libhoney.newEvent();
+        event.addField("grade", 'A');
+        event.addField("ratio", 0.1f);
+        event.addField(libhoney.fieldKey("flag"), 'y');
+
+        assertEquals("A", event.getField("grade"));
+        assertEquals(0.1f, event.getField("ratio"));
+
+        JsonWriter writer = new JsonWriter(16);
+        event.writeFields(writer);
+        String json = new String(writer.toByteArray(), StandardCharsets.UTF_8);
+        assertTrue(json.contains("\"grade\":\"A\""));
+        assertTrue(json.contains("\"ratio\":0.1"));
+        assertFalse(json.contains("0.10000000149011612"));
+        assertEquals("y", new JSONObject(json).getString("flag"));
+        libhoney.close();
+    }
+
+    @Test
+    public void testFieldKey() throws Exception {
+        LibHoney libhoney = new LibHoney.Builder()
+                .apiHost("uuu")
+                .dataSet("dz")
+                .writeKey("wk")
+                .build();
+        FieldKey duration = libhoney.fieldKey("duration_ms");
+        assertSame(duration, libhoney.fieldKey("duration_ms"));
+
+        Event event = libhoney.newEvent();
+        event.addField(duration, 12L);
+        event.addField(libhoney.fieldKey("route"), "/users");
+        assertEquals(12L, event.getField("duration_ms"));
+        assertEquals("/users", event.getField("route"));
+
+        // Keys added with a FieldKey are written from its encoding, alongside and replacing plain String keys
+        FieldKey quoted = new FieldKey("q\"\u00e9");
+        event.addField(quoted, true);
+        event.addField("status", 200);
+        event.addField("route", "/other");
+        event.addField(libhoney.fieldKey("status"), 503);
+        JsonWriter writer = new JsonWriter(16);
+        event.writeFields(writer);
+        JSONObject json = new JSONObject(new String(writer.toByteArray(), StandardCharsets.UTF_8));
+        assertEquals(4, json.length());
+        assertEquals(12L, json.getLong("duration_ms"));
+        assertEquals("/other", json.getString("route"));
+        assertEquals(503, json.getInt("status"));
+        assertTrue(json.getBoolean("q\"\u00e9"));
+        assertEquals(4, event.getFields().size());
+        libhoney.close();
+    }
 }
\ No newline at end of file
@@ -0,0 +1,111 @@
+package io.honeycomb;
+
+import org.json.JSONObject;
+import org.junit.Test;
+
+import java.nio.charset.StandardCharsets;
+import java.util.HashMap;
+import java.util.Map;
+
+import static org.junit.Assert.*;
+
+public class FieldLayerTest {
+    private static Map<String, Object> map(Object... keysAndValues) {
+        Map<String, Object> map = new HashMap<>();
+        for (int i = 0; i < keysAndValues.length; i += 2) {
+            map.put((String) keysAndValues[i], keysAndValues[i + 1]);
+        }
+        return map;
+    }
+
+    @Test
+    public void testShadowing() throws Exception {
+        FieldLayer root = new FieldLayer(map("a", 1, "b", 1, "c", 1), null);
+        FieldLayer child = new FieldLayer(map("b", 2), root);
+        Map<String, Object> overlay = map("c", 3, "d", 3);
+
+        JsonWriter writer = new JsonWriter(16);
+        FieldLayer.writeObject(writer, overlay, child);
+        JSONObject json = new JSONObject(new String(writer.toByteArray(), StandardCharsets.UTF_8));
+        assertEquals(4, json.length());
+        assertEquals(1, json.getInt("a"));
+        assertEquals(2, json.getInt("b"));
+        assertEquals(3, json.getInt("c"));
+        assertEquals(3, json.getInt("d"));
+
+        child.putAbsentInto(overlay);
+        assertEquals(map("a", 1, "b", 2, "c", 3, "d", 3), overlay);
+    }
+
+    @Test
+    public void testNullShadows() throws Exception {
+        FieldLayer root = new FieldLayer(map("a", 1, "b", 1), null);
+        FieldLayer child = new FieldLayer(map("a", null), root);
+        assertNull(child.get("a"));
+        assertEquals(1, child.get("b"));
+
+        Map<String, Object> target = map();
+        child.putAbsentInto(target);
+        assertEquals(map("a", null, "b", 1), target);
+    }
+
+    @Test
+    public void testEventNullFieldMatchesBody() throws Exception {
+        LibHoney libhoney = new LibHoney.Builder().build();
+        libhoney.addField("a", "global");
+        Builder builder = libhoney.newBuilder();
+        builder.addField("a", null);
+        Event event = builder.newEvent();
+        event.addField("b", "event");
+        Event overridden = libhoney.newEvent();
+        overridden.addField("a", null);
+
+        // Lookup agrees with the body written for the Event: the explicit null shadows the inherited value
+        for (Event e : new Event[] {event, overridden}) {
+            assertNull(e.getField("a"));
+            JsonWriter writer = new JsonWriter(16);
+            e.writeFields(writer);
+            JSONObject json = new JSONObject(new String(writer.toByteArray(), StandardCharsets.UTF_8));
+            assertTrue(json.has("a") && json.isNull("a"));
+        }
+        libhoney.close();
+    }
+
+    @Test
+    public void testEmpty() throws Exception {
+        FieldLayer layer = new FieldLayer(map(), new FieldLayer(map(), null));
+        assertTrue(layer.isEmpty());
+        assertFalse(new FieldLayer(map(), new FieldLayer(map("a", 1), null)).isEmpty());
+
+        JsonWriter writer = new JsonWriter(16);
+        FieldLayer.writeObject(writer, map(), layer);
+        assertEquals("{}", new String(writer.toByteArray(), StandardCharsets.UTF_8));
+    }
+
+    @Test
+    public void testEventInheritsWithoutCopying() throws Exception {
+        LibHoney libhoney = new LibHoney.Builder().build();
+        libhoney.addField("global", "g");
+        Builder builder = libhoney.newBuilder();
+        builder.addField("builder", "b");
+
+        Event first = builder.newEvent();
+        Event second = builder.newEvent();
+        assertSame(builder.getFieldLayer(), builder.getFieldLayer());
+        assertSame(libhoney.getFieldLayer(), builder.getFieldLayer().getParent());
+
+        // Changes made after an Event is created are not seen by it
+        builder.addField("builder", "changed");
+        libhoney.addField("late", "l");
+        first.addField("event", "e");
+
+        JsonWriter writer = new JsonWriter(16);
+        first.writeFields(writer);
+        JSONObject json = new JSONObject(new String(writer.toByteArray(), StandardCharsets.UTF_8));
+        assertEquals(3, json.length());
+        assertEquals("b", json.getString("builder"));
+        assertEquals("e", json.getString("event"));
+        assertEquals(map("global", "g", "builder", "b"), second.getFields());
+        libhoney.close();
+    }
+}
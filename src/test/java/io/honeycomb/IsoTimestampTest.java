@@ -0,0 +1,60 @@
+package io.honeycomb;
+
+import org.junit.Test;
+
+import java.nio.charset.StandardCharsets;
+import java.time.Instant;
+import java.time.ZoneOffset;
+import java.time.format.DateTimeFormatter;
+import java.util.Random;
+
+import static org.junit.Assert.*;
+
+public class IsoTimestampTest {
+    private static final DateTimeFormatter EXPECTED =
+            DateTimeFormatter.ofPattern("uuuu-MM-dd'T'HH:mm:ss.SSS'Z'").withZone(ZoneOffset.UTC);
+
+    @Test
+    public void testFormat() throws Exception {
+        Random random = new Random(1);
+        long[] times = {0, -1, 951782400000L, 4107542399999L, -62167219200000L, 253402300799999L};
+        for (long time : times) {
+            assertEquals(EXPECTED.format(Instant.ofEpochMilli(time)), IsoTimestamp.format(time));
+        }
+        for (int i = 0; i < 100000; i++) {
+            long time = (long) (random.nextDouble() * 253402300799999L * 2) - 62167219200000L;
+            time = Math.min(time, 253402300799999L);
+            assertEquals(EXPECTED.format(Instant.ofEpochMilli(time)), IsoTimestamp.format(time));
+        }
+        assertEquals(Instant.ofEpochMilli(253402300800000L).toString(), IsoTimestamp.format(253402300800000L));
+    }
+
+    @Test
+    public void testRoundTrip() throws Exception {
+        long now = System.currentTimeMillis();
+        String timestamp = IsoTimestamp.format(now);
+        assertSame(timestamp, IsoTimestamp.format(now));
+        assertEquals(now, IsoTimestamp.parse(timestamp));
+    }
+
+    @Test
+    public void testWriteTimestamp() throws Exception {
+        JsonWriter writer = new JsonWriter(4);
+        writer.writeTimestamp(1496681241123L);
+        assertEquals("\"2017-06-05T16:47:21.123Z\"", new String(writer.toByteArray(), StandardCharsets.UTF_8));
+    }
+
+    @Test
+    public void testCachedClock() throws Exception {
+        LibHoney libhoney;
+        try (CachedClock clock = new CachedClock(5)) {
+            libhoney = new LibHoney.Builder().clock(clock).build();
+            long before = System.currentTimeMillis();
+            Thread.sleep(20);
+            Event event = libhoney.newEvent();
+            assertTrue(event.getCreatedAtMillis() >= before);
+            assertTrue(event.getCreatedAtMillis() <= System.currentTimeMillis());
+        }
+        libhoney.close();
+    }
+}
@@ -0,0 +1,114 @@
+package io.honeycomb;
+
+import org.json.JSONArray;
+import org.json.JSONObject;
+import org.junit.Test;
+
+import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import static org.junit.Assert.*;
+
+public class JsonWriterTest {
+    private String write(Object value) {
+        JsonWriter writer = new JsonWriter(4);
+        writer.writeValue(value);
+        return new String(writer.toByteArray(), StandardCharsets.UTF_8);
+    }
+
+    @Test
+    public void testScalars() throws Exception {
+        assertEquals("null", write(null));
+        assertEquals("true", write(true));
+        assertEquals("false", write(false));
+        assertEquals("0", write(0));
+        assertEquals("-42", write(-42L));
+        assertEquals(Long.toString(Long.MIN_VALUE), write(Long.MIN_VALUE));
+        assertEquals(Long.toString(Long.MAX_VALUE), write(Long.MAX_VALUE));
+        assertEquals("153", write(153.0));
+        assertEquals("153.12", write(153.12));
+        assertEquals("1.5", write(1.5f));
+        assertEquals("0.1", write(0.1f));
+        assertEquals("-3.4028235E38", write(-Float.MAX_VALUE));
+        assertEquals("16777216", write(16777216f));
+        assertEquals("null", write(Float.POSITIVE_INFINITY));
+        assertEquals("null", write(Double.NaN));
+        assertEquals("12.50", write(new BigDecimal("12.50")));
+    }
+
+    @Test
+    public void testStrings() throws Exception {
+        assertEquals("\"plain\"", write("plain"));
+        assertEquals("\"q\\\"b\\\\n\\nt\\tc\\u0001\"", write("q\"b\\n\nt\tc\u0001"));
+
+        String unicode = "h\u00e9llo \u4e16\u754c \ud83d\ude00";
+        assertEquals("\"" + unicode + "\"", write(unicode));
+        assertEquals(unicode, new JSONArray("[" + write(unicode) + "]").getString(0));
+    }
+
+    @Test
+    public void testNested() throws Exception {
+        Map<String, Object> inner = new LinkedHashMap<>();
+        inner.put("list", Arrays.asList(1, "two", 3.5, null));
+        inner.put("array", new Object[] {true});
+        Map<String, Object> fields = new LinkedHashMap<>();
+        fields.put("a", 1);
+        fields.put("inner", inner);
+        fields.put("json", new JSONObject().put("x", 1));
+
+        String json = write(fields);
+        assertEquals("{\"a\":1,\"inner\":{\"list\":[1,\"two\",3.5,null],\"array\":[true]},\"json\":{\"x\":1}}", json);
+
+        JSONObject parsed = new JSONObject(json);
+        assertEquals("two", parsed.getJSONObject("inner").getJSONArray("list").getString(1));
+    }
+
+    @Test
+    public void testReset() throws Exception {
+        JsonWriter writer = new JsonWriter(2);
+        writer.writeString("a long string that grows the buffer");
+        writer.reset();
+        writer.writeLong(7);
+        assertEquals(1, writer.size());
+        assertEquals("7", new String(writer.toByteArray(), StandardCharsets.UTF_8));
+    }
+
+    @Test
+    public void testRelease() throws Exception {
+        JsonWriter writer = new JsonWriter(16);
+        writer.writeString("a string that grows the buffer");
+        byte[] buffer = writer.buffer();
+        writer.release();
+        assertEquals(0, writer.size());
+        assertSame(buffer, writer.buffer());
+
+        // A buffer grown beyond the retained capacity is dropped
+        writer.writeRaw(new byte[JsonWriter.MAX_RETAINED_CAPACITY + 1]);
+        writer.release();
+        assertEquals(16, writer.buffer().length);
+    }
+
+    @Test
+    public void testFieldKeys() throws Exception {
+        FieldKeys fieldKeys = new FieldKeys();
+        FieldKey key = fieldKeys.register("dur\u00e9e \"ms\"");
+        assertSame(key, fieldKeys.register(new String("dur\u00e9e \"ms\"")));
+        assertEquals(1, fieldKeys.size());
+
+        // A registered key is copied from its cached encoding, which matches the encoding of the plain key
+        JsonWriter plain = new JsonWriter(4);
+        plain.writeKey(key.getName()).writeLong(3);
+        JsonWriter cached = new JsonWriter(4).setFieldKeys(fieldKeys);
+        cached.writeKey(key.getName()).writeLong(3);
+        assertArrayEquals(plain.toByteArray(), cached.toByteArray());
+        assertArrayEquals(key.getEncoded(), Arrays.copyOf(cached.toByteArray(), key.getEncoded().length));
+
+        // Unregistered keys are still encoded
+        cached.reset();
+        cached.writeKey("other").writeLong(4);
+        assertEquals("\"other\":4", new String(cached.toByteArray(), StandardCharsets.UTF_8));
+    }
+}
@@ -0,0 +1,206 @@
+package io.honeycomb;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.*;
+
+public class LaneQueueTest {
+    private LibHoney libhoney;
+    private final List<Event> evicted = new ArrayList<>();
+
+    @Before
+    public void setUp() throws Exception {
+        this.libhoney = new LibHoney.Builder().writeKey("wk").build();
+    }
+
+    @After
+    public void tearDown() throws Exception {
+        this.libhoney.close();
+    }
+
+    private Event newEvent(String dataSet) {
+        Event event = this.libhoney.newEvent();
+        event.setDataSet(dataSet);
+        return event;
+    }
+
+    private Event newEvent(Priority priority) {
+        Event event = this.newEvent("ds");
+        event.setPriority(priority);
+        return event;
+    }
+
+    @Test
+    public void testLanesOverflowSeparately() throws Exception {
+        LaneQueue queue = new LaneQueue(Collections.singletonList(new LaneConfig("wk", "critical", 5, 1, 10)), 2,
+                true, this.evicted::add);
+        assertTrue(queue.offer(this.newEvent("debug")));
+        assertTrue(queue.offer(this.newEvent("debug")));
+        assertFalse(queue.offer(this.newEvent("debug")));
+        for (int i = 0; i < 5; i++) {
+            assertTrue(queue.offer(this.newEvent("critical")));
+        }
+        assertFalse(queue.offer(this.newEvent("critical")));
+        assertEquals(7, queue.size());
+        assertEquals(2, queue.laneSize("wk", "debug"));
+        assertEquals(5, queue.laneSize("wk", "critical"));
+    }
+
+    @Test
+    public void testOnDemandLanesShareDefaultQueueLength() throws Exception {
+        LaneQueue queue = new LaneQueue(Collections.singletonList(new LaneConfig("wk", "critical", 2, 1, 10)), 3,
+                true, this.evicted::add);
+        Event first = this.newEvent("a");
+        assertTrue(queue.offer(first));
+        assertTrue(queue.offer(this.newEvent("b")));
+        assertTrue(queue.offer(this.newEvent("c")));
+
+        // Lanes created on demand hold at most the default queue length of Events between them
+        assertFalse(queue.offer(this.newEvent("d")));
+        assertEquals(0, queue.laneSize("wk", "d"));
+
+        // A more important Event evicts a less important one from another lane, which is removed once idle
+        Event high = this.newEvent("d");
+        high.setPriority(Priority.HIGH);
+        assertTrue(queue.offer(high));
+        assertEquals(Collections.singletonList(first), this.evicted);
+        assertEquals(0, queue.laneSize("wk", "a"));
+
+        // Configured lanes keep their own queue length
+        assertTrue(queue.offer(this.newEvent("critical")));
+        assertTrue(queue.offer(this.newEvent("critical")));
+        assertEquals(5, queue.size());
+
+        // Taking an Event makes room again
+        assertSame(high, queue.take());
+        assertTrue(queue.offer(this.newEvent("d")));
+    }
+
+    @Test
+    public void testFloodingLaneCannotBlockOthers() throws Exception {
+        LaneQueue queue = new LaneQueue(Collections.emptyList(), 4, true, this.evicted::add);
+        Event first = this.newEvent("debug");
+        assertTrue(queue.offer(first));
+        for (int i = 0; i < 3; i++) {
+            assertTrue(queue.offer(this.newEvent("debug")));
+        }
+        assertFalse(queue.offer(this.newEvent("debug")));
+        assertEquals(0, queue.remainingCapacity());
+
+        // Another lane takes room from the largest lane until it holds as many Events
+        assertTrue(queue.offer(this.newEvent("audit")));
+        assertTrue(queue.offer(this.newEvent("audit")));
+        assertFalse(queue.offer(this.newEvent("audit")));
+        assertEquals(first, this.evicted.get(0));
+        assertEquals(2, this.evicted.size());
+        assertEquals(2, queue.laneSize("wk", "debug"));
+        assertEquals(2, queue.laneSize("wk", "audit"));
+
+        // The flooding lane cannot take its room back
+        assertFalse(queue.offer(this.newEvent("debug")));
+        assertEquals(4, queue.size());
+    }
+
+    @Test
+    public void testRemainingCapacity() throws Exception {
+        LaneQueue queue = new LaneQueue(Collections.singletonList(new LaneConfig("wk", "critical", 2, 1, 10)), 3,
+                true, this.evicted::add);
+        assertEquals(5, queue.remainingCapacity());
+        queue.offer(this.newEvent("critical"));
+        queue.offer(this.newEvent("debug"));
+        assertEquals(3, queue.remainingCapacity());
+        queue.offer(new Object());
+        assertEquals(3, queue.remainingCapacity());
+    }
+
+    @Test
+    public void testWeightedFairness() throws Exception {
+        LaneQueue queue = new LaneQueue(Arrays.asList(
+                new LaneConfig("wk", "critical", 100, 3, 100),
+                new LaneConfig("wk", "debug", 100, 1, 100)), 100, true, this.evicted::add);
+        for (int i = 0; i < 40; i++) {
+            queue.offer(this.newEvent("debug"));
+        }
+        for (int i = 0; i < 40; i++) {
+            queue.offer(this.newEvent("critical"));
+        }
+
+        // The critical lane gets three of every four takes, however long the debug backlog
+        int critical = 0;
+        for (int i = 0; i < 40; i++) {
+            critical += "critical".equals(((Event) queue.take()).getDataSet()) ? 1 : 0;
+        }
+        assertEquals(30, critical);
+    }
+
+    @Test
+    public void testConcurrency() throws Exception {
+        LaneQueue queue = new LaneQueue(Collections.singletonList(new LaneConfig("wk", "slow", 10, 1, 1)), 10,
+                true, this.evicted::add);
+        queue.offer(this.newEvent("slow"));
+        queue.offer(this.newEvent("slow"));
+        queue.offer(this.newEvent("fast"));
+
+        Event first = (Event) queue.take();
+        assertEquals("slow", first.getDataSet());
+        // The slow lane has an Event in flight, so only the fast lane is ready
+        assertEquals("fast", ((Event) queue.take()).getDataSet());
+        assertNull(queue.poll(50, TimeUnit.MILLISECONDS));
+
+        queue.release(first);
+        assertEquals("slow", ((Event) queue.poll(1, TimeUnit.SECONDS)).getDataSet());
+    }
+
+    @Test
+    public void testOtherRequestsWaitForLanes() throws Exception {
+        LaneQueue queue = new LaneQueue(Collections.emptyList(), 10, true, this.evicted::add);
+        Object pill = new Object();
+        queue.offer(this.newEvent("ds"));
+        queue.offer(pill);
+        assertEquals(2, queue.size());
+        assertTrue(queue.take() instanceof Event);
+        assertSame(pill, queue.take());
+        assertTrue(queue.isEmpty());
+    }
+
+    @Test
+    public void testPriority() throws Exception {
+        LaneQueue queue = new LaneQueue(Collections.emptyList(), 3, false, this.evicted::add);
+        Event low = this.newEvent(Priority.LOW);
+        queue.offer(low);
+        queue.offer(this.newEvent(Priority.NORMAL));
+        queue.offer(this.newEvent(Priority.NORMAL));
+
+        // A full queue evicts its oldest event of the lowest priority to make room for a more important one
+        Event high = this.newEvent(Priority.HIGH);
+        assertTrue(queue.offer(high));
+        assertEquals(Collections.singletonList(low), this.evicted);
+        assertFalse(queue.offer(this.newEvent(Priority.NORMAL)));
+        assertFalse(queue.offer(this.newEvent(Priority.LOW)));
+        assertEquals(3, queue.size());
+
+        // The important event jumps ahead of those queued before it
+        assertSame(high, queue.take());
+        assertEquals(Priority.NORMAL, ((Event) queue.take()).getPriority());
+    }
+
+    @Test
+    public void testPriorityAcrossLanes() throws Exception {
+        LaneQueue queue = new LaneQueue(Collections.emptyList(), 10, true, this.evicted::add);
+        for (int i = 0; i < 5; i++) {
+            queue.offer(this.newEvent("bulk"));
+        }
+        Event audit = this.newEvent("audit");
+        audit.setPriority(Priority.HIGH);
+        queue.offer(audit);
+        assertSame(audit, queue.take());
+    }
+}
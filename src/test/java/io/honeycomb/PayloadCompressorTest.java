@@ -0,0 +1,73 @@
+package io.honeycomb;
+
+import org.junit.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.Random;
+import java.util.zip.GZIPInputStream;
+
+import static org.junit.Assert.*;
+
+public class PayloadCompressorTest {
+    private byte[] gunzip(byte[] bytes) throws Exception {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        try (GZIPInputStream in = new GZIPInputStream(new ByteArrayInputStream(bytes))) {
+            byte[] buffer = new byte[1024];
+            int n;
+            while ((n = in.read(buffer)) > 0) {
+                out.write(buffer, 0, n);
+            }
+        }
+        return out.toByteArray();
+    }
+
+    @Test
+    public void testRoundTrip() throws Exception {
+        PayloadCompressor compressor = new PayloadCompressor(6, 100);
+        StringBuilder json = new StringBuilder("[");
+        for (int i = 0; i < 5000; i++) {
+            json.append(i == 0 ? "" : ",").append("{\"data\":{\"method\":\"get\",\"status\":200,\"i\":").append(i).append("}}");
+        }
+        byte[] body = json.append("]").toString().getBytes(StandardCharsets.UTF_8);
+
+        // Compress twice so the second call reuses the pooled Deflater and grown buffer
+        for (int i = 0; i < 2; i++) {
+            byte[] compressed = compressor.compress(body, 0, body.length);
+            assertTrue(compressed.length * 5 < body.length);
+            assertArrayEquals(body, gunzip(compressed));
+        }
+        compressor.close();
+    }
+
+    @Test
+    public void testLargeBody() throws Exception {
+        // An incompressible body grows the scratch buffer beyond the size kept for reuse
+        PayloadCompressor compressor = new PayloadCompressor(1, 0);
+        byte[] body = new byte[PayloadCompressor.MAX_RETAINED_SCRATCH * 2];
+        new Random(42).nextBytes(body);
+        for (int i = 0; i < 2; i++) {
+            assertArrayEquals(body, gunzip(compressor.compress(body, 0, body.length)));
+        }
+        byte[] small = "{\"a\":1}".getBytes(StandardCharsets.UTF_8);
+        assertArrayEquals(small, gunzip(compressor.compress(small, 0, small.length)));
+        compressor.close();
+    }
+
+    @Test
+    public void testOffsetAndThreshold() throws Exception {
+        PayloadCompressor compressor = new PayloadCompressor(1, 4);
+        assertFalse(compressor.shouldCompress(3));
+        assertTrue(compressor.shouldCompress(4));
+
+        byte[] body = "xx{\"a\":1}yy".getBytes(StandardCharsets.UTF_8);
+        assertEquals("{\"a\":1}", new String(gunzip(compressor.compress(body, 2, 7)), StandardCharsets.UTF_8));
+        compressor.close();
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testInvalidLevel() throws Exception {
+        new PayloadCompressor(10, 0);
+    }
+}
@@ -0,0 +1,91 @@
+package io.honeycomb;
+
+import org.apache.http.HttpVersion;
+import org.apache.http.message.BasicHttpResponse;
+import org.junit.Test;
+
+import java.time.ZoneOffset;
+import java.time.ZonedDateTime;
+import java.time.format.DateTimeFormatter;
+
+import static org.junit.Assert.*;
+
+public class RetryPolicyTest {
+    @Test
+    public void testMaxRetries() throws Exception {
+        RetryPolicy policy = new RetryPolicy(2, 100, 1000, 1.0);
+        assertTrue(policy.tryRetry(0, -1));
+        assertTrue(policy.tryRetry(1, -1));
+        assertFalse(policy.tryRetry(2, -1));
+    }
+
+    @Test
+    public void testBudget() throws Exception {
+        RetryPolicy policy = new RetryPolicy(3, 100, 1000, 0.5);
+        for (int i = 0; i < 10; i++) {
+            assertTrue(policy.tryRetry(0, -1));
+        }
+        assertFalse(policy.tryRetry(0, -1));
+
+        // Each first attempt earns half a retry
+        policy.recordRequest();
+        assertFalse(policy.tryRetry(0, -1));
+        policy.recordRequest();
+        assertTrue(policy.tryRetry(0, -1));
+        assertFalse(policy.tryRetry(0, -1));
+    }
+
+    @Test
+    public void testDelay() throws Exception {
+        RetryPolicy policy = new RetryPolicy(10, 100, 1000, 0.1);
+        for (int i = 0; i < 100; i++) {
+            long delay = policy.getDelay(1, -1);
+            assertTrue(delay >= 0 && delay <= 100);
+            delay = policy.getDelay(3, -1);
+            assertTrue(delay >= 0 && delay <= 400);
+            delay = policy.getDelay(10, -1);
+            assertTrue(delay >= 0 && delay <= 1000);
+            assertTrue(policy.getDelay(1, 500) == 500);
+        }
+    }
+
+    @Test
+    public void testDelayHonoursRetryAfter() throws Exception {
+        RetryPolicy policy = new RetryPolicy(10, 100, 1000, 0.1);
+        for (int i = 0; i < 100; i++) {
+            assertEquals(1000, policy.getDelay(10, 1000));
+            assertTrue(policy.getDelay(1, 50) >= 50);
+        }
+    }
+
+    @Test
+    public void testRetryAfterLongerThanMaxDelay() throws Exception {
+        RetryPolicy policy = new RetryPolicy(10, 100, 1000, 0.1);
+        assertTrue(policy.tryRetry(0, 1000));
+        assertFalse(policy.tryRetry(0, 1001));
+        assertFalse(policy.tryRetry(0, 86400000));
+
+        // Refusing a retry leaves the budget untouched
+        for (int i = 0; i < 9; i++) {
+            assertTrue(policy.tryRetry(0, -1));
+        }
+        assertFalse(policy.tryRetry(0, -1));
+    }
+
+    @Test
+    public void testRetryAfter() throws Exception {
+        BasicHttpResponse response = new BasicHttpResponse(HttpVersion.HTTP_1_1, 429, "");
+        assertEquals(-1, RetryPolicy.getRetryAfter(response));
+
+        response.setHeader("Retry-After", "3");
+        assertEquals(3000, RetryPolicy.getRetryAfter(response));
+
+        String date = DateTimeFormatter.RFC_1123_DATE_TIME.format(ZonedDateTime.now(ZoneOffset.UTC).plusSeconds(60));
+        response.setHeader("Retry-After", date);
+        long retryAfter = RetryPolicy.getRetryAfter(response);
+        assertTrue(retryAfter > 55000 && retryAfter <= 60000);
+
+        response.setHeader("Retry-After", "soon");
+        assertEquals(-1, RetryPolicy.getRetryAfter(response));
+    }
+}
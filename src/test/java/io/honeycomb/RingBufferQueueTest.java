@@ -0,0 +1,173 @@
+package io.honeycomb;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.Assert.*;
+
+public class RingBufferQueueTest {
+    @Test
+    public void testOfferPoll() throws Exception {
+        RingBufferQueue<Integer> queue = new RingBufferQueue<>(3);
+        assertTrue(queue.isEmpty());
+        assertNull(queue.poll());
+
+        assertTrue(queue.offer(1));
+        assertTrue(queue.offer(2));
+        assertTrue(queue.offer(3));
+        assertFalse(queue.offer(4));
+        assertEquals(3, queue.size());
+        assertEquals(0, queue.remainingCapacity());
+        assertEquals("[1, 2, 3]", queue.toString());
+
+        assertEquals(Integer.valueOf(1), queue.peek());
+        assertEquals(Integer.valueOf(1), queue.poll());
+        assertTrue(queue.offer(4));
+        assertEquals(Integer.valueOf(2), queue.poll());
+        assertEquals(Integer.valueOf(3), queue.poll());
+        assertEquals(Integer.valueOf(4), queue.poll());
+        assertNull(queue.poll());
+    }
+
+    @Test(expected = IllegalStateException.class)
+    public void testAddWhenFull() throws Exception {
+        RingBufferQueue<Integer> queue = new RingBufferQueue<>(1);
+        queue.add(1);
+        queue.add(2);
+    }
+
+    @Test
+    public void testBlocking() throws Exception {
+        RingBufferQueue<Integer> queue = new RingBufferQueue<>(1);
+        queue.put(1);
+        assertFalse(queue.offer(2, 10, TimeUnit.MILLISECONDS));
+
+        CountDownLatch putting = new CountDownLatch(1);
+        Thread producer = new Thread(() -> {
+            try {
+                putting.countDown();
+                queue.put(2);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        });
+        producer.start();
+        putting.await();
+        assertEquals(Integer.valueOf(1), queue.take());
+        assertEquals(Integer.valueOf(2), queue.poll(5, TimeUnit.SECONDS));
+        producer.join();
+        assertNull(queue.poll(10, TimeUnit.MILLISECONDS));
+    }
+
+    @Test
+    public void testIdleConsumerParksUntilOffer() throws Exception {
+        RingBufferQueue<Integer> queue = new RingBufferQueue<>(4);
+        List<Integer> taken = new ArrayList<>();
+        Thread consumer = new Thread(() -> {
+            try {
+                taken.add(queue.take());
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        });
+        consumer.start();
+
+        // An idle consumer parks without a timeout rather than waking to poll
+        for (int i = 0; i < 500 && consumer.getState() != Thread.State.WAITING; i++) {
+            Thread.sleep(10);
+        }
+        assertEquals(Thread.State.WAITING, consumer.getState());
+
+        assertTrue(queue.offer(1));
+        consumer.join(5000);
+        assertFalse(consumer.isAlive());
+        assertEquals(Integer.valueOf(1), taken.get(0));
+        assertNull(queue.poll(10, TimeUnit.MILLISECONDS));
+    }
+
+    @Test
+    public void testConcurrentProducersAndConsumers() throws Exception {
+        RingBufferQueue<Long> queue = new RingBufferQueue<>(64);
+        int producers = 4;
+        int perProducer = 20000;
+        ExecutorService executor = Executors.newFixedThreadPool(producers + 2);
+        AtomicLong sum = new AtomicLong();
+        AtomicLong count = new AtomicLong();
+
+        List<Future<?>> consumers = new ArrayList<>();
+        for (int i = 0; i < 2; i++) {
+            consumers.add(executor.submit(() -> {
+                while (count.get() < producers * perProducer) {
+                    Long value = queue.poll(10, TimeUnit.MILLISECONDS);
+                    if (value != null) {
+                        sum.addAndGet(value);
+                        count.incrementAndGet();
+                    }
+                }
+                return null;
+            }));
+        }
+        for (int p = 0; p < producers; p++) {
+            executor.submit(() -> {
+                for (long v = 1; v <= perProducer; v++) {
+                    queue.put(v);
+                }
+                return null;
+            });
+        }
+
+        for (Future<?> consumer : consumers) {
+            consumer.get(30, TimeUnit.SECONDS);
+        }
+        executor.shutdownNow();
+
+        long expected = producers * ((long) perProducer * (perProducer + 1) / 2);
+        assertEquals(producers * perProducer, count.get());
+        assertEquals(expected, sum.get());
+        assertTrue(queue.isEmpty());
+    }
+
+    @Test
+    public void testSizeCountsOnlyPublishedElements() throws Exception {
+        RingBufferQueue<Long> queue = new RingBufferQueue<>(64);
+        int producers = 4;
+        int perProducer = 20000;
+        ExecutorService executor = Executors.newFixedThreadPool(producers);
+        for (int p = 0; p < producers; p++) {
+            executor.submit(() -> {
+                for (long v = 1; v <= perProducer; v++) {
+                    queue.put(v);
+                }
+                return null;
+            });
+        }
+
+        // With a single consumer, an element counted by size() or isEmpty() can always be polled
+        long count = 0;
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(30);
+        while (count < producers * perProducer && System.nanoTime() < deadline) {
+            int size = queue.size();
+            boolean empty = queue.isEmpty();
+            for (int i = 0; i < size; i++) {
+                assertNotNull(queue.poll());
+                count++;
+            }
+            if (size == 0 && !empty) {
+                assertNotNull(queue.poll());
+                count++;
+            }
+        }
+        executor.shutdownNow();
+        assertEquals(producers * perProducer, count);
+        assertEquals(0, queue.size());
+        assertEquals(64, queue.remainingCapacity());
+    }
+}
@@ -0,0 +1,255 @@
+package io.honeycomb;
+
+import org.junit.Test;
+
+import java.time.Clock;
+import java.time.Instant;
+import java.time.ZoneId;
+import java.time.ZoneOffset;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.Assert.*;
+
+public class SamplerTest {
+    /**
+     * A Clock that only moves when a test advances it.
+     */
+    private static final class ManualClock extends Clock {
+        private volatile long millis;
+
+        void advance(long millis) {
+            this.millis += millis;
+        }
+
+        @Override
+        public long millis() {
+            return this.millis;
+        }
+
+        @Override
+        public Instant instant() {
+            return Instant.ofEpochMilli(this.millis);
+        }
+
+        @Override
+        public ZoneId getZone() {
+            return ZoneOffset.UTC;
+        }
+
+        @Override
+        public Clock withZone(ZoneId zone) {
+            throw new UnsupportedOperationException();
+        }
+    }
+
+    private LibHoney newLibHoney(Sampler sampler) {
+        return new LibHoney.Builder()
+                .writeKey("wk")
+                .dataSet("ds")
+                .sampleRate(10)
+                .sampler(sampler)
+                .build();
+    }
+
+    @Test
+    public void testSamplerSetsSampleRate() throws Exception {
+        LibHoney libhoney = this.newLibHoney(event -> "error".equals(event.getField("status")) ? 1 : 50);
+        Builder builder = libhoney.newBuilder();
+        builder.addField("status", "error");
+        Event event = builder.newEvent();
+        assertTrue(event.shouldSendEvent());
+        assertEquals(1, event.getSampleRate());
+
+        event = libhoney.newEvent();
+        event.addField("status", "ok");
+        assertTrue(event.shouldSendEvent());
+        assertEquals(50, event.getSampleRate());
+
+        libhoney.close();
+    }
+
+    @Test
+    public void testSampleBeforeBuild() throws Exception {
+        LibHoney libhoney = this.newLibHoney(new RandomSampler(RandomSource.seeded(42), true));
+        AtomicInteger calls = new AtomicInteger();
+        Builder builder = libhoney.newBuilder();
+        builder.addDynField("calls", calls::incrementAndGet);
+
+        builder.setSampleRate(Integer.MAX_VALUE);
+        Event event = builder.newEvent();
+        assertTrue(event instanceof DroppedEvent);
+        event.addField("foo", "bar");
+        assertTrue(event.getFields().isEmpty());
+        event.send();
+        assertEquals(0, calls.get());
+        assertEquals(1, libhoney.getMetrics().getEventsSampled());
+
+        // A kept Event is not sampled again when it is sent, unless its sample rate is changed
+        builder.setSampleRate(1);
+        event = builder.newEvent();
+        assertFalse(event instanceof DroppedEvent);
+        assertTrue(event.shouldSendEvent());
+        event.setSampleRate(Integer.MAX_VALUE);
+        assertFalse(event.shouldSendEvent());
+        assertEquals(1, calls.get());
+        libhoney.close();
+    }
+
+    @Test
+    public void testSampleRateChangedAfterNewEvent() throws Exception {
+        LibHoney libhoney = this.newLibHoney(new RandomSampler());
+        Builder builder = libhoney.newBuilder();
+        builder.setSampleRate(Integer.MAX_VALUE);
+
+        // The default sampler decides when the Event is sent, using the Event's own sample rate
+        Event event = builder.newEvent();
+        assertFalse(event instanceof DroppedEvent);
+        event.setSampleRate(1);
+        assertTrue(event.shouldSendEvent());
+        assertEquals(1, event.getSampleRate());
+
+        builder.setSampleRate(1);
+        event = builder.newEvent();
+        event.setSampleRate(Integer.MAX_VALUE);
+        assertFalse(event.shouldSendEvent());
+        libhoney.close();
+    }
+
+    @Test
+    public void testSeededRandomSource() throws Exception {
+        LibHoney libhoney = this.newLibHoney(new RandomSampler(RandomSource.seeded(42), true));
+        Builder builder = libhoney.newBuilder();
+        boolean[] decisions = new boolean[100];
+        int kept = 0;
+        for (int i = 0; i < decisions.length; i++) {
+            decisions[i] = !(builder.newEvent() instanceof DroppedEvent);
+            kept += decisions[i] ? 1 : 0;
+        }
+        assertTrue(kept > 0 && kept < decisions.length);
+
+        // The same seed makes the same decisions
+        builder.setSampler(new RandomSampler(RandomSource.seeded(42), true));
+        for (boolean decision : decisions) {
+            assertEquals(decision, !(builder.newEvent() instanceof DroppedEvent));
+        }
+        libhoney.close();
+    }
+
+    @Test
+    public void testDeterministicSampler() throws Exception {
+        DeterministicSampler sampler = new DeterministicSampler("trace.trace_id", 10);
+        LibHoney libhoney = this.newLibHoney(sampler);
+        int kept = 0;
+        for (int i = 0; i < 10000; i++) {
+            String traceId = "trace-" + i;
+            boolean keep = sampler.shouldKeep(traceId);
+            assertEquals(keep, sampler.shouldKeep(traceId));
+            kept += keep ? 1 : 0;
+
+            Event event = libhoney.newEvent();
+            event.addField("trace.trace_id", traceId);
+            assertEquals(keep ? 10 : 0, sampler.sample(event));
+        }
+        assertTrue(kept > 800 && kept < 1200);
+
+        // The decision is made up front when the Builder has the field
+        Builder builder = libhoney.newBuilder();
+        builder.addField("trace.trace_id", "trace-0");
+        Event event = builder.newEvent();
+        assertEquals(!sampler.shouldKeep("trace-0"), event instanceof DroppedEvent);
+        libhoney.close();
+    }
+
+    @Test
+    public void testDeterministicSamplerDynamicFieldShadowsStatic() throws Exception {
+        DeterministicSampler sampler = new DeterministicSampler("trace.trace_id", 10);
+        LibHoney libhoney = this.newLibHoney(sampler);
+        int i = 1;
+        while (sampler.shouldKeep("trace-" + i) == sampler.shouldKeep("trace-0")) {
+            i++;
+        }
+        String traceId = "trace-" + i;
+
+        // The Event takes its value from the dynamic field, so the decision waits until it is created
+        Builder builder = libhoney.newBuilder();
+        builder.addField("trace.trace_id", "trace-0");
+        builder.addDynField("trace.trace_id", () -> traceId);
+        assertEquals(-1, sampler.sampleBeforeBuild(builder));
+        Event event = builder.newEvent();
+        assertEquals(traceId, event.getField("trace.trace_id"));
+        assertEquals(sampler.shouldKeep(traceId) ? 10 : 0, sampler.sample(event));
+        libhoney.close();
+    }
+
+    @Test
+    public void testDynamicSamplerKeepsRareKeys() throws Exception {
+        DynamicSampler sampler = new DynamicSampler(10, 1000, "status");
+        Map<String, Long> counts = new HashMap<>();
+        counts.put("200", 10000L);
+        counts.put("404", 100L);
+        counts.put("500", 1L);
+        Map<String, Integer> rates = sampler.computeRates(counts, 1000);
+
+        assertEquals(1, (int) rates.get("500"));
+        assertTrue(rates.get("404") < rates.get("200"));
+        long kept = 0;
+        for (Map.Entry<String, Long> entry : counts.entrySet()) {
+            kept += entry.getValue() / rates.get(entry.getKey());
+        }
+        long total = 10101;
+        assertTrue(kept > total / 20 && kept < total / 5);
+    }
+
+    @Test
+    public void testDynamicSamplerKeysSeenOnce() throws Exception {
+        DynamicSampler sampler = new DynamicSampler(10, 1000, "status");
+        Map<String, Long> counts = new HashMap<>();
+        counts.put("200", 1L);
+        counts.put("404", 1L);
+        counts.put("500", 1L);
+        Map<String, Integer> rates = sampler.computeRates(counts, 1000);
+
+        assertEquals(3, rates.size());
+        for (int rate : rates.values()) {
+            assertEquals(1, rate);
+        }
+    }
+
+    @Test
+    public void testWindowRollover() throws Exception {
+        ManualClock clock = new ManualClock();
+        DynamicSampler sampler = new DynamicSampler(10, 1000, RandomSource.seeded(42), clock, "status");
+        LibHoney libhoney = this.newLibHoney(null);
+        for (int i = 0; i < 1000; i++) {
+            Event event = libhoney.newEvent();
+            event.addField("status", i % 100 == 0 ? "500" : "200");
+            sampler.sample(event);
+        }
+
+        // Rates only change once the clock reaches the end of the window
+        clock.advance(999);
+        sampler.sample(libhoney.newEvent());
+        assertEquals(1, sampler.getRate("200"));
+        clock.advance(1);
+        sampler.sample(libhoney.newEvent());
+        assertTrue(sampler.getRate("200") > 1);
+        assertEquals(1, sampler.getRate("500"));
+        libhoney.close();
+    }
+
+    @Test
+    public void testThroughputSampler() throws Exception {
+        ThroughputSampler sampler = new ThroughputSampler(100, 2000, "route");
+        Map<String, Long> counts = new HashMap<>();
+        counts.put("/a", 10000L);
+        counts.put("/b", 50L);
+        Map<String, Integer> rates = sampler.computeRates(counts, 2000);
+
+        // Each key may keep 100 events per 2s window
+        assertEquals(100, (int) rates.get("/a"));
+        assertEquals(1, (int) rates.get("/b"));
+        assertEquals(1, sampler.getRate("/c"));
+    }
+}
@@ -0,0 +1,170 @@
+package io.honeycomb;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.File;
+import java.io.RandomAccessFile;
+import java.nio.charset.StandardCharsets;
+import java.util.HashMap;
+import java.util.Map;
+
+import static org.junit.Assert.*;
+
+public class SpoolTest {
+    @Rule
+    public final TemporaryFolder folder = new TemporaryFolder();
+
+    private static byte[] bytes(String value) {
+        return value.getBytes(StandardCharsets.UTF_8);
+    }
+
+    private static String next(Spool spool) {
+        byte[] record = spool.peek();
+        if (record == null) {
+            return null;
+        }
+        spool.commit();
+        return new String(record, StandardCharsets.UTF_8);
+    }
+
+    @Test
+    public void testAppendAndReplayInOrder() throws Exception {
+        Spool spool = new Spool(this.folder.getRoot(), 4096, 256);
+        for (int i = 0; i < 40; i++) {
+            assertTrue(spool.append(bytes("record-" + i)));
+        }
+        assertEquals(40, spool.size());
+        assertTrue(spool.getDiskUsage() > 256);
+
+        assertArrayEquals(bytes("record-0"), spool.peek());
+        assertArrayEquals(bytes("record-0"), spool.peek());
+        for (int i = 0; i < 40; i++) {
+            assertEquals("record-" + i, next(spool));
+        }
+        assertNull(spool.peek());
+        assertTrue(spool.isEmpty());
+        assertEquals(256, spool.getDiskUsage());
+        spool.close();
+    }
+
+    @Test
+    public void testClosed() throws Exception {
+        Spool spool = new Spool(this.folder.getRoot(), 4096, 256);
+        assertTrue(spool.append(bytes("record-0")));
+        spool.close();
+
+        // Requests completing after close() cannot write to the closed segments
+        assertFalse(spool.append(bytes("record-1")));
+        assertNull(spool.peek());
+        spool.commit();
+        spool.close();
+        assertEquals(1, spool.size());
+
+        spool = new Spool(this.folder.getRoot(), 4096, 256);
+        assertEquals("record-0", next(spool));
+        assertNull(spool.peek());
+        spool.close();
+    }
+
+    @Test
+    public void testBoundedDiskUsage() throws Exception {
+        Spool spool = new Spool(this.folder.getRoot(), 512, 256);
+        int appended = 0;
+        while (spool.append(bytes("0123456789012345678901234567890123456789"))) {
+            appended++;
+        }
+        assertTrue(appended > 0);
+        assertEquals(512, spool.getDiskUsage());
+        assertFalse(spool.append(new byte[300]));
+
+        // Replaying a whole segment frees room for another
+        for (int i = 0; i < appended / 2 + 1; i++) {
+            next(spool);
+        }
+        assertTrue(spool.append(bytes("after")));
+        spool.close();
+    }
+
+    @Test
+    public void testBoundedDiskUsageAcrossRestarts() throws Exception {
+        int appended = 0;
+        for (int i = 0; i < 5; i++) {
+            Spool spool = new Spool(this.folder.getRoot(), 512, 256);
+            while (spool.append(bytes("record-" + appended))) {
+                appended++;
+            }
+            assertTrue(spool.getDiskUsage() <= 512);
+            spool.close();
+            File[] segments = this.folder.getRoot().listFiles((dir, name) -> name.endsWith(".log"));
+            assertTrue(segments.length * 256 <= 512);
+        }
+
+        // Appends refused after a restart are accepted again once replay frees a segment
+        Spool spool = new Spool(this.folder.getRoot(), 512, 256);
+        assertEquals(appended, spool.size());
+        assertFalse(spool.append(bytes("after")));
+        while (spool.getDiskUsage() == 512) {
+            assertNotNull(next(spool));
+        }
+        assertTrue(spool.append(bytes("after")));
+        assertTrue(spool.getDiskUsage() <= 512);
+        spool.close();
+    }
+
+    @Test
+    public void testRecovery() throws Exception {
+        Spool spool = new Spool(this.folder.getRoot(), 4096, 256);
+        for (int i = 0; i < 5; i++) {
+            spool.append(bytes("record-" + i));
+        }
+        assertEquals("record-0", next(spool));
+        assertEquals("record-1", next(spool));
+        spool.close();
+
+        // Simulate a crash while writing a record: its payload is present but its length is not
+        File segment = new File(this.folder.getRoot(), String.format("spool-%020d.log", 0));
+        try (RandomAccessFile raf = new RandomAccessFile(segment, "rw")) {
+            raf.seek(raf.length() - 16);
+            raf.write(bytes("torn"));
+        }
+
+        spool = new Spool(this.folder.getRoot(), 4096, 256);
+        assertEquals(3, spool.size());
+        spool.append(bytes("record-5"));
+        for (int i = 2; i <= 5; i++) {
+            assertEquals("record-" + i, next(spool));
+        }
+        assertNull(spool.peek());
+        spool.close();
+
+        // Fully replayed segments are removed
+        spool = new Spool(this.folder.getRoot(), 4096, 256);
+        assertTrue(spool.isEmpty());
+        assertFalse(segment.exists());
+        spool.close();
+    }
+
+    @Test
+    public void testEncodeEvent() throws Exception {
+        LibHoney libhoney = new LibHoney.Builder().writeKey("wk").dataSet("ds").sampleRate(3)
+                .build();
+        libhoney.addField("global", "g");
+        Event event = libhoney.newEvent();
+        event.addField("n", 7);
+        event.setMetadata("meta");
+
+        Event restored = Spool.decode(Spool.encode(event, new JsonWriter(16)), libhoney.getTransmission());
+        assertEquals("wk", restored.getWriteKey());
+        assertEquals("ds", restored.getDataSet());
+        assertEquals(3, restored.getSampleRate());
+        assertEquals("meta", restored.getMetadata());
+        assertEquals(event.getCreatedAt(), restored.getCreatedAt());
+        Map<String, Object> expected = new HashMap<>();
+        expected.put("global", "g");
+        expected.put("n", 7);
+        assertEquals(expected, restored.getFields());
+        libhoney.close();
+    }
+}
@@ -0,0 +1,43 @@
+package io.honeycomb;
+
+import org.apache.http.HttpResponse;
+import org.apache.http.HttpVersion;
+import org.apache.http.client.methods.HttpUriRequest;
+import org.apache.http.concurrent.FutureCallback;
+import org.apache.http.entity.ContentType;
+import org.apache.http.entity.StringEntity;
+import org.apache.http.message.BasicHttpResponse;
+
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.LinkedBlockingQueue;
+
+/**
+ * Completes every request immediately with a fixed status and body, or throws a fixed exception if one is set,
+ * recording the requests it was given.
+ */
+class StubTransport implements Transport {
+    volatile int statusCode;
+    volatile RuntimeException failure;
+    private final String body;
+    final BlockingQueue<HttpUriRequest> requests = new LinkedBlockingQueue<>();
+
+    StubTransport(int statusCode, String body) {
+        this.statusCode = statusCode;
+        this.body = body;
+    }
+
+    @Override
+    public void execute(HttpUriRequest request, FutureCallback<HttpResponse> callback) {
+        BasicHttpResponse response = new BasicHttpResponse(HttpVersion.HTTP_1_1, this.statusCode, "");
+        this.requests.add(request);
+        if (this.failure != null) {
+            throw this.failure;
+        }
+        response.setEntity(new StringEntity(this.body, ContentType.APPLICATION_JSON));
+        callback.completed(response);
+    }
+
+    @Override
+    public void close() {
+    }
+}
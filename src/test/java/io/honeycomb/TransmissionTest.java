@@ -1,9 +1,27 @@
 package io.honeycomb;
 
+import com.sun.net.httpserver.HttpServer;
+import org.apache.http.HttpResponse;
+import org.apache.http.client.methods.HttpUriRequest;
+import org.apache.http.concurrent.FutureCallback;
+import org.json.JSONArray;
 import org.json.JSONObject;
+import org.junit.Assume;
 import org.junit.Test;
 
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.Collections;
+import java.util.Scanner;
 import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
 
 import static org.mockito.Mockito.*;
 
@@ -26,6 +44,26 @@ public class TransmissionTest {
         assertEquals(true, transmission.getBlockOnSend());
         assertEquals(true, transmission.getBlockOnResponse());
         assertEquals(21, transmission.getCloseTimeout());
+        assertEquals(5, transmission.getMaxConnections());
+        assertEquals(Constants.DEFAULT_CONNECT_TIMEOUT, transmission.getConnectTimeout());
+        assertEquals(Constants.DEFAULT_SOCKET_TIMEOUT, transmission.getSocketTimeout());
+        assertEquals(Constants.DEFAULT_IDLE_CONNECTION_TIMEOUT, transmission.getIdleConnectionTimeout());
+    }
+
+    @Test
+    public void testConnectionPoolOptions() throws Exception {
+        LibHoney libhoney = new LibHoney.Builder()
+                .maxConcurrentBranches(2)
+                .maxConnections(8)
+                .connectTimeout(500)
+                .socketTimeout(1500)
+                .build();
+        Transmission transmission = libhoney.getTransmission();
+
+        assertEquals(8, transmission.getMaxConnections());
+        assertEquals(500, transmission.getConnectTimeout());
+        assertEquals(1500, transmission.getSocketTimeout());
+        libhoney.close();
     }
 
     @Test
@@ -79,7 +117,50 @@ public class TransmissionTest {
         libhoney.setTransmission(transmission);
         libhoney.newBuilder().newEvent().send();
         libhoney.newBuilder().newEvent().send();
-        verify(transmission, times(1)).createJsonError(eq("event dropped; queue overflow"), anyString());
+        verify(transmission, times(1)).createErrorResponse(eq("event dropped; queue overflow"), anyString());
+        libhoney.close();
+    }
+
+    @Test
+    public void testTemplateEventQueueOverflow() throws Exception {
+        LibHoney libhoney = new LibHoney.Builder()
+                .apiHost("uuu")
+                .writeKey("wk")
+                .dataSet("ds")
+                .closeTimeout(1) // seconds
+                .maxConcurrentBranches(1)
+                .build();
+        Transmission transmission = spy(libhoney.getTransmission());
+        transmission.setRequestQueue(new ArrayBlockingQueue<>(1));
+        libhoney.setTransmission(transmission);
+        EventTemplate template = libhoney.newBuilder().newTemplate("foo");
+        for (int i = 0; i < 2; i++) {
+            TemplateEvent event = template.newEvent();
+            event.set(0, i);
+            event.setMetadata("template");
+            event.send();
+        }
+        verify(transmission, times(1)).createErrorResponse(eq("event dropped; queue overflow"), eq("template"));
+        libhoney.close();
+    }
+
+    @Test
+    public void testLockFreeQueueOverflow() throws Exception {
+        LibHoney libhoney = new LibHoney.Builder()
+                .apiHost("uuu")
+                .writeKey("wk")
+                .dataSet("ds")
+                .closeTimeout(1) // seconds
+                .lockFreeRequestQueue(true)
+                .build();
+        libhoney.addField("foo", 4);
+        Transmission transmission = spy(libhoney.getTransmission());
+        assertTrue(transmission.getRequestQueue() instanceof RingBufferQueue);
+        transmission.setRequestQueue(new RingBufferQueue<>(1));
+        libhoney.setTransmission(transmission);
+        libhoney.newBuilder().newEvent().send();
+        libhoney.newBuilder().newEvent().send();
+        verify(transmission, times(1)).createErrorResponse(eq("event dropped; queue overflow"), anyString());
         libhoney.close();
     }
 
@@ -102,4 +183,464 @@ public class TransmissionTest {
 
         verify(transmission, times(1)).enqueueRequest(event);
     }
+
+    @Test
+    public void testSendBatch() throws Exception {
+        BlockingQueue<String> bodies = new LinkedBlockingQueue<>();
+        HttpServer server = HttpServer.create(new InetSocketAddress("127.0.0.1", 0), 0);
+        server.createContext("/1/batch/datame", exchange -> {
+            try (InputStream in = exchange.getRequestBody()) {
+                String body = new Scanner(in, "UTF-8").useDelimiter("\\A").next();
+                bodies.add(body);
+                StringBuilder statuses = new StringBuilder("[");
+                for (int i = 0; i < new JSONArray(body).length(); i++) {
+                    statuses.append(i == 0 ? "" : ",").append("{\"status\":202}");
+                }
+                byte[] response = statuses.append("]").toString().getBytes(StandardCharsets.UTF_8);
+                exchange.sendResponseHeaders(200, response.length);
+                try (OutputStream out = exchange.getResponseBody()) {
+                    out.write(response);
+                }
+            } catch (Exception e) {
+                exchange.sendResponseHeaders(500, -1);
+            }
+        });
+        server.start();
+
+        LibHoney libhoney = new LibHoney.Builder()
+                .writeKey("writeme")
+                .dataSet("datame")
+                .apiHost("http://127.0.0.1:" + server.getAddress().getPort())
+                .maxConcurrentBranches(1)
+                .batching(true)
+                .maxBatchSize(3)
+                .batchTimeout(10000)
+                .build();
+        libhoney.addField("foo", "bar");
+        for (int i = 0; i < 3; i++) {
+            libhoney.send();
+        }
+
+        JSONArray batch = new JSONArray(bodies.poll(5, TimeUnit.SECONDS));
+        assertEquals(3, batch.length());
+        assertEquals("bar", batch.getJSONObject(0).getJSONObject("data").getString("foo"));
+        for (int i = 0; i < 3; i++) {
+            JSONObject response = (JSONObject) ((BlockingQueue) libhoney.getResponseQueue()).poll(5, TimeUnit.SECONDS);
+            assertEquals(202, response.getInt("status_code"));
+        }
+
+        libhoney.close();
+        server.stop(0);
+    }
+
+    @Test
+    public void testAsyncTransport() throws Exception {
+        HttpServer server = HttpServer.create(new InetSocketAddress("127.0.0.1", 0), 0);
+        server.createContext("/1/events/datame", exchange -> {
+            exchange.getRequestBody().close();
+            exchange.sendResponseHeaders(202, -1);
+            exchange.close();
+        });
+        server.start();
+
+        LibHoney libhoney = new LibHoney.Builder()
+                .writeKey("writeme")
+                .dataSet("datame")
+                .apiHost("http://127.0.0.1:" + server.getAddress().getPort())
+                .asyncTransport(true)
+                .ioThreads(1)
+                .maxConcurrentBranches(100)
+                .build();
+        assertTrue(libhoney.getTransmission().getTransport() instanceof AsyncHttpTransport);
+        libhoney.addField("foo", "bar");
+        for (int i = 0; i < 20; i++) {
+            libhoney.send();
+        }
+
+        for (int i = 0; i < 20; i++) {
+            JSONObject response = (JSONObject) ((BlockingQueue) libhoney.getResponseQueue()).poll(5, TimeUnit.SECONDS);
+            assertEquals(202, response.getInt("status_code"));
+        }
+
+        libhoney.close();
+        server.stop(0);
+    }
+
+    @Test
+    public void testMetrics() throws Exception {
+        LibHoney libhoney = new LibHoney.Builder()
+                .writeKey("writeme")
+                .dataSet("datame")
+                .apiHost("http://urlme")
+                .maxConcurrentBranches(1)
+                .transport(new StubTransport(202, ""))
+                .build();
+        libhoney.addField("foo", "bar");
+        for (int i = 0; i < 5; i++) {
+            libhoney.send();
+        }
+        libhoney.getTransmission().sendDroppedResponse("");
+        for (int i = 0; i < 6; i++) {
+            assertNotNull(((BlockingQueue) libhoney.getResponseQueue()).poll(5, TimeUnit.SECONDS));
+        }
+
+        Metrics metrics = libhoney.getMetrics();
+        assertEquals(5, metrics.getEventsEnqueued());
+        assertEquals(5, metrics.getEventsSent());
+        assertEquals(1, metrics.getEventsSampled());
+        assertEquals(0, metrics.getEventsDropped());
+        assertEquals(0, metrics.getEventsFailed());
+        assertEquals(5 * "{\"foo\":\"bar\"}".length(), metrics.getBytesSent());
+        assertEquals(5, metrics.getSendLatency().getCount());
+        assertEquals(5, metrics.getQueueLatency().getCount());
+        assertEquals(0, metrics.getRequestQueueDepth());
+        assertEquals(0, metrics.getResponseQueueDepth());
+        libhoney.close();
+    }
+
+    @Test
+    public void testResponseObserver() throws Exception {
+        BlockingQueue<Response> responses = new LinkedBlockingQueue<>();
+        LibHoney libhoney = new LibHoney.Builder()
+                .writeKey("writeme")
+                .dataSet("datame")
+                .apiHost("http://urlme")
+                .responseQueueLength(0)
+                .responseObserver(responses::add)
+                .transport(new StubTransport(202, ""))
+                .build();
+        assertNull(libhoney.getResponseQueue());
+        libhoney.addField("foo", "bar");
+
+        Event event = libhoney.newEvent();
+        event.setMetadata("meta");
+        libhoney.getTransmission().sendDroppedResponse("dropped");
+        event.send();
+
+        Response response = responses.poll(5, TimeUnit.SECONDS);
+        assertEquals(0, response.getStatusCode());
+        assertEquals("dropped", response.getMetadata());
+        assertEquals("event dropped due to sampling", response.getError());
+        response = responses.poll(5, TimeUnit.SECONDS);
+        assertEquals(202, response.getStatusCode());
+        assertEquals("meta", response.getMetadata());
+        assertEquals("", response.getError());
+        assertEquals(0, libhoney.getMetrics().getResponseQueueDepth());
+        libhoney.close();
+    }
+
+    @Test
+    public void testSpoolReplay() throws Exception {
+        StubTransport transport = new StubTransport(503, "");
+        BlockingQueue<Response> responses = new LinkedBlockingQueue<>();
+        File spoolDirectory = Files.createTempDirectory("spool").toFile();
+        LibHoney libhoney = new LibHoney.Builder()
+                .writeKey("writeme")
+                .dataSet("datame")
+                .apiHost("http://urlme")
+                .responseQueueLength(0)
+                .responseObserver(responses::add)
+                .transport(transport)
+                .spoolDirectory(spoolDirectory.getPath())
+                .spoolSegmentBytes(4096)
+                .maxRetries(0)
+                .build();
+        for (int i = 0; i < 3; i++) {
+            Event event = libhoney.newEvent();
+            event.addField("i", i);
+            event.setMetadata(Integer.toString(i));
+            event.send();
+        }
+
+        // Nothing is delivered while honeycomb.io is unavailable
+        assertNull(responses.poll(500, TimeUnit.MILLISECONDS));
+        assertTrue(libhoney.getMetrics().getEventsSpooled() >= 3);
+
+        transport.statusCode = 202;
+        for (int i = 0; i < 3; i++) {
+            Response response = responses.poll(5, TimeUnit.SECONDS);
+            assertEquals(202, response.getStatusCode());
+        }
+
+        // A replayed record is committed just after its Event is queued, so it may still be counted briefly
+        for (int i = 0; i < 500 && libhoney.getMetrics().getSpoolDepth() > 0; i++) {
+            Thread.sleep(10);
+        }
+        assertEquals(0, libhoney.getMetrics().getSpoolDepth());
+        libhoney.close();
+    }
+
+    @Test
+    public void testSpoolReplaySkipsMalformedRecords() throws Exception {
+        File spoolDirectory = Files.createTempDirectory("spool").toFile();
+        LibHoney writer = new LibHoney.Builder().writeKey("writeme").dataSet("datame").build();
+        Event spooled = writer.newEvent();
+        spooled.addField("i", 1);
+        Spool spool = new Spool(spoolDirectory, 1 << 20, 4096);
+        assertTrue(spool.append(new byte[] {1, 2, 3}));
+        assertTrue(spool.append(Spool.encode(spooled, new JsonWriter(16))));
+        spool.close();
+        writer.close();
+
+        BlockingQueue<Response> responses = new LinkedBlockingQueue<>();
+        LibHoney libhoney = new LibHoney.Builder()
+                .apiHost("http://urlme")
+                .responseQueueLength(0)
+                .responseObserver(responses::add)
+                .transport(new StubTransport(202, ""))
+                .spoolDirectory(spoolDirectory.getPath())
+                .spoolSegmentBytes(4096)
+                .build();
+
+        // The malformed record is skipped and replay carries on with the next one
+        assertEquals(202, responses.poll(5, TimeUnit.SECONDS).getStatusCode());
+        for (int i = 0; i < 500 && libhoney.getMetrics().getSpoolDepth() > 0; i++) {
+            Thread.sleep(10);
+        }
+        assertEquals(0, libhoney.getMetrics().getSpoolDepth());
+        libhoney.close();
+    }
+
+    @Test
+    public void testRetry() throws Exception {
+        StubTransport transport = new StubTransport(503, "");
+        BlockingQueue<Response> responses = new LinkedBlockingQueue<>();
+        LibHoney libhoney = new LibHoney.Builder()
+                .writeKey("writeme")
+                .dataSet("datame")
+                .apiHost("http://urlme")
+                .responseQueueLength(0)
+                .responseObserver(responses::add)
+                .transport(transport)
+                .maxRetries(3)
+                .retryBaseDelay(200)
+                .adaptiveConcurrency(true)
+                .build();
+        Event event = libhoney.newEvent();
+        event.addField("foo", "bar");
+        event.send();
+
+        // The first attempt fails and the event waits out its backoff instead of being delivered
+        transport.requests.take();
+        transport.statusCode = 202;
+        Response response = responses.poll(5, TimeUnit.SECONDS);
+        assertEquals(202, response.getStatusCode());
+        assertEquals(1, libhoney.getMetrics().getEventsRetried());
+        assertEquals(1, libhoney.getMetrics().getEventsSent());
+        // The 503 halved the concurrency limit and the success has begun to raise it again
+        assertEquals(5, libhoney.getMetrics().getConcurrencyLimit());
+        libhoney.close();
+    }
+
+    @Test
+    public void testLaneRouting() throws Exception {
+        BlockingQueue<Response> responses = new LinkedBlockingQueue<>();
+        LibHoney libhoney = new LibHoney.Builder()
+                .writeKey("writeme")
+                .dataSet("bulk")
+                .apiHost("http://urlme")
+                .responseQueueLength(0)
+                .responseObserver(responses::add)
+                .transport(new StubTransport(202, ""))
+                .lane(new LaneConfig("writeme", "critical", 10, 4, 1))
+                .build();
+        for (int i = 0; i < 20; i++) {
+            Event event = libhoney.newEvent();
+            event.addField("i", i);
+            event.setDataSet(i % 2 == 0 ? "bulk" : "critical");
+            event.send();
+        }
+
+        // Each completed request releases its lane, so a lane with a concurrency of 1 keeps sending
+        for (int i = 0; i < 20; i++) {
+            assertEquals(202, responses.poll(5, TimeUnit.SECONDS).getStatusCode());
+        }
+        assertEquals(0, libhoney.getMetrics().getRequestQueueDepth());
+        libhoney.close();
+    }
+
+    @Test
+    public void testLanesEnableRouting() throws Exception {
+        LaneConfig critical = new LaneConfig("writeme", "critical", 10, 4, 1);
+        LibHoney single = new LibHoney.Builder().writeKey("writeme").lane(critical).build();
+        LibHoney list = new LibHoney.Builder().writeKey("writeme").lanes(Collections.singletonList(critical)).build();
+        assertTrue(single.getLaneRouting());
+        assertTrue(list.getLaneRouting());
+        assertTrue(list.getTransmission().getLaneRouting());
+        single.close();
+        list.close();
+    }
+
+    @Test
+    public void testLaneRoutingWithBatching() throws Exception {
+        BlockingQueue<Response> responses = new LinkedBlockingQueue<>();
+        StubTransport transport = new StubTransport(202, "");
+        LibHoney libhoney = new LibHoney.Builder()
+                .writeKey("writeme")
+                .dataSet("critical")
+                .apiHost("http://urlme")
+                .responseQueueLength(0)
+                .responseObserver(responses::add)
+                .transport(transport)
+                .lane(new LaneConfig("writeme", "critical", 100, 1, 1))
+                .maxConcurrentBranches(1) // one batch loop, so every batch fills
+                .batching(true)
+                .maxBatchSize(10)
+                .batchTimeout(10000)
+                .build();
+        for (int i = 0; i < 50; i++) {
+            Event event = libhoney.newEvent();
+            event.addField("i", i);
+            event.send();
+        }
+
+        // Events waiting in an open batch do not hold the lane, so full batches are sent without waiting out the
+        // batch timeout
+        for (int i = 0; i < 50; i++) {
+            assertEquals(202, responses.poll(5, TimeUnit.SECONDS).getStatusCode());
+        }
+        assertEquals(5, transport.requests.size());
+        libhoney.close();
+    }
+
+    @Test
+    public void testVirtualThreads() throws Exception {
+        // Sends on virtual threads on JDK 21+, and falls back to platform threads on older JDKs
+        BlockingQueue<Response> responses = new LinkedBlockingQueue<>();
+        StubTransport transport = new StubTransport(202, "");
+        LibHoney libhoney = new LibHoney.Builder()
+                .writeKey("writeme")
+                .dataSet("myset")
+                .apiHost("http://urlme")
+                .responseQueueLength(0)
+                .responseObserver(responses::add)
+                .transport(transport)
+                .virtualThreads(true)
+                .build();
+        for (int i = 0; i < 50; i++) {
+            Event event = libhoney.newEvent();
+            event.addField("i", i);
+            event.send();
+        }
+
+        for (int i = 0; i < 50; i++) {
+            assertEquals(202, responses.poll(5, TimeUnit.SECONDS).getStatusCode());
+        }
+        assertTrue(libhoney.getTransmission().getVirtualThreads());
+        libhoney.close();
+        assertEquals(50, transport.requests.size());
+    }
+
+    @Test
+    public void testVirtualThreadsWithAsynchronousTransport() throws Exception {
+        Assume.assumeNotNull(VirtualThreads.newFactory("test-"));
+        BlockingQueue<FutureCallback<HttpResponse>> callbacks = new LinkedBlockingQueue<>();
+        Transport transport = new Transport() {
+            @Override
+            public void execute(HttpUriRequest request, FutureCallback<HttpResponse> callback) {
+                callbacks.add(callback); // completed later by the test
+            }
+
+            @Override
+            public void close() {
+            }
+        };
+        LibHoney libhoney = new LibHoney.Builder()
+                .writeKey("writeme")
+                .dataSet("myset")
+                .apiHost("http://urlme")
+                .transport(transport)
+                .maxConcurrentBranches(2)
+                .virtualThreads(true)
+                .build();
+        for (int i = 0; i < 5; i++) {
+            Event event = libhoney.newEvent();
+            event.addField("i", i);
+            event.send();
+        }
+
+        // A request holds its permit until it completes, not just until the transport returns
+        FutureCallback<HttpResponse> first = callbacks.poll(5, TimeUnit.SECONDS);
+        assertNotNull(callbacks.poll(5, TimeUnit.SECONDS));
+        assertNull(callbacks.poll(200, TimeUnit.MILLISECONDS));
+        first.failed(new IOException("done"));
+        assertNotNull(callbacks.poll(5, TimeUnit.SECONDS));
+        assertNull(callbacks.poll(200, TimeUnit.MILLISECONDS));
+        libhoney.close();
+    }
+
+    @Test
+    public void testEventPool() throws Exception {
+        BlockingQueue<Response> responses = new LinkedBlockingQueue<>();
+        LibHoney libhoney = new LibHoney.Builder()
+                .writeKey("writeme")
+                .dataSet("myset")
+                .apiHost("http://urlme")
+                .responseQueueLength(0)
+                .responseObserver(responses::add)
+                .transport(new StubTransport(202, ""))
+                .eventPoolSize(4)
+                .build();
+        Event sent = libhoney.newEvent();
+        sent.addField("a", 1);
+        sent.setMetadata("first");
+        sent.send();
+        assertEquals("first", responses.poll(5, TimeUnit.SECONDS).getMetadata());
+
+        // The Event is recycled after its response is delivered, then handed out again cleared.  size() only counts
+        // Events that can be taken, so once it is 1 the next newEvent() reuses the sent Event.
+        EventPool pool = libhoney.getTransmission().getEventPool();
+        for (int i = 0; i < 500 && pool.size() == 0; i++) {
+            Thread.sleep(10);
+        }
+        assertEquals(1, pool.size());
+        Event reused = libhoney.newEvent();
+        assertSame(sent, reused);
+        assertNull(reused.getField("a"));
+        assertEquals("", reused.getMetadata());
+        assertEquals(0, reused.getRetries());
+
+        // Events not created by the pool are never recycled
+        Event plain = new Event(libhoney, libhoney.newBuilder());
+        libhoney.getTransmission().recycle(plain);
+        assertEquals(0, pool.size());
+        libhoney.close();
+    }
+
+    @Test
+    public void testTransportThrows() throws Exception {
+        BlockingQueue<Response> responses = new LinkedBlockingQueue<>();
+        StubTransport transport = new StubTransport(202, "");
+        transport.failure = new IllegalStateException("pool shut down");
+        LibHoney libhoney = new LibHoney.Builder()
+                .writeKey("writeme")
+                .dataSet("myset")
+                .apiHost("http://urlme")
+                .responseQueueLength(0)
+                .responseObserver(responses::add)
+                .transport(transport)
+                .maxConcurrentBranches(2)
+                .adaptiveConcurrency(true)
+                .build();
+        for (int i = 0; i < 10; i++) {
+            Event event = libhoney.newEvent();
+            event.addField("i", i);
+            event.send();
+        }
+
+        // Each Event fails with the exception, and returns its concurrency permit
+        for (int i = 0; i < 10; i++) {
+            Response response = responses.poll(5, TimeUnit.SECONDS);
+            assertEquals(0, response.getStatusCode());
+            assertTrue(response.getError().contains("pool shut down"));
+        }
+        assertEquals(0, libhoney.getMetrics().getBytesSent());
+        transport.failure = null;
+        Event event = libhoney.newEvent();
+        event.addField("i", 10);
+        event.send();
+        assertEquals(202, responses.poll(5, TimeUnit.SECONDS).getStatusCode());
+        assertEquals("{\"i\":10}".length(), libhoney.getMetrics().getBytesSent());
+        libhoney.close();
+    }
 }